@@ -0,0 +1,182 @@
+package dev.array21.dutchycore.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.array21.dutchycore.annotations.RegisterModule;
+import dev.array21.dutchycore.module.ModuleClassLoader;
+import dev.array21.dutchycore.module.scanner.ClassFileScanner;
+
+/**
+ * Finding the main class of module jars, by reading the class files or by loading every class as before the ClassFileScanner<br>
+ * <br>
+ * <code>classBytes</code> reads the RegisterModule annotation from the class files and only loads the main class.
+ * <code>forName</code> loads every class with <code>Class.forName</code> until it finds the annotation.
+ * The main class is the last class in a generated jar, so both read the whole jar. Every invocation uses new ClassLoaders, so classes are defined again.
+ * The average Metaspace growth per invocation is printed after every iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class AnnotationScanBenchmark {
+	
+	@Param({ "10", "50", "200" })
+	public int jars;
+	
+	@Param({ "classBytes", "forName" })
+	public String path;
+	
+	private File moduleFolder;
+	private final List<JarFile> jarFiles = new ArrayList<>();
+	private final List<ModuleClassLoader> classLoaders = new ArrayList<>();
+	
+	private long metaspaceStart;
+	private long metaspaceGrowth = 0;
+	private int invocations = 0;
+	
+	@Setup(Level.Trial)
+	public void generateJars() throws IOException {
+		this.moduleFolder = Files.createTempDirectory("dutchycore-jmh").toFile();
+		ModuleJarGenerator.generate(this.moduleFolder, this.jars);
+		
+		for(int i = 0; i < this.jars; i++) {
+			this.jarFiles.add(new JarFile(new File(this.moduleFolder, "BenchmarkModule" + i + ".jar")));
+		}
+	}
+	
+	@Setup(Level.Invocation)
+	public void createClassLoaders() throws IOException {
+		for(ModuleClassLoader classLoader : this.classLoaders) {
+			classLoader.close();
+		}
+		
+		this.classLoaders.clear();
+		for(JarFile jarFile : this.jarFiles) {
+			URL url = new File(jarFile.getName()).toURI().toURL();
+			this.classLoaders.add(new ModuleClassLoader(new URL[] { url }, getClass().getClassLoader()));
+		}
+		
+		//Let the ClassLoaders of the previous invocation be unloaded, so their classes don't count
+		System.gc();
+		this.metaspaceStart = getMetaspaceUsed();
+	}
+	
+	@TearDown(Level.Invocation)
+	public void measureMetaspace() {
+		this.metaspaceGrowth += getMetaspaceUsed() - this.metaspaceStart;
+		this.invocations++;
+	}
+	
+	@TearDown(Level.Iteration)
+	public void printMetaspace() {
+		System.out.printf("Metaspace grew by %d KiB per invocation%n", this.metaspaceGrowth / Math.max(1, this.invocations) / 1024);
+		this.metaspaceGrowth = 0;
+		this.invocations = 0;
+	}
+	
+	@TearDown(Level.Trial)
+	public void deleteJars() throws IOException {
+		for(ModuleClassLoader classLoader : this.classLoaders) {
+			classLoader.close();
+		}
+		
+		for(JarFile jarFile : this.jarFiles) {
+			jarFile.close();
+		}
+		
+		BukkitStandIn.delete(this.moduleFolder);
+	}
+	
+	@Benchmark
+	public int findMainClasses() throws IOException, ClassNotFoundException {
+		boolean classBytes = this.path.equals("classBytes");
+		int found = 0;
+		for(int i = 0; i < this.jars; i++) {
+			Class<?> mainClass = classBytes ? scanClassBytes(this.jarFiles.get(i), this.classLoaders.get(i)) : scanForName(this.jarFiles.get(i), this.classLoaders.get(i));
+			if(mainClass != null) {
+				found++;
+			}
+		}
+		
+		return found;
+	}
+	
+	private static Class<?> scanClassBytes(JarFile jarFile, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+		Enumeration<JarEntry> entries = jarFile.entries();
+		while(entries.hasMoreElements()) {
+			JarEntry entry = entries.nextElement();
+			if(entry.isDirectory() || !entry.getName().endsWith(".class")) {
+				continue;
+			}
+			
+			try(InputStream in = jarFile.getInputStream(entry)) {
+				if(ClassFileScanner.readClassAnnotation(in, RegisterModule.class) != null) {
+					return Class.forName(getClassName(entry), false, classLoader);
+				}
+			}
+		}
+		
+		return null;
+	}
+	
+	private static Class<?> scanForName(JarFile jarFile, ClassLoader classLoader) throws ClassNotFoundException {
+		Enumeration<JarEntry> entries = jarFile.entries();
+		while(entries.hasMoreElements()) {
+			JarEntry entry = entries.nextElement();
+			if(entry.isDirectory() || !entry.getName().endsWith(".class")) {
+				continue;
+			}
+			
+			Class<?> clazz = Class.forName(getClassName(entry), false, classLoader);
+			if(clazz.isAnnotationPresent(RegisterModule.class)) {
+				return clazz;
+			}
+		}
+		
+		return null;
+	}
+	
+	private static String getClassName(JarEntry entry) {
+		return entry.getName()
+				.replace(".class", "")
+				.replace("/", ".");
+	}
+	
+	private static long getMetaspaceUsed() {
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getName().equals("Metaspace")) {
+				return pool.getUsage().getUsed();
+			}
+		}
+		
+		return 0;
+	}
+}
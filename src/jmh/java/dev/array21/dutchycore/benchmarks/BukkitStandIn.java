@@ -0,0 +1,165 @@
+package dev.array21.dutchycore.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.java.JavaPluginLoader;
+import org.bukkit.scheduler.BukkitScheduler;
+
+import dev.array21.dutchycore.DutchyCore;
+import dev.array21.dutchycore.commands.CommandRegister;
+import dev.array21.dutchycore.config.CoreConfiguration;
+import dev.array21.dutchycore.module.ModuleLoader;
+
+/**
+ * Just enough of a Bukkit server to run DutchyCore in a benchmark, without a running server or network access<br>
+ * <br>
+ * The Server, BukkitScheduler and PluginManager are proxies. The current thread is always the main thread,
+ * and tasks scheduled with the BukkitScheduler run immediately. Everything else does nothing.
+ */
+public class BukkitStandIn {
+	
+	private static final Logger LOGGER = Logger.getLogger("BukkitStandIn");
+	private static Server server;
+	
+	/**
+	 * Install the stand-in server if needed, and create a DutchyCore as if it was enabled, without loading any modules
+	 * @param dataFolder The data folder of DutchyCore
+	 * @return Returns the DutchyCore instance
+	 */
+	public static synchronized DutchyCore start(File dataFolder) {
+		if(server == null) {
+			BukkitScheduler scheduler = proxy(BukkitScheduler.class, BukkitStandIn::handleScheduler);
+			PluginManager pluginManager = proxy(PluginManager.class, (method, args) -> defaultValue(method.getReturnType()));
+			
+			server = proxy(Server.class, (method, args) -> {
+				switch(method.getName()) {
+				case "getLogger": return LOGGER;
+				case "getName": return "BukkitStandIn";
+				case "getVersion": return "benchmark";
+				case "getBukkitVersion": return "benchmark";
+				case "isPrimaryThread": return true;
+				case "getScheduler": return scheduler;
+				case "getPluginManager": return pluginManager;
+				default: return defaultValue(method.getReturnType());
+				}
+			});
+			
+			Bukkit.setServer(server);
+		}
+		
+		dataFolder.mkdirs();
+		
+		@SuppressWarnings("deprecation")
+		JavaPluginLoader loader = new JavaPluginLoader(server);
+		PluginDescriptionFile description = new PluginDescriptionFile("DutchyCore", "benchmark", DutchyCore.class.getName());
+		DutchyCore core = new StandInCore(loader, description, dataFolder, new File(dataFolder, "DutchyCore.jar"));
+		
+		//Module loading logs a lot at INFO, which would end up in the benchmark output
+		core.getLogger().setLevel(Level.WARNING);
+		setStatic("INSTANCE", core);
+		
+		CoreConfiguration coreConfiguration = new CoreConfiguration(core);
+		coreConfiguration.read();
+		setStatic("coreConfiguration", coreConfiguration);
+		setStatic("commandRegister", new CommandRegister(core));
+		
+		return core;
+	}
+	
+	/**
+	 * Make a ModuleLoader the one returned by {@link DutchyCore#getModuleLoader()}
+	 * @param moduleLoader The ModuleLoader
+	 */
+	public static void setModuleLoader(ModuleLoader moduleLoader) {
+		setStatic("moduleLoader", moduleLoader);
+	}
+	
+	/**
+	 * Delete a folder created for a benchmark, with everything in it
+	 * @param folder The folder
+	 * @throws IOException If a file could not be deleted
+	 */
+	public static void delete(File folder) throws IOException {
+		if(!folder.exists()) {
+			return;
+		}
+		
+		try(Stream<Path> walk = Files.walk(folder.toPath())) {
+			for(Path path : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+	
+	private static Object handleScheduler(Method method, Object[] args) {
+		if(method.getName().startsWith("runTask") && args != null) {
+			for(Object arg : args) {
+				if(arg instanceof Runnable) {
+					((Runnable) arg).run();
+				}
+			}
+		}
+		
+		return defaultValue(method.getReturnType());
+	}
+	
+	private static void setStatic(String fieldName, Object value) {
+		try {
+			Field field = DutchyCore.class.getDeclaredField(fieldName);
+			field.setAccessible(true);
+			field.set(null, value);
+		} catch(ReflectiveOperationException e) {
+			throw new IllegalStateException("Failed to set DutchyCore." + fieldName, e);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, Handler handler) {
+		return (T) Proxy.newProxyInstance(BukkitStandIn.class.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+			switch(method.getName()) {
+			case "hashCode": return System.identityHashCode(proxy);
+			case "equals": return proxy == args[0];
+			case "toString": return "BukkitStandIn " + type.getSimpleName();
+			default: return handler.handle(method, args);
+			}
+		});
+	}
+	
+	private static Object defaultValue(Class<?> type) {
+		if(!type.isPrimitive() || type == void.class) return null;
+		if(type == boolean.class) return false;
+		if(type == char.class) return (char) 0;
+		if(type == float.class) return 0f;
+		if(type == double.class) return 0d;
+		if(type == long.class) return 0L;
+		if(type == int.class) return 0;
+		if(type == short.class) return (short) 0;
+		return (byte) 0;
+	}
+	
+	@FunctionalInterface
+	private interface Handler {
+		public Object handle(Method method, Object[] args);
+	}
+	
+	private static class StandInCore extends DutchyCore {
+		
+		private StandInCore(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+			super(loader, description, dataFolder, file);
+		}
+	}
+}
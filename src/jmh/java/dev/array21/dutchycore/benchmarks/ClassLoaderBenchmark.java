@@ -0,0 +1,138 @@
+package dev.array21.dutchycore.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.array21.dutchycore.module.ModuleClassLoader;
+
+/**
+ * Class and resource lookups with a varying number of module jars, hits and misses<br>
+ * <br>
+ * <code>indexed</code> is a ModuleClassLoader per jar, finding other modules through their packages as the ModuleLoader does.
+ * <code>url</code> is a single URLClassLoader over all jars, which probes them in order.
+ * Every lookup starts at the first module and asks for the last one, the worst case for probing in order.
+ * The classes are loaded in the first iteration, so class hits measure finding a class which is already defined.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassLoaderBenchmark {
+	
+	@Param({ "10", "50", "200" })
+	public int jars;
+	
+	@Param({ "indexed", "url" })
+	public String loader;
+	
+	private File moduleFolder;
+	private final List<URLClassLoader> classLoaders = new ArrayList<>();
+	private ClassLoader entry;
+	
+	private String[] hitClasses;
+	private String[] hitResources;
+	private String missClass;
+	private String missResource;
+	private int next = 0;
+	
+	@Setup(Level.Trial)
+	public void generateJars() throws IOException {
+		this.moduleFolder = Files.createTempDirectory("dutchycore-jmh").toFile();
+		ModuleJarGenerator.generate(this.moduleFolder, this.jars);
+		
+		URL[] urls = new URL[this.jars];
+		for(int i = 0; i < this.jars; i++) {
+			urls[i] = new File(this.moduleFolder, "BenchmarkModule" + i + ".jar").toURI().toURL();
+		}
+		
+		ClassLoader parent = getClass().getClassLoader();
+		if(this.loader.equals("indexed")) {
+			ConcurrentHashMap<String, ModuleClassLoader> packageOwners = new ConcurrentHashMap<>();
+			for(URL url : urls) {
+				ModuleClassLoader classLoader = new ModuleClassLoader(new URL[] { url }, parent, packageOwners::get);
+				for(String packagePath : classLoader.getPackagePaths()) {
+					packageOwners.putIfAbsent(packagePath, classLoader);
+				}
+				
+				this.classLoaders.add(classLoader);
+			}
+		} else {
+			this.classLoaders.add(new URLClassLoader(urls, parent));
+		}
+		
+		this.entry = this.classLoaders.get(0);
+		
+		String lastPackage = "benchmark.module" + (this.jars - 1);
+		this.hitClasses = new String[ModuleJarGenerator.FILLER_CLASSES];
+		this.hitResources = new String[ModuleJarGenerator.FILLER_CLASSES];
+		for(int i = 0; i < ModuleJarGenerator.FILLER_CLASSES; i++) {
+			this.hitClasses[i] = lastPackage + ".Filler" + i;
+			this.hitResources[i] = lastPackage.replace('.', '/') + "/Filler" + i + ".class";
+		}
+		
+		this.missClass = lastPackage + ".Missing";
+		this.missResource = lastPackage.replace('.', '/') + "/missing.yml";
+	}
+	
+	@TearDown(Level.Trial)
+	public void deleteJars() throws IOException {
+		for(URLClassLoader classLoader : this.classLoaders) {
+			classLoader.close();
+		}
+		
+		BukkitStandIn.delete(this.moduleFolder);
+	}
+	
+	@Benchmark
+	public Class<?> loadClassHit() throws ClassNotFoundException {
+		return this.entry.loadClass(this.hitClasses[nextIndex()]);
+	}
+	
+	@Benchmark
+	public boolean loadClassMiss() {
+		try {
+			this.entry.loadClass(this.missClass);
+			return true;
+		} catch(ClassNotFoundException e) {
+			return false;
+		}
+	}
+	
+	@Benchmark
+	public URL findResourceHit() {
+		return this.entry.getResource(this.hitResources[nextIndex()]);
+	}
+	
+	@Benchmark
+	public URL findResourceMiss() {
+		return this.entry.getResource(this.missResource);
+	}
+	
+	private int nextIndex() {
+		this.next = (this.next + 1) % ModuleJarGenerator.FILLER_CLASSES;
+		return this.next;
+	}
+}
@@ -0,0 +1,156 @@
+package dev.array21.dutchycore.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.array21.dutchycore.DutchyCore;
+import dev.array21.dutchycore.annotations.DistributedEvent;
+import dev.array21.dutchycore.annotations.EventHandler;
+import dev.array21.dutchycore.module.events.EventForwarder;
+import dev.array21.dutchycore.module.events.ModuleEvent;
+import dev.array21.dutchycore.module.events.ModuleEventBus;
+import dev.array21.dutchycore.module.events.ModuleEventListener;
+import dev.array21.dutchycore.module.events.transport.EventTransport;
+import dev.array21.dutchycore.module.events.transport.LoopbackTransport;
+import dev.array21.dutchycore.module.events.transport.UnixSocketTransport;
+
+/**
+ * End-to-end latency and throughput of forwarding a distributed ModuleEvent from one node to another<br>
+ * <br>
+ * Both nodes run in this JVM, each with its own ModuleEventBus and EventForwarder. An operation ends when the handler on the receiving node was invoked,
+ * so serialization, batching, the transport and deserialization are all included
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistributedEventBenchmark {
+	
+	private static final int EVENTS_PER_INVOCATION = 1000;
+	
+	@Param({ "loopback", "unixSocket" })
+	public String transport;
+	
+	private File dataFolder;
+	private ModuleEventBus sendingBus;
+	private EventForwarder sender, receiver;
+	private final AtomicLong received = new AtomicLong();
+	private long sent = 0;
+	
+	@Setup
+	public void setup() throws IOException {
+		this.dataFolder = Files.createTempDirectory("dutchycore-jmh").toFile();
+		DutchyCore core = BukkitStandIn.start(this.dataFolder);
+		
+		EventTransport sendingTransport, receivingTransport;
+		if(this.transport.equals("loopback")) {
+			LoopbackTransport loopback = new LoopbackTransport();
+			sendingTransport = loopback;
+			receivingTransport = loopback.connect();
+		} else {
+			sendingTransport = new UnixSocketTransport(this.dataFolder.toPath(), "sender");
+			receivingTransport = new UnixSocketTransport(this.dataFolder.toPath(), "receiver");
+		}
+		
+		this.sendingBus = new ModuleEventBus(core, 1, null);
+		ModuleEventBus receivingBus = new ModuleEventBus(core, 1, null);
+		receivingBus.register(new ReceivingListener(this.received));
+		
+		//The receiver has to listen before the sender looks for it
+		this.receiver = new EventForwarder(core, "receiver", receivingTransport, Class::forName, receivingBus::post);
+		this.receiver.start();
+		this.sender = new EventForwarder(core, "sender", sendingTransport, Class::forName, this.sendingBus::post);
+		this.sender.start();
+		this.sendingBus.setForwarder(this.sender);
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		this.sender.close();
+		this.receiver.close();
+		this.sendingBus.shutdown();
+		BukkitStandIn.delete(this.dataFolder);
+	}
+	
+	/**
+	 * Time from throwing a single event until it was handled on the other node
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public long latency() {
+		this.sendingBus.post(new PositionEvent("player", ++this.sent));
+		return awaitReceived();
+	}
+	
+	/**
+	 * Events per second handled on the other node, when thrown as fast as possible
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@OperationsPerInvocation(EVENTS_PER_INVOCATION)
+	public long throughput() {
+		for(int i = 0; i < EVENTS_PER_INVOCATION; i++) {
+			this.sendingBus.post(new PositionEvent("player", ++this.sent));
+		}
+		
+		return awaitReceived();
+	}
+	
+	private long awaitReceived() {
+		long received;
+		while((received = this.received.get()) < this.sent) {
+			Thread.onSpinWait();
+		}
+		
+		return received;
+	}
+	
+	@DistributedEvent
+	public static class PositionEvent extends ModuleEvent {
+		
+		private String player;
+		private long sequence;
+		private double x, y, z;
+		
+		public PositionEvent(String player, long sequence) {
+			this.player = player;
+			this.sequence = sequence;
+			this.x = sequence * 0.5;
+			this.y = 64;
+			this.z = -sequence * 0.5;
+		}
+	}
+	
+	public static class ReceivingListener implements ModuleEventListener {
+		
+		private final AtomicLong received;
+		
+		public ReceivingListener(AtomicLong received) {
+			this.received = received;
+		}
+		
+		@EventHandler
+		public void onPosition(PositionEvent event) {
+			this.received.incrementAndGet();
+		}
+	}
+}
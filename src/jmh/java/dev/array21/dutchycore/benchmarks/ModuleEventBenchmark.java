@@ -0,0 +1,95 @@
+package dev.array21.dutchycore.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.array21.dutchycore.DutchyCore;
+import dev.array21.dutchycore.annotations.EventHandler;
+import dev.array21.dutchycore.module.ModuleLoader;
+import dev.array21.dutchycore.module.PluginModule;
+import dev.array21.dutchycore.module.events.ModuleEvent;
+import dev.array21.dutchycore.module.events.ModuleEventListener;
+
+/**
+ * Throwing a ModuleEvent with a varying number of listeners
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModuleEventBenchmark {
+	
+	@Param({ "1", "10", "100" })
+	public int listeners;
+	
+	private File dataFolder;
+	private ModuleLoader moduleLoader;
+	private BenchmarkModule module;
+	private CountingEvent event;
+	
+	@Setup
+	public void setup() throws IOException {
+		this.dataFolder = Files.createTempDirectory("dutchycore-jmh").toFile();
+		DutchyCore core = BukkitStandIn.start(this.dataFolder);
+		
+		//No modules are installed, this only sets up the event bus
+		this.moduleLoader = new ModuleLoader();
+		BukkitStandIn.setModuleLoader(this.moduleLoader);
+		this.moduleLoader.loadAllModules(core);
+		
+		this.module = new BenchmarkModule();
+		for(int i = 0; i < this.listeners; i++) {
+			this.module.registerModuleEventListener(new CountingListener());
+		}
+		
+		this.event = new CountingEvent();
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		this.moduleLoader.disableAllModules();
+		BukkitStandIn.delete(this.dataFolder);
+	}
+	
+	@Benchmark
+	public long throwModuleEvent() {
+		this.module.throwModuleEvent(this.event);
+		return this.event.handled;
+	}
+	
+	public static class BenchmarkModule extends PluginModule {
+		
+		@Override
+		public void enable(DutchyCore plugin) {}
+	}
+	
+	public static class CountingEvent extends ModuleEvent {
+		
+		private long handled = 0;
+	}
+	
+	public static class CountingListener implements ModuleEventListener {
+		
+		@EventHandler
+		public void onCountingEvent(CountingEvent event) {
+			event.handled++;
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package dev.array21.dutchycore.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.array21.dutchycore.DutchyCore;
+import dev.array21.dutchycore.module.Module;
+import dev.array21.dutchycore.module.file.ModuleConfiguration;
+import dev.array21.dutchycore.module.file.ModuleStorage;
+import dev.array21.dutchycore.module.file.StorageWriter;
+
+/**
+ * Reading and saving a ModuleConfiguration and a ModuleStorage with a varying number of entries
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModuleFileBenchmark {
+	
+	@Param({ "10", "1000", "10000" })
+	public int entries;
+	
+	private File dataFolder;
+	private DutchyCore core;
+	private Module module;
+	private ModuleConfiguration configuration;
+	private ModuleStorage storage;
+	private ModuleStorage writeBehindStorage;
+	private ModuleStorage namespacedStorage;
+	private int changes = 0;
+	private StorageWriter storageWriter;
+	
+	@Setup
+	public void setup() throws IOException {
+		this.dataFolder = Files.createTempDirectory("dutchycore-jmh").toFile();
+		this.core = BukkitStandIn.start(this.dataFolder);
+		new File(this.dataFolder, "moduleconfig").mkdirs();
+		new File(this.dataFolder, "modulestorage").mkdirs();
+		
+		this.module = new Module("BenchmarkModule", "dev.array21.dutchycore.benchmarks.BenchmarkModule", "1.0.0", "DutchyPlugins", "https://github.com/DutchyPlugins/", new File(this.dataFolder, "BenchmarkModule.jar"));
+		
+		this.configuration = new ModuleConfiguration(this.module, this.core);
+		this.configuration.read();
+		this.storage = new ModuleStorage(this.module, this.core);
+		this.storage.read();
+		
+		for(int i = 0; i < this.entries; i++) {
+			this.configuration.setValue("key" + i, "value" + i);
+			this.storage.setValue("key" + i, "value" + i);
+		}
+		
+		this.configuration.save();
+		this.storage.save();
+		
+		//A second module, so both storages don't write the same file
+		Module writeBehindModule = new Module("WriteBehindModule", "dev.array21.dutchycore.benchmarks.WriteBehindModule", "1.0.0", "DutchyPlugins", "https://github.com/DutchyPlugins/", new File(this.dataFolder, "WriteBehindModule.jar"));
+		this.storageWriter = new StorageWriter(1000L);
+		this.writeBehindStorage = new ModuleStorage(writeBehindModule, this.core);
+		this.writeBehindStorage.read();
+		this.writeBehindStorage.setWriter(this.storageWriter);
+		
+		for(int i = 0; i < this.entries; i++) {
+			this.writeBehindStorage.setValue("key" + i, "value" + i);
+		}
+		
+		//The same entries, but in a namespace, so they are split over several segments
+		Module namespacedModule = new Module("NamespacedModule", "dev.array21.dutchycore.benchmarks.NamespacedModule", "1.0.0", "DutchyPlugins", "https://github.com/DutchyPlugins/", new File(this.dataFolder, "NamespacedModule.jar"));
+		this.namespacedStorage = new ModuleStorage(namespacedModule, this.core);
+		this.namespacedStorage.read();
+		
+		for(int i = 0; i < this.entries; i++) {
+			this.namespacedStorage.setValue("players.key" + i, "value" + i);
+		}
+		
+		this.namespacedStorage.save();
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		this.storageWriter.shutdown();
+		BukkitStandIn.delete(this.dataFolder);
+	}
+	
+	@Benchmark
+	public Object readConfiguration() {
+		ModuleConfiguration configuration = new ModuleConfiguration(this.module, this.core);
+		configuration.read();
+		return configuration.getValue("key0");
+	}
+	
+	@Benchmark
+	public Object readConfigurationIfChanged() {
+		this.configuration.readIfChanged();
+		return this.configuration.getValue("key0");
+	}
+	
+	@Benchmark
+	public void saveConfiguration() {
+		this.configuration.save();
+	}
+	
+	@Benchmark
+	public Object readStorage() {
+		ModuleStorage storage = new ModuleStorage(this.module, this.core);
+		storage.read();
+		return storage.getValue("key0");
+	}
+	
+	@Benchmark
+	public Object readStorageIfChanged() {
+		this.storage.readIfChanged();
+		return this.storage.getValue("key0");
+	}
+	
+	/**
+	 * Saving without changes, which writes nothing
+	 */
+	@Benchmark
+	public void saveStorage() {
+		this.storage.save();
+	}
+	
+	/**
+	 * Changing one entry without a namespace, which rewrites all entries without a namespace
+	 */
+	@Benchmark
+	public void saveStorageOneChange() {
+		this.storage.setValue("key0", "value" + ++this.changes);
+		this.storage.save();
+	}
+	
+	/**
+	 * Changing one namespaced entry, which only rewrites the segment holding it
+	 */
+	@Benchmark
+	public void saveNamespacedStorageOneChange() {
+		this.namespacedStorage.setValue("players.key0", "value" + ++this.changes);
+		this.namespacedStorage.save();
+	}
+	
+	/**
+	 * The time save() takes on the calling thread when the storage is written in the background
+	 */
+	@Benchmark
+	public void saveStorageWriteBehind() {
+		this.writeBehindStorage.save();
+	}
+	
+	/**
+	 * Saving and waiting until the storage is on disk, including the hand-off to the writer thread
+	 */
+	@Benchmark
+	public void saveStorageWriteBehindAndFlush() {
+		this.writeBehindStorage.save();
+		this.writeBehindStorage.flush();
+	}
+}
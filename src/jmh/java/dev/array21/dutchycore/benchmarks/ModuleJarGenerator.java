@@ -0,0 +1,129 @@
+package dev.array21.dutchycore.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * Generates module jars for benchmarks. The modules are compiled with the system Java compiler, so a JDK is required
+ */
+public class ModuleJarGenerator {
+	
+	/**
+	 * Classes in every jar besides the main class. They come before the main class, so the scanner has to read past them
+	 */
+	public static final int FILLER_CLASSES = 25;
+	
+	/**
+	 * Generate module jars, named <code>BenchmarkModule0.jar</code> and up. Every module has a unique name and package
+	 * @param moduleFolder The folder to write the jars to
+	 * @param count The number of jars
+	 * @throws IOException If the sources could not be compiled or a jar could not be written
+	 */
+	public static void generate(File moduleFolder, int count) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if(compiler == null) {
+			throw new IllegalStateException("Generating module jars requires a JDK");
+		}
+		
+		Path sourceFolder = Files.createTempDirectory("dutchycore-jmh-sources");
+		Path classFolder = Files.createTempDirectory("dutchycore-jmh-classes");
+		
+		try {
+			List<String> arguments = new ArrayList<>();
+			arguments.add("-classpath");
+			arguments.add(System.getProperty("java.class.path"));
+			arguments.add("-d");
+			arguments.add(classFolder.toString());
+			
+			for(int i = 0; i < count; i++) {
+				String packageName = "benchmark.module" + i;
+				Path packageFolder = Files.createDirectories(sourceFolder.resolve(packageName.replace('.', File.separatorChar)));
+				
+				arguments.add(write(packageFolder.resolve("BenchmarkModule.java"), String.format("package %s;%n"
+						+ "@dev.array21.dutchycore.annotations.RegisterModule(name = \"BenchmarkModule%d\", version = \"1.0.0\", author = \"DutchyPlugins\")%n"
+						+ "public class BenchmarkModule extends dev.array21.dutchycore.module.PluginModule {%n"
+						+ "	@Override%n"
+						+ "	public void enable(dev.array21.dutchycore.DutchyCore plugin) {}%n"
+						+ "}%n", packageName, i)));
+				
+				for(int j = 0; j < FILLER_CLASSES; j++) {
+					arguments.add(write(packageFolder.resolve("Filler" + j + ".java"), String.format("package %s;%n"
+							+ "public class Filler%d {%n"
+							+ "	public int getValue() { return %d; }%n"
+							+ "}%n", packageName, j, j)));
+				}
+			}
+			
+			if(compiler.run(null, null, null, arguments.toArray(new String[0])) != 0) {
+				throw new IOException("Failed to compile the benchmark modules");
+			}
+			
+			moduleFolder.mkdirs();
+			for(int i = 0; i < count; i++) {
+				Path packageFolder = classFolder.resolve("benchmark").resolve("module" + i);
+				try(JarOutputStream out = new JarOutputStream(Files.newOutputStream(new File(moduleFolder, "BenchmarkModule" + i + ".jar").toPath()))) {
+					for(int j = 0; j < FILLER_CLASSES; j++) {
+						addEntry(out, packageFolder.resolve("Filler" + j + ".class"), String.format("benchmark/module%d/Filler%d.class", i, j));
+					}
+					
+					addEntry(out, packageFolder.resolve("BenchmarkModule.class"), String.format("benchmark/module%d/BenchmarkModule.class", i));
+				}
+			}
+		} finally {
+			BukkitStandIn.delete(sourceFolder.toFile());
+			BukkitStandIn.delete(classFolder.toFile());
+		}
+	}
+	
+	private static String write(Path file, String source) throws IOException {
+		Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+		return file.toString();
+	}
+	
+	private static void addEntry(JarOutputStream out, Path classFile, String name) throws IOException {
+		out.putNextEntry(new JarEntry(name));
+		try(OutputStream entry = new NonClosingOutputStream(out)) {
+			Files.copy(classFile, entry);
+		}
+		
+		out.closeEntry();
+	}
+	
+	/**
+	 * Lets Files.copy write into the current jar entry without closing the jar
+	 */
+	private static class NonClosingOutputStream extends OutputStream {
+		
+		private final OutputStream out;
+		
+		private NonClosingOutputStream(OutputStream out) {
+			this.out = out;
+		}
+		
+		@Override
+		public void write(int b) throws IOException {
+			this.out.write(b);
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			this.out.write(b, off, len);
+		}
+		
+		@Override
+		public void close() {
+			//The jar is closed by its owner
+		}
+	}
+}
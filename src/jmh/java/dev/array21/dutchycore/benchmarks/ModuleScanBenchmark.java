@@ -0,0 +1,85 @@
+package dev.array21.dutchycore.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.array21.dutchycore.DutchyCore;
+import dev.array21.dutchycore.module.ModuleLoader;
+
+/**
+ * Loading all modules from a modules folder with a varying number of jars, with and without a module index from a previous startup<br>
+ * <br>
+ * Each invocation is a complete startup: discovery, jar scanning, class loading and enabling. The breakdown per phase
+ * is written to <code>timings.json</code> in the data folder, and the Metaspace growth of the scan is logged.
+ * Run with <code>-prof gc</code> to see the allocations as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ModuleScanBenchmark {
+	
+	@Param({ "10", "50", "200" })
+	public int jars;
+	
+	/**
+	 * Whether the module index from the previous invocation is kept, as on a normal restart
+	 */
+	@Param({ "false", "true" })
+	public boolean warmIndex;
+	
+	private File dataFolder;
+	private DutchyCore core;
+	private ModuleLoader moduleLoader;
+	
+	@Setup(Level.Trial)
+	public void generateJars() throws IOException {
+		this.dataFolder = Files.createTempDirectory("dutchycore-jmh").toFile();
+		this.core = BukkitStandIn.start(this.dataFolder);
+		ModuleJarGenerator.generate(new File(this.dataFolder, "modules"), this.jars);
+	}
+	
+	@Setup(Level.Invocation)
+	public void prepareStartup() {
+		if(!this.warmIndex) {
+			new File(this.dataFolder, "moduleindex.yml").delete();
+		}
+		
+		this.moduleLoader = new ModuleLoader();
+		BukkitStandIn.setModuleLoader(this.moduleLoader);
+	}
+	
+	@TearDown(Level.Invocation)
+	public void shutdown() {
+		this.moduleLoader.disableAllModules();
+	}
+	
+	@TearDown(Level.Trial)
+	public void deleteJars() throws IOException {
+		BukkitStandIn.delete(this.dataFolder);
+	}
+	
+	@Benchmark
+	public int loadAllModules() {
+		this.moduleLoader.loadAllModules(this.core);
+		return this.moduleLoader.getAllModules().size();
+	}
+}
@@ -0,0 +1,143 @@
+package dev.array21.dutchycore.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.array21.dutchycore.DutchyCore;
+import dev.array21.dutchycore.annotations.EventHandler;
+import dev.array21.dutchycore.module.ModuleLoader;
+import dev.array21.dutchycore.module.events.ModuleEvent;
+import dev.array21.dutchycore.module.events.ModuleEventListener;
+import dev.array21.dutchycore.module.events.ModuleEventPool;
+import dev.array21.dutchycore.module.events.PooledModuleEvent;
+
+/**
+ * Throwing a newly allocated ModuleEvent compared to throwing one taken from a ModuleEventPool<br>
+ * <br>
+ * Compare the allocation rate by running with the GC profiler: <code>gradle jmh -PjmhArgs="PooledEventBenchmark -prof gc"</code>,
+ * and compare gc.alloc.rate.norm of both benchmarks
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PooledEventBenchmark {
+	
+	@Param({ "1", "10" })
+	public int listeners;
+	
+	private File dataFolder;
+	private ModuleLoader moduleLoader;
+	private ModuleEventBenchmark.BenchmarkModule module;
+	private ModuleEventPool<PooledMoveEvent> pool;
+	private long tick = 0;
+	
+	@Setup
+	public void setup() throws IOException {
+		this.dataFolder = Files.createTempDirectory("dutchycore-jmh").toFile();
+		DutchyCore core = BukkitStandIn.start(this.dataFolder);
+		
+		this.moduleLoader = new ModuleLoader();
+		BukkitStandIn.setModuleLoader(this.moduleLoader);
+		this.moduleLoader.loadAllModules(core);
+		
+		this.module = new ModuleEventBenchmark.BenchmarkModule();
+		for(int i = 0; i < this.listeners; i++) {
+			this.module.registerModuleEventListener(new MoveListener());
+		}
+		
+		this.pool = new ModuleEventPool<>(PooledMoveEvent::new, 16);
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		this.moduleLoader.disableAllModules();
+		BukkitStandIn.delete(this.dataFolder);
+	}
+	
+	@Benchmark
+	public void throwNewEvent() {
+		long tick = this.tick++;
+		this.module.throwModuleEvent(new MoveEvent("player", tick, tick + 1, tick + 2));
+	}
+	
+	@Benchmark
+	public void throwPooledEvent() {
+		long tick = this.tick++;
+		PooledMoveEvent event = this.pool.acquire();
+		event.set("player", tick, tick + 1, tick + 2);
+		this.module.throwModuleEvent(event);
+	}
+	
+	public static class MoveEvent extends ModuleEvent {
+		
+		private final String player;
+		private final long x, y, z;
+		
+		public MoveEvent(String player, long x, long y, long z) {
+			this.player = player;
+			this.x = x;
+			this.y = y;
+			this.z = z;
+		}
+	}
+	
+	public static class PooledMoveEvent extends PooledModuleEvent {
+		
+		private String player;
+		private long x, y, z;
+		
+		private void set(String player, long x, long y, long z) {
+			checkAccess();
+			this.player = player;
+			this.x = x;
+			this.y = y;
+			this.z = z;
+		}
+		
+		public long getSum() {
+			checkAccess();
+			return this.x + this.y + this.z + this.player.length();
+		}
+		
+		@Override
+		protected void reset() {
+			this.player = null;
+			this.x = 0;
+			this.y = 0;
+			this.z = 0;
+		}
+	}
+	
+	public static class MoveListener implements ModuleEventListener {
+		
+		private long sum = 0;
+		
+		@EventHandler
+		public void onMove(MoveEvent event) {
+			this.sum += event.x + event.y + event.z + event.player.length();
+		}
+		
+		@EventHandler
+		public void onPooledMove(PooledMoveEvent event) {
+			this.sum += event.getSum();
+		}
+	}
+}
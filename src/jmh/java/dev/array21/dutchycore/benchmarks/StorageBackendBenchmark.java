@@ -0,0 +1,135 @@
+package dev.array21.dutchycore.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.array21.dutchycore.DutchyCore;
+import dev.array21.dutchycore.module.Module;
+import dev.array21.dutchycore.module.file.LogStorageBackend;
+import dev.array21.dutchycore.module.file.ModuleStorage;
+import dev.array21.dutchycore.module.file.SqliteStorageBackend;
+import dev.array21.dutchycore.module.file.StorageBackend;
+import dev.array21.dutchycore.module.file.YamlStorageBackend;
+
+/**
+ * Loading and saving a ModuleStorage with the YAML backend compared to the log and SQLite backends
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StorageBackendBenchmark {
+	
+	@Param({ "yaml", "log", "sqlite" })
+	public String backend;
+	
+	@Param({ "1000", "100000" })
+	public int entries;
+	
+	private File dataFolder;
+	private DutchyCore core;
+	private Module module;
+	private ModuleStorage storage;
+	private int changes = 0;
+	
+	@Setup
+	public void setup() throws IOException {
+		this.dataFolder = Files.createTempDirectory("dutchycore-jmh").toFile();
+		this.core = BukkitStandIn.start(this.dataFolder);
+		new File(this.dataFolder, "modulestorage").mkdirs();
+		
+		this.module = new Module("BenchmarkModule", "dev.array21.dutchycore.benchmarks.BenchmarkModule", "1.0.0", "DutchyPlugins", "https://github.com/DutchyPlugins/", new File(this.dataFolder, "BenchmarkModule.jar"));
+		
+		//Namespaced keys, so the YAML backend writes one segment per change instead of every entry
+		this.storage = createStorage();
+		for(int i = 0; i < this.entries; i++) {
+			this.storage.setValue("players.key" + i, "value" + i);
+		}
+		
+		this.storage.save();
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		this.storage.close();
+		BukkitStandIn.delete(this.dataFolder);
+	}
+	
+	private ModuleStorage createStorage() {
+		StorageBackend storageBackend;
+		if(this.backend.equals("log")) {
+			//Compact on the benchmark thread, there is no StorageWriter
+			storageBackend = new LogStorageBackend(ModuleStorage.getStorageFile(this.core, this.module, ".log"), null);
+		} else if(this.backend.equals("sqlite")) {
+			storageBackend = new SqliteStorageBackend(ModuleStorage.getStorageFile(this.core, this.module, ".db"));
+		} else {
+			storageBackend = new YamlStorageBackend(ModuleStorage.getStorageFile(this.core, this.module, ".yml"), ModuleStorage.getStorageFile(this.core, this.module, ""));
+		}
+		
+		ModuleStorage storage = new ModuleStorage(this.module, this.core, storageBackend);
+		storage.read();
+		return storage;
+	}
+	
+	/**
+	 * Loading the storage and reading one value
+	 */
+	@Benchmark
+	public Object load() {
+		ModuleStorage storage = createStorage();
+		Object value = storage.getValue("players.key0");
+		storage.close();
+		return value;
+	}
+	
+	/**
+	 * Loading the storage and reading every value. The log backend decodes values when they are first read, so this includes that cost
+	 */
+	@Benchmark
+	public int loadAndReadAll() {
+		ModuleStorage storage = createStorage();
+		int found = 0;
+		for(int i = 0; i < this.entries; i++) {
+			if(storage.getValue("players.key" + i) != null) {
+				found++;
+			}
+		}
+		
+		storage.close();
+		return found;
+	}
+	
+	/**
+	 * Reading the entries with a key from players.key1 up to players.key2, about a ninth of them. The SQLite backend only reads those from the database
+	 */
+	@Benchmark
+	public int readRange() {
+		return this.storage.getRange("players.key1", "players.key2").size();
+	}
+	
+	/**
+	 * Changing one entry and saving it. The YAML backend rewrites the segment holding it, the log backend appends one record and the SQLite backend commits one row
+	 */
+	@Benchmark
+	public void saveOneChange() {
+		this.storage.setValue("players.key0", "value" + ++this.changes);
+		this.storage.save();
+	}
+}
@@ -0,0 +1,53 @@
+package dev.array21.dutchycore.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.ChatColor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.array21.dutchycore.Triple;
+import dev.array21.dutchycore.utils.Utils;
+
+/**
+ * The String utilities used by commands
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilsBenchmark {
+	
+	private static final Triple<String, ChatColor, ChatColor> HIGHLIGHT = new Triple<>("%s", ChatColor.GREEN, ChatColor.GOLD);
+	
+	/**
+	 * The same message as /modules sends for every module
+	 */
+	private static final String MESSAGE = ChatColor.GOLD + "Module %s:\nVersion %s\nAuthor %s\nInfo url %s\n";
+	
+	@State(Scope.Thread)
+	public static class Input {
+		
+		@Param({ "42", "-42", "99999999999", "not a number" })
+		public String value;
+	}
+	
+	@Benchmark
+	public boolean verifyPositiveInteger(Input input) {
+		return Utils.verifyPositiveInteger(input.value);
+	}
+	
+	@Benchmark
+	public String processColours() {
+		return Utils.processColours(MESSAGE, HIGHLIGHT);
+	}
+}
@@ -1,8 +1,13 @@
 package dev.array21.dutchycore;
 
+import java.io.File;
+
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
 
 import dev.array21.dutchycore.commands.CommandRegister;
+import dev.array21.dutchycore.config.CoreConfiguration;
 import dev.array21.dutchycore.module.ModuleLoader;
 
 public class DutchyCore extends JavaPlugin {
@@ -11,12 +16,31 @@ public class DutchyCore extends JavaPlugin {
 	
 	private static ModuleLoader moduleLoader;
 	private static CommandRegister commandRegister;
+	private static CoreConfiguration coreConfiguration;
+	
+	public DutchyCore() {
+		super();
+	}
+	
+	/**
+	 * Create DutchyCore outside of a running server, e.g. in benchmarks. Bukkit refuses this constructor when DutchyCore is loaded as a plugin
+	 * @param loader The JavaPluginLoader
+	 * @param description The plugin description
+	 * @param dataFolder The data folder
+	 * @param file The plugin jar
+	 */
+	protected DutchyCore(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+		super(loader, description, dataFolder, file);
+	}
 	
 	@Override
 	public void onEnable() {
 		INSTANCE = this;
 		
 		logInfo(String.format("Welcome to DutchyCore version %s!", this.getDescription().getVersion()));
+		
+		coreConfiguration = new CoreConfiguration(this);
+		coreConfiguration.read();
 
 		commandRegister = new CommandRegister(this);
 		commandRegister.registerDefault();
@@ -29,6 +53,13 @@ public class DutchyCore extends JavaPlugin {
 		logInfo("Startup complete!");
 	}
 	
+	@Override
+	public void onDisable() {
+		if(moduleLoader != null) {
+			moduleLoader.disableAllModules();
+		}
+	}
+	
 	public static void logInfo(String log) {
 		INSTANCE.getLogger().info(log.toString());
 	}
@@ -44,4 +75,8 @@ public class DutchyCore extends JavaPlugin {
 	public static CommandRegister getCommandRegister() {
 		return DutchyCore.commandRegister;
 	}
+	
+	public static CoreConfiguration getCoreConfiguration() {
+		return DutchyCore.coreConfiguration;
+	}
 }
@@ -0,0 +1,22 @@
+package dev.array21.dutchycore.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a ModuleEvent class as distributed. When event forwarding is enabled, thrown events of this class are also delivered to the modules on the other servers<br>
+ * <br>
+ * The event is serialized to JSON with Gson, so all fields which are not transient must be serializable. The class must exist on the receiving servers as well,
+ * it is looked up by name. Events received from another server are not forwarded again, {@link dev.array21.dutchycore.module.events.ModuleEvent#getOriginNode()} tells where they came from.<br>
+ * <br>
+ * Pooled ModuleEvents can't be distributed.
+ *
+ * @since 0.1.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface DistributedEvent {}
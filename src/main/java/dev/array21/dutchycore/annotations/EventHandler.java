@@ -6,4 +6,25 @@ import java.lang.annotation.RetentionPolicy;
 
 @Documented
 @Retention(RetentionPolicy.RUNTIME)
-public @interface EventHandler {}
+public @interface EventHandler {
+	
+	/**
+	 * Whether this handler may run off the main thread. Asynchronous handlers are invoked on a worker thread,
+	 * they must not use the Bukkit API other than through {@link dev.array21.dutchycore.module.PluginModule#runOnMainThread(Runnable)}
+	 * @return Returns true if the handler runs asynchronously
+	 */
+	public boolean async() default false;
+	
+	/**
+	 * The priority of this handler. Handlers with a lower priority receive an event first.
+	 * Asynchronous handlers are invoked after all synchronous handlers, and not necessarily in order of priority
+	 * @return Returns the priority
+	 */
+	public EventPriority priority() default EventPriority.NORMAL;
+	
+	/**
+	 * Whether this handler should be skipped for {@link dev.array21.dutchycore.module.events.CancellableModuleEvent}s which are already cancelled
+	 * @return Returns true if cancelled events are ignored
+	 */
+	public boolean ignoreCancelled() default false;
+}
@@ -0,0 +1,18 @@
+package dev.array21.dutchycore.annotations;
+
+/**
+ * The order in which EventHandlers receive a ModuleEvent. Handlers with a lower priority are invoked first,
+ * so handlers with a higher priority have the final say, e.g. over whether an event is cancelled
+ */
+public enum EventPriority {
+	LOWEST,
+	LOW,
+	NORMAL,
+	HIGH,
+	HIGHEST,
+	
+	/**
+	 * Invoked last. Handlers with this priority should only observe the outcome of an event, not change it
+	 */
+	MONITOR;
+}
@@ -4,6 +4,8 @@ import java.lang.annotation.Documented;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 
+import dev.array21.dutchycore.module.events.ModuleEvent;
+
 @Documented
 @Retention(RetentionPolicy.RUNTIME)
 public @interface RegisterModule {
@@ -11,4 +13,39 @@ public @interface RegisterModule {
 	String version();
 	String author();
 	String infoUrl() default "https://github.com/DutchyPlugins/";
-}
\ No newline at end of file
+	
+	/**
+	 * Names of modules which must be enabled before this module. If one of them is missing, this module is not loaded
+	 */
+	String[] depends() default {};
+	
+	/**
+	 * Names of modules which should be enabled before this module, if they are installed
+	 */
+	String[] softDepends() default {};
+	
+	/**
+	 * Set to true if {@link dev.array21.dutchycore.module.PluginModule#enable(dev.array21.dutchycore.DutchyCore) enable} is safe to call off the main thread.
+	 * Such modules are enabled concurrently with other thread-safe modules that don't depend on each other, the other modules of the same wave are enabled on the main thread afterwards.<br>
+	 * Registering commands, permissions or Bukkit listeners is not thread-safe, a thread-safe module must do that in {@link dev.array21.dutchycore.module.PluginModule#postEnable() postEnable} instead
+	 */
+	boolean threadSafeEnable() default false;
+	
+	/**
+	 * Set to true to only construct and enable the module when it is first used.
+	 * Until then only the {@link #commands()} and {@link #events()} are registered, using lightweight stubs.<br>
+	 * <br>
+	 * A lazy module is still enabled on startup if a module that is not lazy depends on it
+	 */
+	boolean lazy() default false;
+	
+	/**
+	 * Names of the commands a {@link #lazy()} module registers. Running one of them enables the module
+	 */
+	String[] commands() default {};
+	
+	/**
+	 * The ModuleEvents a {@link #lazy()} module listens for. Throwing one of them enables the module before the event is delivered
+	 */
+	Class<? extends ModuleEvent>[] events() default {};
+}
@@ -3,12 +3,17 @@ package dev.array21.dutchycore.commands;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandMap;
 import org.bukkit.command.PluginCommand;
+import org.bukkit.command.SimpleCommandMap;
 import org.bukkit.permissions.Permission;
 import org.bukkit.permissions.PermissionDefault;
 import org.bukkit.plugin.Plugin;
@@ -26,6 +31,7 @@ import dev.array21.dutchycore.module.commands.ModuleTabCompleter;
 public class CommandRegister {
 	
 	private DutchyCore plugin;
+	private HashMap<String, PluginCommand> registeredCommands = new HashMap<>();
 	
 	public CommandRegister(DutchyCore plugin) {
 		this.plugin = plugin;
@@ -41,6 +47,11 @@ public class CommandRegister {
 		
 		//Register permissions
 		registerPermissionNode("dutchycore.modules", PermissionDefault.TRUE, "Allows usage of /modules", null);
+		registerPermissionNode("dutchycore.modules.timings", PermissionDefault.OP, "Allows usage of /modules timings", null);
+		registerPermissionNode("dutchycore.modules.reload", PermissionDefault.OP, "Allows usage of /modules reload", null);
+		registerPermissionNode("dutchycore.modules.listeners", PermissionDefault.OP, "Allows usage of /modules listeners", null);
+		registerPermissionNode("dutchycore.modules.handlers", PermissionDefault.OP, "Allows usage of /modules handlers", null);
+		registerPermissionNode("dutchycore.modules.files", PermissionDefault.OP, "Allows usage of /modules files", null);
 	}
 	
 	/**
@@ -52,6 +63,13 @@ public class CommandRegister {
 	 */
 	public void registerCommand(DutchyCore plugin, String commandName, ModuleCommand moduleCommand, String namespace) {
 		
+		//If the command was registered before (e.g. as a stub for a lazy module), only replace its ModuleCommand
+		PluginCommand registered = this.registeredCommands.get(getCommandKey(commandName, namespace));
+		if(registered != null) {
+			registered.setExecutor(new ModuleCommandExecutor(moduleCommand));
+			return;
+		}
+		
 		//Get the commandMap Field in the Server class
 		Field commandMapField = null;
 		try {
@@ -99,11 +117,101 @@ public class CommandRegister {
 		
 		//Register our command
 		commandMap.register(namespace, pluginCmd);
+		this.registeredCommands.put(getCommandKey(commandName, namespace), pluginCmd);
 		
 		//Disable access to the commandMapField again
 		commandMapField.setAccessible(false);
 	}
 	
+	/**
+	 * Get the ModuleCommand currently executing a command
+	 * @param commandName The name of the command
+	 * @param namespace The namespace the command was registered for
+	 * @return Returns the ModuleCommand, or null if the command was not registered through {@link #registerCommand(DutchyCore, String, ModuleCommand, String)}
+	 */
+	@Nullable
+	public ModuleCommand getModuleCommand(String commandName, String namespace) {
+		PluginCommand registered = this.registeredCommands.get(getCommandKey(commandName, namespace));
+		if(registered == null || !(registered.getExecutor() instanceof ModuleCommandExecutor)) {
+			return null;
+		}
+		
+		return ((ModuleCommandExecutor) registered.getExecutor()).getModuleCommand();
+	}
+	
+	/**
+	 * Unregister all commands registered for a namespace
+	 * @param namespace The namespace the commands were registered for
+	 */
+	public void unregisterCommands(String namespace) {
+		String prefix = (namespace + ":").toLowerCase(Locale.ROOT);
+		
+		List<PluginCommand> commands = new ArrayList<>();
+		this.registeredCommands.entrySet().removeIf(entry -> {
+			if(!entry.getKey().startsWith(prefix)) {
+				return false;
+			}
+			
+			commands.add(entry.getValue());
+			return true;
+		});
+		
+		if(commands.isEmpty()) {
+			return;
+		}
+		
+		CommandMap commandMap = getCommandMap();
+		if(commandMap == null) {
+			return;
+		}
+		
+		for(PluginCommand pluginCmd : commands) {
+			pluginCmd.unregister(commandMap);
+			
+			//unregister() only marks the command, remove both the plain and the namespaced label from the map
+			if(commandMap instanceof SimpleCommandMap) {
+				((SimpleCommandMap) commandMap).getKnownCommands().values().removeIf(command -> command == pluginCmd);
+			}
+		}
+	}
+	
+	/**
+	 * Send the current commands to all players, after commands were registered or unregistered while the server is running
+	 */
+	public void syncCommands() {
+		try {
+			Method syncCommands = Bukkit.getServer().getClass().getMethod("syncCommands");
+			syncCommands.invoke(Bukkit.getServer());
+		} catch(NoSuchMethodException e) {
+			//Not available on this server version, clients get the new commands when they rejoin
+		} catch(IllegalAccessException | InvocationTargetException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Get the CommandMap of the server
+	 * @return Returns the CommandMap, or null if it could not be accessed
+	 */
+	@Nullable
+	private CommandMap getCommandMap() {
+		try {
+			Field commandMapField = Bukkit.getServer().getClass().getDeclaredField("commandMap");
+			commandMapField.setAccessible(true);
+			CommandMap commandMap = (CommandMap) commandMapField.get(Bukkit.getServer());
+			commandMapField.setAccessible(false);
+			return commandMap;
+		} catch(NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException e) {
+			e.printStackTrace();
+		}
+		
+		return null;
+	}
+	
+	private static String getCommandKey(String commandName, String namespace) {
+		return (namespace + ":" + commandName).toLowerCase(Locale.ROOT);
+	}
+	
 	/**
 	 * Register a ModuleTabCompleter for a command<br>
 	 * <strong>The command has to be registered before registering a ModuleTabCompleter!</strong>
@@ -9,6 +9,7 @@ import dev.array21.dutchycore.DutchyCore;
 import dev.array21.dutchycore.Triple;
 import dev.array21.dutchycore.module.Module;
 import dev.array21.dutchycore.module.commands.ModuleCommand;
+import dev.array21.dutchycore.module.events.EventMetrics;
 import dev.array21.dutchycore.utils.Utils;
 import net.md_5.bungee.api.chat.ClickEvent;
 import net.md_5.bungee.api.chat.ClickEvent.Action;
@@ -24,7 +25,27 @@ public class ModulesCommandExecutor implements ModuleCommand {
 			return true;
 		}
 		
-		List<Module> modules = DutchyCore.getModuleLoader().getAllModules();
+		if(args.length > 0 && args[0].equalsIgnoreCase("timings")) {
+			return sendTimings(sender);
+		}
+		
+		if(args.length > 0 && args[0].equalsIgnoreCase("reload")) {
+			return reloadModule(sender, args);
+		}
+		
+		if(args.length > 0 && args[0].equalsIgnoreCase("listeners")) {
+			return sendListeners(sender);
+		}
+		
+		if(args.length > 0 && args[0].equalsIgnoreCase("handlers")) {
+			return sendHandlerMetrics(sender);
+		}
+		
+		if(args.length > 0 && args[0].equalsIgnoreCase("files")) {
+			return sendFileStatistics(sender);
+		}
+		
+		List<Module> modules = DutchyCore.getModuleLoader().getRegisteredModules();
 		
 		String message = ChatColor.GOLD + "Module %s:"
 				+ "\nVersion %s"
@@ -43,4 +64,112 @@ public class ModulesCommandExecutor implements ModuleCommand {
 		
 		return true;
 	}
+	
+	/**
+	 * Send the module loading timings
+	 * @param sender The CommandSender to send the timings to
+	 * @return Returns true
+	 */
+	private boolean sendTimings(CommandSender sender) {
+		if(!sender.hasPermission("dutchycore.modules.timings")) {
+			sender.sendMessage(ChatColor.RED + "You do not have permission to use this command!");
+			return true;
+		}
+		
+		sender.sendMessage(ChatColor.GOLD + "Module loading timings:");
+		for(String line : DutchyCore.getModuleLoader().getTimings().formatTable()) {
+			sender.sendMessage(ChatColor.GREEN + line);
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Send the number of event listeners held per module
+	 * @param sender The CommandSender to send the listeners to
+	 * @return Returns true
+	 */
+	private boolean sendListeners(CommandSender sender) {
+		if(!sender.hasPermission("dutchycore.modules.listeners")) {
+			sender.sendMessage(ChatColor.RED + "You do not have permission to use this command!");
+			return true;
+		}
+		
+		sender.sendMessage(ChatColor.GOLD + "Event listeners per module:");
+		for(String line : DutchyCore.getModuleLoader().formatListenerTable()) {
+			sender.sendMessage(ChatColor.GREEN + line);
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Send the metrics of the event handlers which took the most time
+	 * @param sender The CommandSender to send the metrics to
+	 * @return Returns true
+	 */
+	private boolean sendHandlerMetrics(CommandSender sender) {
+		if(!sender.hasPermission("dutchycore.modules.handlers")) {
+			sender.sendMessage(ChatColor.RED + "You do not have permission to use this command!");
+			return true;
+		}
+		
+		EventMetrics eventMetrics = DutchyCore.getModuleLoader().getEventMetrics();
+		if(eventMetrics == null) {
+			sender.sendMessage(ChatColor.RED + "Handler metrics are disabled. Set " + ChatColor.GOLD + "handlerMetrics" + ChatColor.RED + " to true in the config to enable them.");
+			return true;
+		}
+		
+		sender.sendMessage(ChatColor.GOLD + "Slowest event handlers:");
+		for(String line : eventMetrics.formatTable(10)) {
+			sender.sendMessage(ChatColor.GREEN + line);
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Send how often the config and storage files of the modules were read
+	 * @param sender The CommandSender to send the statistics to
+	 * @return Returns true
+	 */
+	private boolean sendFileStatistics(CommandSender sender) {
+		if(!sender.hasPermission("dutchycore.modules.files")) {
+			sender.sendMessage(ChatColor.RED + "You do not have permission to use this command!");
+			return true;
+		}
+		
+		sender.sendMessage(ChatColor.GOLD + "Module file reads:");
+		for(String line : DutchyCore.getModuleLoader().formatFileTable()) {
+			sender.sendMessage(ChatColor.GREEN + line);
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Reload a module, and the modules depending on it
+	 * @param sender The CommandSender who wants to reload a module
+	 * @param args The command arguments, the second argument is the name of the module
+	 * @return Returns true
+	 */
+	private boolean reloadModule(CommandSender sender, String[] args) {
+		if(!sender.hasPermission("dutchycore.modules.reload")) {
+			sender.sendMessage(ChatColor.RED + "You do not have permission to use this command!");
+			return true;
+		}
+		
+		if(args.length < 2) {
+			sender.sendMessage(ChatColor.RED + "Usage: /modules reload <module>");
+			return true;
+		}
+		
+		if(!DutchyCore.getModuleLoader().reloadModule(args[1])) {
+			sender.sendMessage(ChatColor.RED + "Unknown module " + ChatColor.GOLD + args[1] + ChatColor.RED + "!");
+			return true;
+		}
+		
+		sender.sendMessage(ChatColor.GOLD + "Reloaded module " + ChatColor.GREEN + args[1] + ChatColor.GOLD + "!");
+		return true;
+	}
 }
@@ -1,13 +1,38 @@
 package dev.array21.dutchycore.commands.tabcompleters;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.bukkit.command.CommandSender;
 
+import dev.array21.dutchycore.DutchyCore;
+import dev.array21.dutchycore.module.Module;
 import dev.array21.dutchycore.module.commands.ModuleTabCompleter;
 
 public class ModulesCommandTabCompleter implements ModuleTabCompleter {
 
 	@Override
 	public String[] complete(CommandSender sender, String[] args) {
-		return null; //Dont want any tab completion
+		if(args.length == 1) {
+			List<String> subcommands = new ArrayList<>();
+			if(sender.hasPermission("dutchycore.modules.timings")) subcommands.add("timings");
+			if(sender.hasPermission("dutchycore.modules.reload")) subcommands.add("reload");
+			if(sender.hasPermission("dutchycore.modules.listeners")) subcommands.add("listeners");
+			if(sender.hasPermission("dutchycore.modules.handlers")) subcommands.add("handlers");
+			if(sender.hasPermission("dutchycore.modules.files")) subcommands.add("files");
+			
+			return subcommands.isEmpty() ? null : subcommands.toArray(new String[0]);
+		}
+		
+		if(args.length == 2 && args[0].equalsIgnoreCase("reload") && sender.hasPermission("dutchycore.modules.reload")) {
+			List<String> moduleNames = new ArrayList<>();
+			for(Module module : DutchyCore.getModuleLoader().getRegisteredModules()) {
+				moduleNames.add(module.getName());
+			}
+			
+			return moduleNames.toArray(new String[0]);
+		}
+		
+		return null;
 	}
 }
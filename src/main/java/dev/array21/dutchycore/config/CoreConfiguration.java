@@ -24,7 +24,8 @@ public class CoreConfiguration {
 		File configFile = new File(plugin.getDataFolder(), "config.yml");
 		
 		if(!configFile.exists()) {
-			FileUtils.saveResource("config.yml", configFile.getAbsolutePath());
+			plugin.getDataFolder().mkdirs();
+			FileUtils.saveResource("config.yml", plugin.getDataFolder().getAbsolutePath());
 		}
 		
 		FileConfiguration config = new Utf8YamlConfiguration();
@@ -3,32 +3,25 @@ package dev.array21.dutchycore.config;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
 
 import org.apache.commons.lang.Validate;
 import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.YamlConfiguration;
 
 import com.google.common.base.Charsets;
-import com.google.common.io.Files;
+
+import dev.array21.dutchycore.utils.FileUtils;
 
 public class Utf8YamlConfiguration extends YamlConfiguration {
 
 	@Override
     public void save(File file) throws IOException {
         Validate.notNull(file, "File cannot be null");
-        Files.createParentDirs(file);
-        String data = this.saveToString();
-        Writer writer = new OutputStreamWriter(new FileOutputStream(file), Charsets.UTF_8);
-        try {
-            writer.write(data);
-        } finally {
-            writer.close();
-        }
+        
+        //Written to a temporary file first, so the file is never left half written
+        FileUtils.writeAtomically(file, this.saveToString());
     }
 
     @Override
@@ -1,6 +1,8 @@
 package dev.array21.dutchycore.module;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.List;
 
 import dev.array21.dutchycore.annotations.Nullable;
 
@@ -9,14 +11,24 @@ public class Module {
 	private PluginModule module;
 	private String name, mainClass, version, author, infoUrl;
 	private File moduleFile;
+	private List<String> dependencies, softDependencies;
+	private boolean threadSafeEnable, lazy;
+	private List<String> lazyCommands = Collections.emptyList(), lazyEvents = Collections.emptyList();
 	
 	public Module(String name, String mainClass, String version, String author, String infoUrl, File moduleFile) {
+		this(name, mainClass, version, author, infoUrl, moduleFile, Collections.emptyList(), Collections.emptyList(), false);
+	}
+	
+	public Module(String name, String mainClass, String version, String author, String infoUrl, File moduleFile, List<String> dependencies, List<String> softDependencies, boolean threadSafeEnable) {
 		this.name = name;
 		this.mainClass = mainClass;
 		this.version = version;
 		this.author = author;
 		this.infoUrl = infoUrl;
 		this.moduleFile = moduleFile;
+		this.dependencies = Collections.unmodifiableList(dependencies);
+		this.softDependencies = Collections.unmodifiableList(softDependencies);
+		this.threadSafeEnable = threadSafeEnable;
 	}
 	
 	/**
@@ -29,7 +41,7 @@ public class Module {
 	
 	/**
 	 * Get the module instance
-	 * @return Returns the module instance, or null if it is not set (this happens only in early loading)
+	 * @return Returns the module instance, or null if it is not set (this happens in early loading, and for lazy modules which haven't been used yet)
 	 */
 	@Nullable
 	public PluginModule getModule() {
@@ -83,4 +95,63 @@ public class Module {
 	public String getInfoUrl() {
 		return this.infoUrl;
 	}
+	
+	/**
+	 * Get the names of the modules this module depends on
+	 * @return Returns an unmodifiable List of module names
+	 */
+	public List<String> getDependencies() {
+		return this.dependencies;
+	}
+	
+	/**
+	 * Get the names of the modules this module soft-depends on
+	 * @return Returns an unmodifiable List of module names
+	 */
+	public List<String> getSoftDependencies() {
+		return this.softDependencies;
+	}
+	
+	/**
+	 * Check if the enable method of this module may be called off the main thread
+	 * @return Returns true if the module can be enabled concurrently
+	 */
+	public boolean isThreadSafeEnable() {
+		return this.threadSafeEnable;
+	}
+	
+	/**
+	 * Check if this module is only enabled when it is first used
+	 * @return Returns true if the module is lazy
+	 */
+	public boolean isLazy() {
+		return this.lazy;
+	}
+	
+	/**
+	 * Get the commands which enable this lazy module
+	 * @return Returns an unmodifiable List of command names
+	 */
+	public List<String> getLazyCommands() {
+		return this.lazyCommands;
+	}
+	
+	/**
+	 * Get the ModuleEvents which enable this lazy module
+	 * @return Returns an unmodifiable List of ModuleEvent class names
+	 */
+	public List<String> getLazyEvents() {
+		return this.lazyEvents;
+	}
+	
+	/**
+	 * Mark this module as lazy
+	 * @param lazyCommands The commands which enable the module
+	 * @param lazyEvents The class names of the ModuleEvents which enable the module
+	 */
+	protected void setLazy(List<String> lazyCommands, List<String> lazyEvents) {
+		this.lazy = true;
+		this.lazyCommands = Collections.unmodifiableList(lazyCommands);
+		this.lazyEvents = Collections.unmodifiableList(lazyEvents);
+	}
 }
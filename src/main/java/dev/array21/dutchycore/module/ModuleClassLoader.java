@@ -0,0 +1,487 @@
+package dev.array21.dutchycore.module;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+import dev.array21.dutchycore.DutchyCore;
+import dev.array21.dutchycore.annotations.Nullable;
+import dev.array21.dutchycore.module.exceptions.InvalidModuleException;
+import dev.array21.dutchycore.utils.Utils;
+
+/**
+ * ClassLoader for module jars<br>
+ * <br>
+ * When the ClassLoader is created, every jar is indexed by the packages (directories) it contains.
+ * Class and resource lookups only probe the jars that contain the requested package, instead of every jar in order.
+ * Lookups which found nothing are remembered, so repeated misses don't touch the jars again.<br>
+ * <br>
+ * Every module gets its own ModuleClassLoader, so a module can be unloaded by closing its ClassLoader.
+ * Classes from other modules are found through a {@link PackageResolver}, which maps a package to the ModuleClassLoader owning it.
+ *
+ * @since 0.1.0
+ */
+public class ModuleClassLoader extends URLClassLoader {
+	
+	static {
+		//Module jars are scanned concurrently, allow classes to be loaded in parallel
+		ClassLoader.registerAsParallelCapable();
+	}
+	
+	private static final IndexedJar[] NO_JARS = new IndexedJar[0];
+	
+	private final List<IndexedJar> jars = new ArrayList<>();
+	private final HashMap<String, IndexedJar[]> packageIndex = new HashMap<>();
+	private final Set<String> missingClasses = ConcurrentHashMap.newKeySet();
+	private final Set<String> missingResources = ConcurrentHashMap.newKeySet();
+	private final PackageResolver packageResolver;
+	private volatile MethodHandles.Lookup lookup;
+	
+	/**
+	 * Resolves which ModuleClassLoader owns a package
+	 */
+	@FunctionalInterface
+	public interface PackageResolver {
+		
+		/**
+		 * Get the ModuleClassLoader owning a package
+		 * @param packagePath The package as a path, e.g. <code>com/example</code>
+		 * @return Returns the owning ModuleClassLoader, or null if no module contains the package
+		 */
+		@Nullable
+		public ModuleClassLoader getOwner(String packagePath);
+	}
+	
+	public ModuleClassLoader(URL[] urls, ClassLoader parent) {
+		this(urls, parent, null);
+	}
+	
+	/**
+	 * Create a ModuleClassLoader
+	 * @param urls The jars to load classes from
+	 * @param parent The parent ClassLoader
+	 * @param packageResolver {@link Nullable} Used to find classes and resources of other modules
+	 */
+	public ModuleClassLoader(URL[] urls, ClassLoader parent, @Nullable PackageResolver packageResolver) {
+		super(urls, parent);
+		this.packageResolver = packageResolver;
+		
+		//Build the package index. It is never modified after this, so lookups don't need to lock
+		HashMap<String, List<IndexedJar>> index = new HashMap<>();
+		for(URL url : urls) {
+			if(url == null) {
+				continue;
+			}
+			
+			IndexedJar jar;
+			try {
+				jar = new IndexedJar(url);
+			} catch(IOException e) {
+				DutchyCore.logWarn(String.format("Failed to index module jar '%s': %s", url, Utils.getStackTrace(e)));
+				continue;
+			}
+			
+			this.jars.add(jar);
+			
+			Enumeration<JarEntry> entries = jar.jarFile.entries();
+			while(entries.hasMoreElements()) {
+				JarEntry entry = entries.nextElement();
+				if(entry.isDirectory()) {
+					continue;
+				}
+				
+				List<IndexedJar> jarsInPackage = index.computeIfAbsent(getPackagePath(entry.getName()), k -> new ArrayList<>(1));
+				if(!jarsInPackage.contains(jar)) {
+					jarsInPackage.add(jar);
+				}
+			}
+		}
+		
+		for(Map.Entry<String, List<IndexedJar>> entry : index.entrySet()) {
+			this.packageIndex.put(entry.getKey(), entry.getValue().toArray(NO_JARS));
+		}
+	}
+	
+	@Override
+	protected Class<?> findClass(String name) throws ClassNotFoundException {
+		Class<?> clazz = findOwnClass(name);
+		if(clazz != null) {
+			return clazz;
+		}
+		
+		//Not in our own jars, check if another module owns the package
+		ModuleClassLoader owner = getPackageOwner(name.replace('.', '/').concat(".class"));
+		if(owner != null) {
+			return owner.loadOwnClass(name);
+		}
+		
+		throw new ClassNotFoundException(name);
+	}
+	
+	@Override
+	public URL findResource(String name) {
+		URL resource = findOwnResource(name);
+		if(resource != null) {
+			return resource;
+		}
+		
+		ModuleClassLoader owner = getPackageOwner(name);
+		return (owner != null) ? owner.findOwnResource(name) : null;
+	}
+	
+	@Override
+	public Enumeration<URL> findResources(String name) throws IOException {
+		List<URL> urls = new ArrayList<>(1);
+		if(!this.missingResources.contains(name)) {
+			for(IndexedJar jar : getJarsForPath(name)) {
+				if(jar.jarFile.getJarEntry(name) != null) {
+					urls.add(jar.getResourceUrl(name));
+				}
+			}
+			
+			if(urls.isEmpty()) {
+				this.missingResources.add(name);
+			}
+		}
+		
+		ModuleClassLoader owner = getPackageOwner(name);
+		if(owner != null) {
+			URL resource = owner.findOwnResource(name);
+			if(resource != null) {
+				urls.add(resource);
+			}
+		}
+		
+		return Collections.enumeration(urls);
+	}
+	
+	@Override
+	public void close() throws IOException {
+		IOException exception = null;
+		for(IndexedJar jar : this.jars) {
+			try {
+				jar.jarFile.close();
+			} catch(IOException e) {
+				exception = e;
+			}
+		}
+		
+		super.close();
+		
+		if(exception != null) {
+			throw exception;
+		}
+	}
+	
+	/**
+	 * Get the packages contained in the jars of this ClassLoader
+	 * @return Returns an unmodifiable Set of package paths, e.g. <code>com/example</code>
+	 */
+	public Set<String> getPackagePaths() {
+		return Collections.unmodifiableSet(this.packageIndex.keySet());
+	}
+	
+	/**
+	 * Get a Lookup with full privilege access to the classes of this ClassLoader<br>
+	 * <br>
+	 * The Lookup is created by a copy of {@link ModuleLookup} defined in this ClassLoader, so it is in the same (unnamed) module as the module's classes
+	 * @return Returns the Lookup
+	 * @throws IllegalStateException If ModuleLookup could not be defined
+	 */
+	public MethodHandles.Lookup getLookup() {
+		MethodHandles.Lookup lookup = this.lookup;
+		if(lookup != null) {
+			return lookup;
+		}
+		
+		synchronized(this) {
+			if(this.lookup == null) {
+				try(InputStream in = ModuleLookup.class.getResourceAsStream(ModuleLookup.class.getSimpleName() + ".class")) {
+					byte[] bytes = in.readAllBytes();
+					Class<?> lookupClass = defineClass(ModuleLookup.class.getName(), bytes, 0, bytes.length);
+					this.lookup = (MethodHandles.Lookup) lookupClass.getMethod("lookup").invoke(null);
+				} catch(IOException | ReflectiveOperationException | LinkageError e) {
+					throw new IllegalStateException("Failed to define ModuleLookup", e);
+				}
+			}
+			
+			return this.lookup;
+		}
+	}
+	
+	/**
+	 * Load the main class of a module and instantiate the module
+	 * @param clazz The class
+	 * @return Returns an instance of PluginModule
+	 */
+	@Nullable
+	public PluginModule loadMainClass(Class<?> clazz) {
+		try {
+			//the main class extends PluginModule, so get the main class as a subclass of PluginModule
+			Class<? extends PluginModule> moduleClazz = null;
+			try {
+				moduleClazz = clazz.asSubclass(PluginModule.class);
+			} catch(ClassCastException e) {
+				throw new InvalidModuleException(String.format("Provided main class %s does not extend PluginModule", clazz.getName()));
+			}
+			
+			//Get the constructor for the plugin class
+			Constructor<?> pluginClazzConstructor = moduleClazz.getConstructor();
+			
+			//Create an instance of the plugin class
+			return (PluginModule) pluginClazzConstructor.newInstance();
+		} catch (IllegalAccessException e) {
+			e.printStackTrace();
+		} catch (InstantiationException e) {
+			e.printStackTrace();
+		} catch (NoSuchMethodException e) {
+			e.printStackTrace();
+		} catch (SecurityException e) {
+			e.printStackTrace();
+		} catch (IllegalArgumentException e) {
+			e.printStackTrace();
+		} catch (InvocationTargetException e) {
+			e.printStackTrace();
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Load the main class of a Module
+	 * @param className The name of the main class
+	 * @return Returns an instance of PluginModule, or null if an exception occured
+	 */
+	@Nullable
+	@Deprecated
+	public PluginModule loadMainClass(String className) {
+		try {
+			//Get the Class for the provided mainClassName
+			Class<?> jarClazz = findClass(className);
+			
+			//the main class extends PluginModule, so get the main class as a subclass of PluginModule
+			Class<? extends PluginModule> moduleClazz = null;
+			try {
+				moduleClazz = jarClazz.asSubclass(PluginModule.class);
+			} catch(ClassCastException e) {
+				throw new InvalidModuleException(String.format("Provided main class %s does not extend PluginModule", className));
+			}
+			
+			//Get the constructor for the plugin class
+			Constructor<?> pluginClazzConstructor = moduleClazz.getConstructor();
+			
+			//Create an instance of the plugin class
+			return (PluginModule) pluginClazzConstructor.newInstance();
+			
+		} catch (IllegalAccessException e) {
+			e.printStackTrace();
+		} catch (InstantiationException e) {
+			e.printStackTrace();
+		} catch (NoSuchMethodException e) {
+			e.printStackTrace();
+		} catch (SecurityException e) {
+			e.printStackTrace();
+		} catch (IllegalArgumentException e) {
+			e.printStackTrace();
+		} catch (InvocationTargetException e) {
+			e.printStackTrace();
+		} catch (ClassNotFoundException e) {
+			e.printStackTrace();
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Load a class from the jars of this ClassLoader only. Used when another module needs one of our classes
+	 * @param name The binary name of the class
+	 * @return Returns the Class
+	 * @throws ClassNotFoundException If the class is not in the jars of this ClassLoader
+	 */
+	private Class<?> loadOwnClass(String name) throws ClassNotFoundException {
+		synchronized(getClassLoadingLock(name)) {
+			Class<?> clazz = findLoadedClass(name);
+			if(clazz == null) {
+				clazz = findOwnClass(name);
+			}
+			
+			if(clazz == null) {
+				throw new ClassNotFoundException(name);
+			}
+			
+			return clazz;
+		}
+	}
+	
+	/**
+	 * Define a class from the jars of this ClassLoader
+	 * @param name The binary name of the class
+	 * @return Returns the Class, or null if it is not in the jars of this ClassLoader
+	 * @throws ClassNotFoundException If the class file could not be read
+	 */
+	@Nullable
+	private Class<?> findOwnClass(String name) throws ClassNotFoundException {
+		if(this.missingClasses.contains(name)) {
+			return null;
+		}
+		
+		String path = name.replace('.', '/').concat(".class");
+		for(IndexedJar jar : getJarsForPath(path)) {
+			JarEntry entry = jar.jarFile.getJarEntry(path);
+			if(entry == null) {
+				continue;
+			}
+			
+			try {
+				return defineClass(name, jar, entry);
+			} catch(IOException e) {
+				throw new ClassNotFoundException(name, e);
+			}
+		}
+		
+		this.missingClasses.add(name);
+		return null;
+	}
+	
+	/**
+	 * Find a resource in the jars of this ClassLoader
+	 * @param name The name of the resource
+	 * @return Returns the URL of the resource, or null if it is not in the jars of this ClassLoader
+	 */
+	@Nullable
+	private URL findOwnResource(String name) {
+		if(this.missingResources.contains(name)) {
+			return null;
+		}
+		
+		for(IndexedJar jar : getJarsForPath(name)) {
+			if(jar.jarFile.getJarEntry(name) != null) {
+				return jar.getResourceUrl(name);
+			}
+		}
+		
+		this.missingResources.add(name);
+		return null;
+	}
+	
+	/**
+	 * Get the ModuleClassLoader of another module, which owns the package of a path
+	 * @param path A path within a jar, e.g. <code>com/example/Example.class</code>
+	 * @return Returns the owning ModuleClassLoader, or null if there is none or if it is this ClassLoader
+	 */
+	@Nullable
+	private ModuleClassLoader getPackageOwner(String path) {
+		if(this.packageResolver == null) {
+			return null;
+		}
+		
+		ModuleClassLoader owner = this.packageResolver.getOwner(getPackagePath(path));
+		return (owner != this) ? owner : null;
+	}
+	
+	/**
+	 * Define a class from a jar entry
+	 * @param name The binary name of the class
+	 * @param jar The jar containing the class
+	 * @param entry The entry of the class file
+	 * @return Returns the defined Class
+	 * @throws IOException When the class file could not be read
+	 */
+	private Class<?> defineClass(String name, IndexedJar jar, JarEntry entry) throws IOException {
+		byte[] bytes;
+		try(InputStream in = jar.jarFile.getInputStream(entry)) {
+			bytes = in.readAllBytes();
+		}
+		
+		//Define the package first, so it picks up the attributes from the manifest
+		int lastDot = name.lastIndexOf('.');
+		if(lastDot != -1) {
+			String packageName = name.substring(0, lastDot);
+			if(getDefinedPackage(packageName) == null) {
+				try {
+					Manifest manifest = jar.jarFile.getManifest();
+					if(manifest != null) {
+						definePackage(packageName, manifest, jar.url);
+					} else {
+						definePackage(packageName, null, null, null, null, null, null, null);
+					}
+				} catch(IllegalArgumentException e) {
+					//Another thread defined the package concurrently
+				}
+			}
+		}
+		
+		CodeSource codeSource = new CodeSource(jar.url, entry.getCodeSigners());
+		return defineClass(name, bytes, 0, bytes.length, codeSource);
+	}
+	
+	/**
+	 * Get the jars that contain the package of the provided path
+	 * @param path A path within a jar, e.g. <code>com/example/Example.class</code>
+	 * @return Returns the jars containing the package
+	 */
+	private IndexedJar[] getJarsForPath(String path) {
+		IndexedJar[] jars = this.packageIndex.get(getPackagePath(path));
+		return (jars != null) ? jars : NO_JARS;
+	}
+	
+	/**
+	 * Get the directory part of a path within a jar
+	 * @param path The path, e.g. <code>com/example/Example.class</code>
+	 * @return Returns the directory, e.g. <code>com/example</code>. Returns an empty String for entries in the root of the jar
+	 */
+	private static String getPackagePath(String path) {
+		int lastSlash = path.lastIndexOf('/');
+		return (lastSlash == -1) ? "" : path.substring(0, lastSlash);
+	}
+	
+	/**
+	 * A module jar which is kept open for the lifetime of the ClassLoader
+	 */
+	private static class IndexedJar {
+		
+		private final URL url;
+		private final JarFile jarFile;
+		private final String resourceUrlPrefix;
+		
+		private IndexedJar(URL url) throws IOException {
+			this.url = url;
+			
+			try {
+				this.jarFile = new JarFile(new File(url.toURI()));
+			} catch(IllegalArgumentException | URISyntaxException e) {
+				throw new IOException(String.format("Not a local file: %s", url), e);
+			}
+			
+			this.resourceUrlPrefix = "jar:" + url.toExternalForm() + "!/";
+		}
+		
+		@Nullable
+		private URL getResourceUrl(String name) {
+			try {
+				return new URL(this.resourceUrlPrefix + name);
+			} catch(MalformedURLException e) {
+				return null;
+			}
+		}
+	}
+}
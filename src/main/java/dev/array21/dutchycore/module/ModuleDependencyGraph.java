@@ -0,0 +1,284 @@
+package dev.array21.dutchycore.module;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import dev.array21.dutchycore.DutchyCore;
+
+/**
+ * Orders modules by their dependencies<br>
+ * <br>
+ * Modules are grouped in waves. Every module in a wave only depends on modules in earlier waves,
+ * so the modules within one wave can be enabled in any order, or concurrently.
+ *
+ * @since 0.1.0
+ */
+public class ModuleDependencyGraph {
+	
+	private final LinkedHashMap<String, Module> modules = new LinkedHashMap<>();
+	private final Set<String> availableModules;
+	
+	/**
+	 * Create a dependency graph
+	 * @param modules The modules to order. Within a wave, modules keep the order of this List
+	 */
+	public ModuleDependencyGraph(List<Module> modules) {
+		this(modules, Collections.emptySet());
+	}
+	
+	/**
+	 * Create a dependency graph for modules which are loaded while other modules are already running, e.g. on a reload
+	 * @param modules The modules to order. Within a wave, modules keep the order of this List
+	 * @param availableModules Lowercase names of modules which are already loaded. Dependencies on these modules are satisfied
+	 */
+	public ModuleDependencyGraph(List<Module> modules, Set<String> availableModules) {
+		this.availableModules = availableModules;
+		
+		for(Module module : modules) {
+			String key = key(module.getName());
+			if(this.modules.containsKey(key)) {
+				DutchyCore.logWarn(String.format("Module '%s' is installed more than once. Only '%s' will be loaded.", module.getName(), this.modules.get(key).getModuleFile().getAbsolutePath()));
+				continue;
+			}
+			
+			this.modules.put(key, module);
+		}
+	}
+	
+	/**
+	 * Resolve the waves in which modules should be enabled<br>
+	 * <br>
+	 * Modules with a missing dependency, and modules in a dependency cycle, are reported and left out.
+	 * Cycles involving soft dependencies are broken by ignoring the soft dependencies between the modules in the cycle, the soft dependencies of other modules are still respected.
+	 * @return Returns the waves, in the order in which they should be enabled
+	 */
+	public List<List<Module>> resolveWaves() {
+		LinkedHashMap<String, Module> remaining = new LinkedHashMap<>(this.modules);
+		dropMissingDependencies(remaining);
+		
+		List<List<Module>> waves = new ArrayList<>();
+		HashMap<String, Set<String>> ignoredSoftDependencies = new HashMap<>();
+		while(!remaining.isEmpty()) {
+			List<Module> wave = nextWave(remaining, ignoredSoftDependencies);
+			
+			if(!wave.isEmpty()) {
+				for(Module module : wave) {
+					remaining.remove(key(module.getName()));
+				}
+				
+				waves.add(wave);
+				continue;
+			}
+			
+			//No module can be enabled, so there is a cycle. First try to break it by ignoring the soft dependencies within it
+			List<Set<String>> cycles = findCycles(remaining, ignoredSoftDependencies);
+			boolean ignoredAny = false;
+			for(Set<String> cycle : cycles) {
+				for(String moduleKey : cycle) {
+					for(String dependency : remaining.get(moduleKey).getSoftDependencies()) {
+						if(cycle.contains(key(dependency)) && ignoredSoftDependencies.computeIfAbsent(moduleKey, k -> new HashSet<>()).add(key(dependency))) {
+							ignoredAny = true;
+						}
+					}
+				}
+			}
+			
+			if(ignoredAny) {
+				continue;
+			}
+			
+			//Only hard dependencies are left in the cycles, the modules in them can't be loaded. Neither can the modules depending on them
+			for(Set<String> cycle : cycles) {
+				List<Module> cycleModules = new ArrayList<>();
+				for(String moduleKey : cycle) {
+					cycleModules.add(remaining.get(moduleKey));
+				}
+				
+				DutchyCore.logWarn(String.format("Failed to load module(s) %s. Dependency cycle detected: %s", String.join(", ", names(cycleModules)), describeCycle(remaining, cycle)));
+				remaining.keySet().removeAll(cycle);
+			}
+			
+			dropMissingDependencies(remaining);
+		}
+		
+		return waves;
+	}
+	
+	/**
+	 * Drop modules with missing hard dependencies. Repeats until stable, as dropping a module can break its dependents
+	 * @param remaining The modules which have not yet been placed in a wave
+	 */
+	private void dropMissingDependencies(LinkedHashMap<String, Module> remaining) {
+		boolean changed = true;
+		while(changed) {
+			changed = false;
+			
+			for(Module module : new ArrayList<>(remaining.values())) {
+				for(String dependency : module.getDependencies()) {
+					if(!remaining.containsKey(key(dependency)) && !this.availableModules.contains(key(dependency))) {
+						DutchyCore.logWarn(String.format("Failed to load module '%s'. It depends on module '%s', which is not installed or could not be loaded.", module.getName(), dependency));
+						remaining.remove(key(module.getName()));
+						changed = true;
+						break;
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Get all modules whose dependencies are not in the remaining modules
+	 * @param remaining The modules which have not yet been placed in a wave
+	 * @param ignoredSoftDependencies Per module key, the keys of the soft dependencies which should be ignored
+	 * @return Returns the modules for the next wave, in insertion order
+	 */
+	private List<Module> nextWave(LinkedHashMap<String, Module> remaining, Map<String, Set<String>> ignoredSoftDependencies) {
+		List<Module> wave = new ArrayList<>();
+		for(Module module : remaining.values()) {
+			if(getDependencies(remaining, module, ignoredSoftDependencies).isEmpty()) {
+				wave.add(module);
+			}
+		}
+		
+		return wave;
+	}
+	
+	/**
+	 * Get the hard and soft dependencies of a module which have not yet been placed in a wave
+	 * @param remaining The modules which have not yet been placed in a wave
+	 * @param module The Module
+	 * @param ignoredSoftDependencies Per module key, the keys of the soft dependencies which should be ignored
+	 * @return Returns the keys of the dependencies
+	 */
+	private static List<String> getDependencies(LinkedHashMap<String, Module> remaining, Module module, Map<String, Set<String>> ignoredSoftDependencies) {
+		List<String> dependencies = new ArrayList<>();
+		for(String dependency : module.getDependencies()) {
+			if(remaining.containsKey(key(dependency))) {
+				dependencies.add(key(dependency));
+			}
+		}
+		
+		Set<String> ignored = ignoredSoftDependencies.getOrDefault(key(module.getName()), Collections.emptySet());
+		for(String dependency : module.getSoftDependencies()) {
+			if(remaining.containsKey(key(dependency)) && !ignored.contains(key(dependency))) {
+				dependencies.add(key(dependency));
+			}
+		}
+		
+		return dependencies;
+	}
+	
+	/**
+	 * Find the cycles among the remaining modules: the strongly connected components with more than one module, or with a module depending on itself
+	 * @param remaining The modules which have not yet been placed in a wave
+	 * @param ignoredSoftDependencies Per module key, the keys of the soft dependencies which should be ignored
+	 * @return Returns the keys of the modules in each cycle
+	 */
+	private static List<Set<String>> findCycles(LinkedHashMap<String, Module> remaining, Map<String, Set<String>> ignoredSoftDependencies) {
+		HashMap<String, List<String>> edges = new HashMap<>();
+		for(Map.Entry<String, Module> entry : remaining.entrySet()) {
+			edges.put(entry.getKey(), getDependencies(remaining, entry.getValue(), ignoredSoftDependencies));
+		}
+		
+		//Tarjan's algorithm
+		HashMap<String, Integer> index = new HashMap<>();
+		HashMap<String, Integer> lowLink = new HashMap<>();
+		ArrayDeque<String> stack = new ArrayDeque<>();
+		HashSet<String> onStack = new HashSet<>();
+		List<Set<String>> cycles = new ArrayList<>();
+		for(String moduleKey : remaining.keySet()) {
+			if(!index.containsKey(moduleKey)) {
+				connect(moduleKey, edges, index, lowLink, stack, onStack, cycles);
+			}
+		}
+		
+		return cycles;
+	}
+	
+	private static void connect(String moduleKey, HashMap<String, List<String>> edges, HashMap<String, Integer> index, HashMap<String, Integer> lowLink, ArrayDeque<String> stack, HashSet<String> onStack, List<Set<String>> cycles) {
+		index.put(moduleKey, index.size());
+		lowLink.put(moduleKey, index.get(moduleKey));
+		stack.push(moduleKey);
+		onStack.add(moduleKey);
+		
+		for(String dependency : edges.get(moduleKey)) {
+			if(!index.containsKey(dependency)) {
+				connect(dependency, edges, index, lowLink, stack, onStack, cycles);
+				lowLink.put(moduleKey, Math.min(lowLink.get(moduleKey), lowLink.get(dependency)));
+			} else if(onStack.contains(dependency)) {
+				lowLink.put(moduleKey, Math.min(lowLink.get(moduleKey), index.get(dependency)));
+			}
+		}
+		
+		if(!lowLink.get(moduleKey).equals(index.get(moduleKey))) {
+			return;
+		}
+		
+		LinkedHashSet<String> component = new LinkedHashSet<>();
+		String member;
+		do {
+			member = stack.pop();
+			onStack.remove(member);
+			component.add(member);
+		} while(!member.equals(moduleKey));
+		
+		if(component.size() > 1 || edges.get(moduleKey).contains(moduleKey)) {
+			cycles.add(component);
+		}
+	}
+	
+	/**
+	 * Describe a cycle of hard dependencies
+	 * @param remaining The modules which could not be placed in a wave
+	 * @param component The keys of the modules in the cycle, which only depend on each other through hard dependencies
+	 * @return Returns a description of the cycle, e.g. <code>A -&gt; B -&gt; A</code>
+	 */
+	private String describeCycle(LinkedHashMap<String, Module> remaining, Set<String> component) {
+		//Every module in the component has at least one hard dependency that is also in it, so following them must end in a cycle
+		LinkedHashSet<String> path = new LinkedHashSet<>();
+		String current = component.iterator().next();
+		while(path.add(current)) {
+			for(String dependency : remaining.get(current).getDependencies()) {
+				if(component.contains(key(dependency))) {
+					current = key(dependency);
+					break;
+				}
+			}
+		}
+		
+		List<String> cycle = new ArrayList<>();
+		boolean inCycle = false;
+		for(String key : path) {
+			if(key.equals(current)) inCycle = true;
+			if(inCycle) cycle.add(remaining.get(key).getName());
+		}
+		
+		cycle.add(remaining.get(current).getName());
+		return String.join(" -> ", cycle);
+	}
+	
+	private static List<String> names(Iterable<Module> modules) {
+		List<String> names = new ArrayList<>();
+		for(Module module : modules) {
+			names.add(module.getName());
+		}
+		
+		return names;
+	}
+	
+	/**
+	 * Module names are case insensitive
+	 */
+	private static String key(String moduleName) {
+		return moduleName.toLowerCase(Locale.ROOT);
+	}
+}
@@ -3,8 +3,8 @@ package dev.array21.dutchycore.module;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
@@ -12,31 +12,112 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.zip.ZipEntry;
 
+import org.bukkit.event.HandlerList;
+import org.bukkit.plugin.RegisteredListener;
 import org.yaml.snakeyaml.Yaml;
 
 import dev.array21.dutchycore.DutchyCore;
 import dev.array21.dutchycore.Pair;
 import dev.array21.dutchycore.annotations.Nullable;
 import dev.array21.dutchycore.annotations.RegisterModule;
-import dev.array21.dutchycore.module.events.ModuleEventListener;
+import dev.array21.dutchycore.module.commands.LazyModuleCommand;
+import dev.array21.dutchycore.module.events.BukkitEventHub;
+import dev.array21.dutchycore.module.events.EventForwarder;
+import dev.array21.dutchycore.module.events.EventMetrics;
+import dev.array21.dutchycore.module.events.ModuleEventBus;
+import dev.array21.dutchycore.module.events.ModuleEventPool;
+import dev.array21.dutchycore.module.events.transport.EventTransport;
+import dev.array21.dutchycore.module.events.transport.UnixSocketTransport;
 import dev.array21.dutchycore.module.exceptions.InvalidModuleException;
+import dev.array21.dutchycore.module.file.ModuleFileHandler;
+import dev.array21.dutchycore.module.file.ModuleFileStatistics;
+import dev.array21.dutchycore.module.file.StorageBackends;
+import dev.array21.dutchycore.module.file.StorageWriter;
+import dev.array21.dutchycore.module.scanner.ClassFileScanner;
+import dev.array21.dutchycore.module.scanner.ModuleIndex;
 import dev.array21.dutchycore.utils.Utils;
 
 public class ModuleLoader {
 	
-	protected HashMap<PluginModule, Module> loadedModules = new HashMap<>();	
-	protected List<ModuleEventListener> moduleEventListeners = new ArrayList<>(); 
+	/**
+	 * Default value of {@link RegisterModule#infoUrl()}. The class file does not contain default values, so the scanner has to fill it in
+	 */
+	private static final String DEFAULT_INFO_URL = (String) getAnnotationDefault("infoUrl");
+	
+	protected HashMap<PluginModule, Module> loadedModules = new LinkedHashMap<>();
+	protected ModuleEventBus eventBus;
+	protected BukkitEventHub bukkitEventHub;
+	
+	/**
+	 * Null if handler metrics are disabled
+	 */
+	protected EventMetrics eventMetrics;
+	
+	/**
+	 * Null if event forwarding is disabled
+	 */
+	private EventForwarder eventForwarder;
+	
+	/**
+	 * Writes module storages in the background and runs storage maintenance. Storages only save through it if writeBehindStorage is enabled
+	 */
+	private StorageWriter storageWriter;
+	private boolean writeBehindStorage = false;
+	private final StorageBackends storageBackends = new StorageBackends();
 	
+	private DutchyCore plugin;
+	private ModuleWatcher moduleWatcher;
+	private final ModuleTimings timings = new ModuleTimings();
+	
+	/**
+	 * Finds classes in all modules, returned by {@link #getClassLoader()}. It has no jars of its own
+	 */
 	private ModuleClassLoader moduleClassLoader;
 	
+	/**
+	 * The ClassLoader of every module jar, by absolute path of the jar
+	 */
+	private final ConcurrentHashMap<String, ModuleClassLoader> moduleClassLoaders = new ConcurrentHashMap<>();
+	
+	/**
+	 * The ClassLoader which owns a package, by package path. Used by the ModuleClassLoaders to find classes of other modules
+	 */
+	private final ConcurrentHashMap<String, ModuleClassLoader> packageOwners = new ConcurrentHashMap<>();
+	
+	/**
+	 * Lazy modules which haven't been enabled yet, by lowercase name. Guarded by this
+	 */
+	private LinkedHashMap<String, Pair<Module, Class<?>>> lazyModules = new LinkedHashMap<>();
+	
+	/**
+	 * ModuleEvent class names which enable a lazy module, mapped to the lowercase names of those modules. Guarded by this
+	 */
+	private HashMap<String, List<String>> lazyEventTriggers = new HashMap<>();
+	private volatile boolean hasLazyEventTriggers = false;
+	private ModuleIndex moduleIndex;
+	private final AtomicInteger indexHits = new AtomicInteger();
+	
 	/**
 	 * Load all modules<br>
 	 * <br>
@@ -44,6 +125,28 @@ public class ModuleLoader {
 	 * @param plugin DutchyCore instance
 	 */
 	public void loadAllModules(DutchyCore plugin) {
+		this.plugin = plugin;
+		long loadStart = System.nanoTime();
+		
+		//Asynchronous event handlers get one thread per core, unless configured otherwise
+		Object asyncEventThreads = DutchyCore.getCoreConfiguration().getOption("asyncEventThreads");
+		
+		//Handler metrics are off unless enabled in the config, they cost a little on every event
+		if(Boolean.TRUE.equals(DutchyCore.getCoreConfiguration().getOption("handlerMetrics"))) {
+			Object slowHandlerMillis = DutchyCore.getCoreConfiguration().getOption("slowHandlerMillis");
+			this.eventMetrics = new EventMetrics((slowHandlerMillis instanceof Number) ? ((Number) slowHandlerMillis).doubleValue() : 10d);
+		}
+		
+		//Pooled events are not reused while checking for handlers using them after they were released
+		ModuleEventPool.setRecycling(!Boolean.TRUE.equals(DutchyCore.getCoreConfiguration().getOption("checkPooledEvents")));
+		
+		this.eventBus = new ModuleEventBus(plugin, (asyncEventThreads instanceof Number) ? ((Number) asyncEventThreads).intValue() : Runtime.getRuntime().availableProcessors(), this.eventMetrics);
+		this.bukkitEventHub = new BukkitEventHub(plugin, this.eventMetrics);
+		
+		//Module storages are saved in the background, if enabled in the config
+		Object storageSaveDelayMillis = DutchyCore.getCoreConfiguration().getOption("storageSaveDelayMillis");
+		this.storageWriter = new StorageWriter((storageSaveDelayMillis instanceof Number) ? ((Number) storageSaveDelayMillis).longValue() : 1000L);
+		this.writeBehindStorage = Boolean.TRUE.equals(DutchyCore.getCoreConfiguration().getOption("writeBehindStorage"));
 		
 		//Get the module folder, if it doesn't exist, create it
 		File moduleFolder = new File(plugin.getDataFolder() + File.separator + "modules");
@@ -55,75 +158,901 @@ public class ModuleLoader {
 		DutchyCore.logInfo("Discovering modules...");
 		
 		//Walk the filesystem and find all modules ending in .jar
+		long phaseStart = System.nanoTime();
 		List<String> modulePaths = discoverModules(moduleFolder);
+		this.timings.recordGlobal("Discovery", System.nanoTime() - phaseStart);
 		DutchyCore.logInfo(String.format("Discovered %d module(s)!", modulePaths.size()));
 	
-		//Iterate over all module paths
-		URL[] jarUrls = new URL[modulePaths.size()];
-		for(int i = 0; i < modulePaths.size(); i++) {
-			File moduleJarFile = new File(modulePaths.get(i));
+		//Every module jar gets its own ModuleClassLoader, so a module can be unloaded without touching the others
+		phaseStart = System.nanoTime();
+		this.moduleClassLoader = new ModuleClassLoader(new URL[0], this.getClass().getClassLoader(), this::getPackageOwner);
+		for(String modulePath : modulePaths) {
+			createModuleClassLoader(new File(modulePath));
+		}
+		
+		this.timings.recordGlobal("Class loader index", System.nanoTime() - phaseStart);
+		
+		//Read the index of jars scanned during previous startups
+		phaseStart = System.nanoTime();
+		this.moduleIndex = new ModuleIndex(new File(plugin.getDataFolder(), "moduleindex.yml"));
+		this.moduleIndex.read();
+		this.timings.recordGlobal("Module index read", System.nanoTime() - phaseStart);
+		
+		//Scan all module jars concurrently. The results are collected in discovery order,
+		//so modules are still constructed and enabled in a deterministic order
+		phaseStart = System.nanoTime();
+		List<Pair<Module, Class<?>>> modulesToLoad = scanModules(modulePaths);
+		this.timings.recordGlobal("Jar scan", System.nanoTime() - phaseStart);
+		
+		//Forget jars which no longer exist and persist the index for the next startup
+		phaseStart = System.nanoTime();
+		this.moduleIndex.retainOnly(modulePaths);
+		this.moduleIndex.save();
+		this.timings.recordGlobal("Module index save", System.nanoTime() - phaseStart);
+		
+		//Construct and enable the modules in dependency order
+		enableModules(modulesToLoad, Collections.emptySet(), true);
+		this.timings.recordGlobal("Total", System.nanoTime() - loadStart);
+		
+		//Report where the time went
+		DutchyCore.logInfo("Module loading timings:");
+		for(String line : this.timings.formatTable()) {
+			DutchyCore.logInfo(line);
+		}
+		
+		this.timings.writeJson(new File(plugin.getDataFolder(), "timings.json"), plugin.getDescription().getVersion());
+		
+		//Reload modules when their jar changes, if enabled in the config
+		if(Boolean.TRUE.equals(DutchyCore.getCoreConfiguration().getOption("watchModules"))) {
+			this.moduleWatcher = new ModuleWatcher(plugin, this, moduleFolder);
+			this.moduleWatcher.start();
+		}
+		
+		//Forward distributed events to the other servers on this machine, if enabled in the config
+		if(Boolean.TRUE.equals(DutchyCore.getCoreConfiguration().getOption("distributedEvents"))) {
+			Object nodeId = DutchyCore.getCoreConfiguration().getOption("nodeId");
+			Object socketFolder = DutchyCore.getCoreConfiguration().getOption("eventSocketFolder");
 			
-			//Add the file as an URL to the array of URL's
-			try {
-				jarUrls[i] = moduleJarFile.toURI().toURL();
-			} catch(MalformedURLException e) {
-				e.printStackTrace();
+			String node = (nodeId != null && !nodeId.toString().isBlank()) ? nodeId.toString() : UUID.randomUUID().toString();
+			File folder = (socketFolder != null) ? new File(socketFolder.toString()) : new File(System.getProperty("java.io.tmpdir"), "dutchycore-events");
+			startEventForwarding(new UnixSocketTransport(folder.toPath(), node), node);
+		}
+	}
+	
+	/**
+	 * Start forwarding {@link dev.array21.dutchycore.annotations.DistributedEvent}s to other servers. Forwarding which was already started is stopped first<br>
+	 * <br>
+	 * Started on startup if enabled in the config, using a {@link UnixSocketTransport}. A module can call this to use another transport instead
+	 * @param transport The transport to the other servers
+	 * @param nodeId The ID of this server, unique among the connected servers
+	 * @return Returns true if forwarding was started, false if the transport failed to start
+	 */
+	public synchronized boolean startEventForwarding(EventTransport transport, String nodeId) {
+		stopEventForwarding();
+		
+		EventForwarder forwarder = new EventForwarder(this.plugin, nodeId, transport, this::findModuleClass, event -> {
+			activateLazyModulesFor(event.getClass());
+			this.eventBus.post(event);
+		});
+		
+		try {
+			forwarder.start();
+		} catch(IOException e) {
+			DutchyCore.logWarn(String.format("Failed to start forwarding distributed events: %s", Utils.getStackTrace(e)));
+			transport.close();
+			return false;
+		}
+		
+		this.eventForwarder = forwarder;
+		this.eventBus.setForwarder(forwarder);
+		DutchyCore.logInfo(String.format("Forwarding distributed events as node '%s'", nodeId));
+		return true;
+	}
+	
+	/**
+	 * Stop forwarding distributed events. Events which are still queued are sent first
+	 */
+	public synchronized void stopEventForwarding() {
+		if(this.eventForwarder == null) {
+			return;
+		}
+		
+		this.eventBus.setForwarder(null);
+		this.eventForwarder.close();
+		this.eventForwarder = null;
+	}
+	
+	/**
+	 * Get the EventForwarder, e.g. for its statistics
+	 * @return Returns the EventForwarder. Null if event forwarding was not started
+	 */
+	@Nullable
+	public EventForwarder getEventForwarder() {
+		return this.eventForwarder;
+	}
+	
+	/**
+	 * Get the StorageWriter which writes the ModuleStorages in the background
+	 * @return Returns the StorageWriter
+	 */
+	public StorageWriter getStorageWriter() {
+		return this.storageWriter;
+	}
+	
+	/**
+	 * Get whether ModuleStorages are saved through the {@link #getStorageWriter()}, instead of on the thread saving them
+	 * @return Returns true if write-behind storage is enabled in the config
+	 */
+	public boolean isWriteBehindStorage() {
+		return this.writeBehindStorage;
+	}
+	
+	/**
+	 * Get the storage backends modules can be switched to in the config, e.g. to register another one
+	 * @return Returns the StorageBackends
+	 */
+	public StorageBackends getStorageBackends() {
+		return this.storageBackends;
+	}
+	
+	/**
+	 * Construct, init, enable and postEnable modules in the order of their dependencies
+	 * @param modulesToLoad The modules to enable, with their main class
+	 * @param availableModules Lowercase names of modules which are already loaded. Dependencies on these modules are satisfied
+	 * @param recordGlobalTimings Whether to record the global phases in the timings, only done on startup
+	 * @return Returns the modules which were enabled, in the order in which they were enabled
+	 */
+	private List<Module> enableModules(List<Pair<Module, Class<?>>> modulesToLoad, Set<String> availableModules, boolean recordGlobalTimings) {
+		DutchyCore plugin = this.plugin;
+		
+		//Order the modules by their dependencies
+		HashMap<Module, Class<?>> mainClasses = new HashMap<>();
+		List<Module> modules = new ArrayList<>(modulesToLoad.size());
+		for(Pair<Module, Class<?>> modulePair : modulesToLoad) {
+			mainClasses.put(modulePair.getA(), modulePair.getB());
+			modules.add(modulePair.getA());
+		}
+		
+		long phaseStart = System.nanoTime();
+		List<List<Module>> waves = new ModuleDependencyGraph(modules, availableModules).resolveWaves();
+		HashSet<String> requiredEagerly = getEagerlyRequiredModules(waves);
+		if(recordGlobalTimings) {
+			this.timings.recordGlobal("Dependency resolution", System.nanoTime() - phaseStart);
+		}
+		
+		//Modules which failed to load or enable. Modules depending on them are not loaded
+		HashSet<String> failedModules = new HashSet<>();
+		List<Module> enabledModules = new ArrayList<>(modules.size());
+		
+		phaseStart = System.nanoTime();
+		int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+		ExecutorService enablePool = newWorkerPool("DutchyCore-ModuleEnabler", threads);
+		try {
+			for(List<Module> wave : waves) {
+				
+				//Construct and init all modules in this wave on the main thread, in order
+				List<Module> constructed = new ArrayList<>(wave.size());
+				for(Module module : wave) {
+					String failedDependency = getFailedDependency(module, failedModules);
+					if(failedDependency != null) {
+						DutchyCore.logWarn(String.format("Failed to load module '%s'. Its dependency '%s' failed to load.", module.getName(), failedDependency));
+						failedModules.add(module.getName().toLowerCase(Locale.ROOT));
+						continue;
+					}
+					
+					//Lazy modules only get their stubs registered, unless a module that isn't lazy needs them
+					if(module.isLazy() && !requiredEagerly.contains(module.getName().toLowerCase(Locale.ROOT))) {
+						registerLazyModule(plugin, module, mainClasses.get(module));
+						continue;
+					}
+					
+					if(!constructModule(plugin, module, mainClasses.get(module))) {
+						failedModules.add(module.getName().toLowerCase(Locale.ROOT));
+						continue;
+					}
+					
+					constructed.add(module);
+				}
+				
+				//Thread-safe modules are enabled on the worker pool first
+				List<Pair<Module, Future<Boolean>>> concurrentEnables = new ArrayList<>();
+				for(Module module : constructed) {
+					if(module.isThreadSafeEnable()) {
+						concurrentEnables.add(new Pair<Module, Future<Boolean>>(module, enablePool.submit(() -> enableModule(plugin, module))));
+					}
+				}
+				
+				HashSet<Module> failedEnables = new HashSet<>();
+				for(Pair<Module, Future<Boolean>> concurrentEnable : concurrentEnables) {
+					boolean enabled;
+					try {
+						enabled = concurrentEnable.getB().get();
+					} catch(InterruptedException e) {
+						Thread.currentThread().interrupt();
+						enabled = false;
+					} catch(ExecutionException e) {
+						//enableModule only catches Exceptions, e.g. a NoClassDefFoundError ends up here
+						Module module = concurrentEnable.getA();
+						DutchyCore.logWarn(String.format("Module '%s' version '%s' threw an error while running Enable: %s", module.getName(), module.getVersion(), Utils.getStackTrace(e.getCause())));
+						enabled = false;
+					}
+					
+					if(!enabled) {
+						failedEnables.add(concurrentEnable.getA());
+					}
+				}
+				
+				//The other modules are enabled on the main thread once the pool is done. Registering commands, permissions and listeners is not thread-safe, so it must not overlap with the thread-safe modules
+				for(Module module : constructed) {
+					if(!module.isThreadSafeEnable() && !enableModule(plugin, module)) {
+						failedEnables.add(module);
+					}
+				}
+				
+				//Modules which failed to enable don't get postEnable, and modules depending on them are not loaded
+				for(Module module : constructed) {
+					if(failedEnables.contains(module)) {
+						failedModules.add(module.getName().toLowerCase(Locale.ROOT));
+					} else {
+						enabledModules.add(module);
+					}
+				}
 			}
+		} finally {
+			enablePool.shutdownNow();
 		}
 		
-		//Create a ModuleClassLoader instance
-		this.moduleClassLoader = new ModuleClassLoader(jarUrls, this.getClass().getClassLoader());
-		List<Pair<Module, Class<?>>> modulesToLoad = new ArrayList<>(modulePaths.size());
-		for(int i = 0; i < modulePaths.size(); i++) {
-			File moduleJarFile = new File(modulePaths.get(i));
+		if(recordGlobalTimings) {
+			this.timings.recordGlobal("Construct and enable", System.nanoTime() - phaseStart);
+		}
+		
+		//Call postEnable in dependency order, so a module's dependencies have completed their postEnable first
+		phaseStart = System.nanoTime();
+		for(Module module : enabledModules) {
+			postEnableModule(module);
+		}
+		
+		if(recordGlobalTimings) {
+			this.timings.recordGlobal("Post enable", System.nanoTime() - phaseStart);
+		}
+		
+		return enabledModules;
+	}
+	
+	/**
+	 * Reload a module. Modules depending on it are reloaded as well<br>
+	 * <br>
+	 * Must be called from the main thread
+	 * @param moduleName The name of the module
+	 * @return Returns true if the module was found, false if there is no module with this name
+	 */
+	public synchronized boolean reloadModule(String moduleName) {
+		for(Module module : getRegisteredModules()) {
+			if(module.getName().equalsIgnoreCase(moduleName)) {
+				reloadModuleFile(module.getModuleFile());
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Reload the module in a jar<br>
+	 * <br>
+	 * The module and all modules depending on it are disabled and unloaded, after which their jars are loaded again in new ClassLoaders.
+	 * A jar which isn't loaded yet is loaded, a module whose jar was deleted is only unloaded.<br>
+	 * <br>
+	 * Must be called from the main thread
+	 * @param file The module jar
+	 */
+	public synchronized void reloadModuleFile(File file) {
+		long reloadStart = System.nanoTime();
+		String path = file.getAbsolutePath();
+		
+		//Unload dependents before the modules they depend on
+		List<Module> toUnload = getModuleWithDependents(path);
+		for(int i = toUnload.size() - 1; i >= 0; i--) {
+			unloadModule(toUnload.get(i));
+		}
+		
+		//Load the jars of all unloaded modules again, and the jar itself if it is new
+		List<String> toLoad = new ArrayList<>();
+		if(file.exists()) {
+			toLoad.add(path);
+		} else {
+			this.moduleIndex.remove(file);
+		}
+		
+		for(Module module : toUnload) {
+			String modulePath = module.getModuleFile().getAbsolutePath();
+			if(module.getModuleFile().exists() && !toLoad.contains(modulePath)) {
+				toLoad.add(modulePath);
+			}
+		}
+		
+		for(String modulePath : toLoad) {
+			createModuleClassLoader(new File(modulePath));
+		}
+		
+		List<Pair<Module, Class<?>>> modulesToLoad = scanModules(toLoad);
+		this.moduleIndex.save();
+		
+		//Modules which stayed loaded satisfy dependencies
+		HashSet<String> availableModules = new HashSet<>();
+		for(Module module : getRegisteredModules()) {
+			availableModules.add(module.getName().toLowerCase(Locale.ROOT));
+		}
+		
+		List<Module> enabledModules = enableModules(modulesToLoad, availableModules, false);
+		
+		//Let clients know about the new commands
+		DutchyCore.getCommandRegister().syncCommands();
+		
+		DutchyCore.logInfo(String.format("Reloaded '%s' in %dms. Unloaded %d module(s), enabled %d module(s).", file.getName(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - reloadStart), toUnload.size(), enabledModules.size()));
+	}
+	
+	/**
+	 * Disable and unload all modules. Called when DutchyCore is disabled
+	 */
+	public synchronized void disableAllModules() {
+		if(this.moduleWatcher != null) {
+			this.moduleWatcher.stop();
+			this.moduleWatcher = null;
+		}
+		
+		//Queued events would otherwise be lost, the scheduled flush does not run once the plugin is disabled
+		if(this.eventBus != null) {
+			this.eventBus.flushQueue();
+		}
+		
+		//Disable in the reverse order of enabling, so dependents are disabled before their dependencies
+		List<Module> modules = getRegisteredModules();
+		for(int i = modules.size() - 1; i >= 0; i--) {
+			unloadModule(modules.get(i));
+		}
+		
+		//Jars which did not contain a valid module still have a ClassLoader
+		for(String modulePath : new ArrayList<>(this.moduleClassLoaders.keySet())) {
+			closeModuleClassLoader(modulePath);
+		}
+		
+		//After unloading, so events thrown while modules are disabled still reach the other servers
+		stopEventForwarding();
+		
+		//Storages saved while the modules were disabled are written before the server stops
+		if(this.storageWriter != null) {
+			this.storageWriter.shutdown();
+		}
+		
+		if(this.eventBus != null) {
+			this.eventBus.shutdown();
+		}
+	}
+	
+	/**
+	 * Get the module in a jar, and all modules which (softly) depend on it, directly or indirectly
+	 * @param path The absolute path of the module jar
+	 * @return Returns the modules in the order of {@link #getRegisteredModules()}. Empty if no module is loaded from the jar
+	 */
+	private List<Module> getModuleWithDependents(String path) {
+		List<Module> allModules = getRegisteredModules();
+		
+		HashSet<String> affected = new HashSet<>();
+		for(Module module : allModules) {
+			if(module.getModuleFile().getAbsolutePath().equals(path)) {
+				affected.add(module.getName().toLowerCase(Locale.ROOT));
+			}
+		}
+		
+		//Repeat until stable, to find indirect dependents as well
+		boolean changed = !affected.isEmpty();
+		while(changed) {
+			changed = false;
 			
-			//Load information from module.yml about the module
-			//modulesToLoad[i] = loadModuleInformationFromYaml(moduleJarFile);
+			for(Module module : allModules) {
+				if(affected.contains(module.getName().toLowerCase(Locale.ROOT))) {
+					continue;
+				}
+				
+				List<String> dependencies = new ArrayList<>(module.getDependencies());
+				dependencies.addAll(module.getSoftDependencies());
+				for(String dependency : dependencies) {
+					if(affected.contains(dependency.toLowerCase(Locale.ROOT))) {
+						affected.add(module.getName().toLowerCase(Locale.ROOT));
+						changed = true;
+						break;
+					}
+				}
+			}
+		}
+		
+		List<Module> result = new ArrayList<>();
+		for(Module module : allModules) {
+			if(affected.contains(module.getName().toLowerCase(Locale.ROOT))) {
+				result.add(module);
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Disable a module and remove everything it registered: commands, Bukkit listeners, permission nodes and ModuleEventListeners.
+	 * Its ClassLoader is closed afterwards
+	 * @param module The Module to unload
+	 */
+	private void unloadModule(Module module) {
+		String key = module.getName().toLowerCase(Locale.ROOT);
+		
+		PluginModule pluginModule = module.getModule();
+		if(pluginModule != null) {
 			try {
-				modulesToLoad.add(loadModuleInformation(moduleJarFile));
-			} catch(IOException e) {
-				DutchyCore.logWarn(String.format("Failed to load module '%s'. An IOException occurred: %s", moduleJarFile.getAbsolutePath(), Utils.getStackTrace(e)));
-				continue;
+				pluginModule.disable();
+			} catch(Exception e) {
+				DutchyCore.logWarn(String.format("Module '%s' version '%s' threw an exception while running disable: %s", module.getName(), module.getVersion(), Utils.getStackTrace(e)));
+			}
+			
+			pluginModule.unregisterAll();
+			this.loadedModules.remove(pluginModule);
+			module.setModule(null);
+			
+			//A reloaded module reads its storage again, so everything it saved has to be on disk first
+			this.storageWriter.flush();
+			
+			ModuleFileHandler fileHandler = pluginModule.getModuleFileHandlerIfCreated();
+			if(fileHandler != null) {
+				fileHandler.close();
 			}
 		}
 		
-		//Iterate over the modulesToLoad array and load each Module
-		for(Pair<Module, Class<?>> modulePair : modulesToLoad) {
-			Module module = modulePair.getA();
+		//The module might not have been used yet
+		removeLazyModule(key);
+		
+		DutchyCore.getCommandRegister().unregisterCommands(key);
+		
+		String modulePath = module.getModuleFile().getAbsolutePath();
+		ModuleClassLoader classLoader = this.moduleClassLoaders.get(modulePath);
+		if(classLoader != null) {
 			
-			DutchyCore.logInfo("Loading module " + module.getName());
+			//Also catch listeners which were registered without going through the PluginModule
+			this.eventBus.unregisterAll(classLoader);
+			this.bukkitEventHub.unregisterAll(classLoader);
+			for(HandlerList handlerList : HandlerList.getHandlerLists()) {
+				for(RegisteredListener registeredListener : handlerList.getRegisteredListeners()) {
+					if(registeredListener.getListener().getClass().getClassLoader() == classLoader) {
+						handlerList.unregister(registeredListener);
+					}
+				}
+			}
 			
-			//Load the main class and call the init method
-			PluginModule pluginModule = this.moduleClassLoader.loadMainClass(modulePair.getB());
-			pluginModule.init(plugin);
-
-			//Set the PluginModule on the Module
-			module.setModule(pluginModule);
+			closeModuleClassLoader(modulePath);
+		}
+		
+		this.timings.remove(module.getName());
+		DutchyCore.logInfo(String.format("Unloaded module %s", module.getName()));
+	}
+	
+	/**
+	 * Create the ModuleClassLoader for a module jar. An existing ClassLoader for the jar is closed first
+	 * @param file The module jar
+	 */
+	private void createModuleClassLoader(File file) {
+		String path = file.getAbsolutePath();
+		closeModuleClassLoader(path);
+		
+		URL jarUrl;
+		try {
+			jarUrl = file.toURI().toURL();
+		} catch(MalformedURLException e) {
+			e.printStackTrace();
+			return;
+		}
+		
+		ModuleClassLoader classLoader = new ModuleClassLoader(new URL[] { jarUrl }, this.getClass().getClassLoader(), this::getPackageOwner);
+		this.moduleClassLoaders.put(path, classLoader);
+		
+		//The first jar to contain a package owns it, as it would when all jars shared a ClassLoader
+		for(String packagePath : classLoader.getPackagePaths()) {
+			if(!packagePath.isEmpty() && !packagePath.startsWith("META-INF")) {
+				this.packageOwners.putIfAbsent(packagePath, classLoader);
+			}
+		}
+	}
+	
+	/**
+	 * Close the ModuleClassLoader of a module jar, if there is one
+	 * @param path The absolute path of the module jar
+	 */
+	private void closeModuleClassLoader(String path) {
+		ModuleClassLoader classLoader = this.moduleClassLoaders.remove(path);
+		if(classLoader == null) {
+			return;
+		}
+		
+		this.packageOwners.values().removeIf(owner -> owner == classLoader);
+		
+		try {
+			classLoader.close();
+		} catch(IOException e) {
+			DutchyCore.logWarn(String.format("Failed to close the ClassLoader of module jar '%s': %s", path, Utils.getStackTrace(e)));
+		}
+	}
+	
+	/**
+	 * Get the ModuleClassLoader owning a package
+	 * @param packagePath The package as a path, e.g. <code>com/example</code>
+	 * @return Returns the ModuleClassLoader, or null if no module contains the package
+	 */
+	@Nullable
+	private ModuleClassLoader getPackageOwner(String packagePath) {
+		return this.packageOwners.get(packagePath);
+	}
+	
+	/**
+	 * Find a class through the ModuleClassLoader of the module owning its package<br>
+	 * <br>
+	 * The JVM remembers which classes a ClassLoader resolved. Resolving through the per-module ClassLoader, which is replaced when the module is reloaded,
+	 * always finds the class as it is loaded now, and doesn't keep the ClassLoader of an unloaded module alive
+	 * @param className The binary name of the class
+	 * @return Returns the Class
+	 * @throws ClassNotFoundException If no module owns the class, and DutchyCore doesn't have it either
+	 */
+	private Class<?> findModuleClass(String className) throws ClassNotFoundException {
+		int lastDot = className.lastIndexOf('.');
+		ModuleClassLoader owner = getPackageOwner((lastDot == -1) ? "" : className.substring(0, lastDot).replace('.', '/'));
+		return Class.forName(className, false, (owner != null) ? owner : this.getClass().getClassLoader());
+	}
+	
+	/**
+	 * Get the timings recorded while loading the modules
+	 * @return Returns the ModuleTimings
+	 */
+	public ModuleTimings getTimings() {
+		return this.timings;
+	}
+	
+	/**
+	 * Get the metrics of the event handlers
+	 * @return Returns the EventMetrics. Null if handler metrics are disabled in the config
+	 */
+	@Nullable
+	public EventMetrics getEventMetrics() {
+		return this.eventMetrics;
+	}
+	
+	/**
+	 * Format the listeners held per module as a table, to find modules which leak listeners
+	 * @return Returns the lines of the table
+	 */
+	public List<String> formatListenerTable() {
+		List<String> lines = new ArrayList<>();
+		lines.add(String.format("%-24s %8s %9s %6s %6s", "Module", "Handlers", "Listeners", "Weak", "Bukkit"));
+		
+		for(Module module : getAllModules()) {
+			PluginModule pluginModule = module.getModule();
+			if(pluginModule == null) {
+				continue;
+			}
 			
-			//Add the PluginModule and Module to the map of loaded modules
-			this.loadedModules.put(pluginModule, module);
+			ModuleEventBus.ListenerStatistics statistics = this.eventBus.getListenerStatistics(pluginModule);
+			lines.add(String.format("%-24s %8d %9d %6d %6d", module.getName(), statistics.getHandlers(), statistics.getListeners(), statistics.getWeakListeners(), pluginModule.getEventListenerCount()));
+		}
+		
+		//Listeners registered directly on the bus are not owned by any module
+		ModuleEventBus.ListenerStatistics unowned = this.eventBus.getListenerStatistics(null);
+		if(unowned.getHandlers() > 0) {
+			lines.add(String.format("%-24s %8d %9d %6d %6s", "(none)", unowned.getHandlers(), unowned.getListeners(), unowned.getWeakListeners(), "-"));
+		}
+		
+		return lines;
+	}
+	
+	/**
+	 * Format how often the config and storage file of each module were read, how often reading them was avoided, and how often they were written
+	 * @return Returns the lines of the table
+	 */
+	public List<String> formatFileTable() {
+		List<String> lines = new ArrayList<>();
+		lines.add(String.format("%-24s %-7s %6s %10s %8s %10s %6s %10s %6s", "Module", "File", "Reads", "Read time", "Cached", "Saved", "Writes", "Write time", "Files"));
+		
+		for(Module module : getAllModules()) {
+			PluginModule pluginModule = module.getModule();
+			ModuleFileHandler fileHandler = (pluginModule != null) ? pluginModule.getModuleFileHandlerIfCreated() : null;
+			if(fileHandler == null) {
+				continue;
+			}
 			
-			//Finally, call the enable method on the PluginModule to let the module do what it needs to for initalization
-			try {
-				pluginModule.enable(plugin);
-			} catch(Exception e) {
-				DutchyCore.logWarn(String.format("Module '%s' version '%s' threw an exception while running Enable: %s", module.getName(), module.getVersion(), Utils.getStackTrace(e)));
+			addFileRow(lines, module.getName(), "config", fileHandler.getConfigurationStatistics());
+			addFileRow(lines, module.getName(), "storage", fileHandler.getStorageStatistics());
+		}
+		
+		return lines;
+	}
+	
+	private static void addFileRow(List<String> lines, String moduleName, String file, @Nullable ModuleFileStatistics statistics) {
+		if(statistics == null) {
+			return;
+		}
+		
+		lines.add(String.format(Locale.ROOT, "%-24s %-7s %6d %8.2fms %8d %8.2fms %6d %8.2fms %6d", moduleName, file, statistics.getReads(), statistics.getReadNanos() / 1_000_000d, statistics.getCacheHits(), statistics.getAvoidedNanos() / 1_000_000d,
+				statistics.getWrites(), statistics.getWriteNanos() / 1_000_000d, statistics.getSegmentsWritten()));
+	}
+	
+	/**
+	 * Get the lazy modules which must be enabled on startup anyway, because a module that isn't lazy depends on them
+	 * @param waves The waves, as returned by {@link ModuleDependencyGraph#resolveWaves()}
+	 * @return Returns the lowercase names of the modules which must be enabled on startup
+	 */
+	private static HashSet<String> getEagerlyRequiredModules(List<List<Module>> waves) {
+		HashSet<String> eager = new HashSet<>();
+		
+		//Dependents are always in a later wave than their dependencies, so walking backwards visits a dependent before its dependencies
+		for(int i = waves.size() - 1; i >= 0; i--) {
+			List<Module> wave = waves.get(i);
+			for(int j = wave.size() - 1; j >= 0; j--) {
+				Module module = wave.get(j);
+				String key = module.getName().toLowerCase(Locale.ROOT);
+				if(module.isLazy() && !eager.contains(key)) {
+					continue;
+				}
+				
+				eager.add(key);
+				for(String dependency : module.getDependencies()) {
+					eager.add(dependency.toLowerCase(Locale.ROOT));
+				}
+				
+				for(String dependency : module.getSoftDependencies()) {
+					eager.add(dependency.toLowerCase(Locale.ROOT));
+				}
 			}
 		}
 		
-		//Iterate over the PluginModules in the map of loaded modules and call the postEnable method
-		for(PluginModule pm : this.loadedModules.keySet()) {
-			try {
-				pm.postEnable();
-			} catch(Exception e) {
-				Module module = pm.getModuleInfo();
-				DutchyCore.logWarn(String.format("Module '%s' version '%s' threw an exception while running postEnable: %s", module.getName(), module.getVersion(), Utils.getStackTrace(e)));
+		return eager;
+	}
+	
+	/**
+	 * Register the command stubs and event triggers of a lazy module
+	 * @param plugin DutchyCore instance
+	 * @param module The lazy Module
+	 * @param mainClass The main class of the Module
+	 */
+	private synchronized void registerLazyModule(DutchyCore plugin, Module module, Class<?> mainClass) {
+		String key = module.getName().toLowerCase(Locale.ROOT);
+		this.lazyModules.put(key, new Pair<Module, Class<?>>(module, mainClass));
+		
+		for(String command : module.getLazyCommands()) {
+			DutchyCore.getCommandRegister().registerCommand(plugin, command, new LazyModuleCommand(module.getName(), command, key), key);
+		}
+		
+		for(String event : module.getLazyEvents()) {
+			this.lazyEventTriggers.computeIfAbsent(event, k -> new ArrayList<>()).add(key);
+		}
+		
+		this.hasLazyEventTriggers = !this.lazyEventTriggers.isEmpty();
+		DutchyCore.logInfo(String.format("Module %s is lazy, it will be enabled when it is first used", module.getName()));
+	}
+	
+	/**
+	 * Enable a lazy module, if it has not been enabled yet. Lazy modules it depends on are enabled first. Must be called from the main thread, see {@link #isLazyModule(String)}
+	 * @param moduleName The name of the module
+	 * @return Returns true if the module is enabled, false if it failed to enable or if there is no such module
+	 */
+	public synchronized boolean activateLazyModule(String moduleName) {
+		String key = moduleName.toLowerCase(Locale.ROOT);
+		Pair<Module, Class<?>> lazyModule = this.lazyModules.get(key);
+		if(lazyModule == null) {
+			for(Module module : this.loadedModules.values()) {
+				if(module.getName().equalsIgnoreCase(moduleName)) return true;
+			}
+			
+			return false;
+		}
+		
+		Module module = lazyModule.getA();
+		
+		//Remove the module first, so the triggers don't fire again while it is being enabled
+		removeLazyModule(key);
+		
+		//Dependencies which are lazy themselves must be enabled first
+		for(String dependency : module.getDependencies()) {
+			if(!activateLazyModule(dependency)) {
+				DutchyCore.logWarn(String.format("Failed to load module '%s'. Its dependency '%s' failed to load.", module.getName(), dependency));
+				return false;
+			}
+		}
+		
+		for(String dependency : module.getSoftDependencies()) {
+			activateLazyModule(dependency);
+		}
+		
+		if(!constructModule(this.plugin, module, lazyModule.getB()) || !enableModule(this.plugin, module)) {
+			return false;
+		}
+		
+		postEnableModule(module);
+		return true;
+	}
+	
+	/**
+	 * Check if a module is lazy and has not been enabled yet. May be called from any thread
+	 * @param moduleName The name of the module
+	 * @return Returns true if {@link #activateLazyModule(String)} has to be called on the main thread before the module can be used
+	 */
+	public synchronized boolean isLazyModule(String moduleName) {
+		return this.lazyModules.containsKey(moduleName.toLowerCase(Locale.ROOT));
+	}
+	
+	/**
+	 * Remove a lazy module and its event triggers
+	 * @param key The lowercase name of the module
+	 */
+	private synchronized void removeLazyModule(String key) {
+		Pair<Module, Class<?>> lazyModule = this.lazyModules.remove(key);
+		if(lazyModule == null) {
+			return;
+		}
+		
+		for(String event : lazyModule.getA().getLazyEvents()) {
+			List<String> triggered = this.lazyEventTriggers.get(event);
+			if(triggered != null) {
+				triggered.remove(key);
+				if(triggered.isEmpty()) {
+					this.lazyEventTriggers.remove(event);
+				}
+			}
+		}
+		
+		this.hasLazyEventTriggers = !this.lazyEventTriggers.isEmpty();
+	}
+	
+	/**
+	 * Enable all lazy modules which listen for a ModuleEvent, so they receive it. Must be called from the main thread, see {@link #hasLazyModulesFor(Class)}
+	 * @param eventClass The class of the ModuleEvent which is about to be thrown
+	 */
+	protected void activateLazyModulesFor(Class<?> eventClass) {
+		for(String moduleName : getLazyModulesFor(eventClass)) {
+			activateLazyModule(moduleName);
+		}
+	}
+	
+	/**
+	 * Check if there are lazy modules which have to be enabled before a ModuleEvent is delivered. May be called from any thread
+	 * @param eventClass The class of the ModuleEvent which is about to be thrown
+	 * @return Returns true if {@link #activateLazyModulesFor(Class)} has to be called on the main thread first
+	 */
+	protected boolean hasLazyModulesFor(Class<?> eventClass) {
+		return !getLazyModulesFor(eventClass).isEmpty();
+	}
+	
+	private List<String> getLazyModulesFor(Class<?> eventClass) {
+		//Fast path, checked without locking
+		if(!this.hasLazyEventTriggers) {
+			return Collections.emptyList();
+		}
+		
+		List<String> lazyModules = new ArrayList<>();
+		synchronized(this) {
+			for(Class<?> clazz : ModuleEventBus.getEventTypes(eventClass)) {
+				List<String> triggered = this.lazyEventTriggers.get(clazz.getName());
+				if(triggered != null) {
+					lazyModules.addAll(triggered);
+				}
+			}
+		}
+		
+		return lazyModules;
+	}
+	
+	/**
+	 * Construct a module, call its init method and add it to the loaded modules
+	 * @param plugin DutchyCore instance
+	 * @param module The Module to construct
+	 * @param mainClass The main class of the Module
+	 * @return Returns true if the module was constructed
+	 */
+	private boolean constructModule(DutchyCore plugin, Module module, Class<?> mainClass) {
+		DutchyCore.logInfo("Loading module " + module.getName());
+		
+		//Load the main class and call the init method
+		long phaseStart = System.nanoTime();
+		PluginModule pluginModule;
+		try {
+			pluginModule = this.moduleClassLoader.loadMainClass(mainClass);
+		} catch(InvalidModuleException e) {
+			DutchyCore.logWarn(String.format("Failed to load module '%s': %s", module.getName(), e.getExceptionMessage()));
+			return false;
+		} finally {
+			this.timings.record(module.getName(), ModuleTimings.Phase.CONSTRUCTION, System.nanoTime() - phaseStart);
+		}
+		
+		if(pluginModule == null) {
+			DutchyCore.logWarn(String.format("Failed to load module '%s'. Its main class could not be instantiated.", module.getName()));
+			return false;
+		}
+		
+		phaseStart = System.nanoTime();
+		pluginModule.init(plugin);
+		this.timings.record(module.getName(), ModuleTimings.Phase.INIT, System.nanoTime() - phaseStart);
+		
+		//Set the PluginModule on the Module
+		module.setModule(pluginModule);
+		
+		//Add the PluginModule and Module to the map of loaded modules
+		this.loadedModules.put(pluginModule, module);
+		return true;
+	}
+	
+	/**
+	 * Call the enable method on a module to let the module do what it needs to for initalization
+	 * @param plugin DutchyCore instance
+	 * @param module The Module to enable
+	 * @return Returns true if the module enabled without throwing an exception
+	 */
+	private boolean enableModule(DutchyCore plugin, Module module) {
+		long phaseStart = System.nanoTime();
+		try {
+			module.getModule().enable(plugin);
+			return true;
+		} catch(Exception e) {
+			DutchyCore.logWarn(String.format("Module '%s' version '%s' threw an exception while running Enable: %s", module.getName(), module.getVersion(), Utils.getStackTrace(e)));
+			return false;
+		} finally {
+			this.timings.record(module.getName(), ModuleTimings.Phase.ENABLE, System.nanoTime() - phaseStart);
+		}
+	}
+	
+	/**
+	 * Call the postEnable method on a module
+	 * @param module The Module
+	 */
+	private void postEnableModule(Module module) {
+		long phaseStart = System.nanoTime();
+		try {
+			module.getModule().postEnable();
+		} catch(Exception e) {
+			DutchyCore.logWarn(String.format("Module '%s' version '%s' threw an exception while running postEnable: %s", module.getName(), module.getVersion(), Utils.getStackTrace(e)));
+		} finally {
+			this.timings.record(module.getName(), ModuleTimings.Phase.POST_ENABLE, System.nanoTime() - phaseStart);
+		}
+	}
+	
+	/**
+	 * Get the first hard dependency of a module which failed to load
+	 * @param module The Module to check
+	 * @param failedModules Lowercase names of the modules which failed to load
+	 * @return Returns the name of the failed dependency, or null if none failed
+	 */
+	@Nullable
+	private static String getFailedDependency(Module module, HashSet<String> failedModules) {
+		for(String dependency : module.getDependencies()) {
+			if(failedModules.contains(dependency.toLowerCase(Locale.ROOT))) {
+				return dependency;
 			}
 		}
+		
+		return null;
+	}
+	
+	/**
+	 * Create a fixed size pool of daemon threads
+	 * @param name The name prefix of the threads
+	 * @param threads The number of threads
+	 * @return Returns the ExecutorService. The caller is responsible for shutting it down
+	 */
+	private static ExecutorService newWorkerPool(String name, int threads) {
+		AtomicInteger threadCounter = new AtomicInteger();
+		return Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, name + "-" + threadCounter.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
 	}
 	
 	/**
-	 * Get the URLClassLoader the modules are loaded with
+	 * Get a ClassLoader which can load the classes of all modules<br>
+	 * <br>
+	 * Every module has its own ClassLoader, this one delegates to them
 	 * @return Returns URLClassloader, or null when it has not yet been created (only happens early in the loading process)
 	 */
 	@Nullable
@@ -142,17 +1071,30 @@ public class ModuleLoader {
 	}
 	
 	/**
-	 * Get all loaded modules
+	 * Get all loaded modules. Lazy modules which have not been enabled yet are not included, see {@link #getRegisteredModules()}
 	 * @return Returns a list of all loaded Modules
 	 */
-	public List<Module> getAllModules() {
+	public synchronized List<Module> getAllModules() {
 		return new ArrayList<>(this.loadedModules.values());
 	}
 	
+	/**
+	 * Get all loaded modules, and the lazy modules which have not been enabled yet. {@link Module#getModule()} returns null for the latter
+	 * @return Returns a list of all loaded and lazy Modules
+	 */
+	public synchronized List<Module> getRegisteredModules() {
+		List<Module> modules = getAllModules();
+		for(Pair<Module, Class<?>> lazyModule : this.lazyModules.values()) {
+			modules.add(lazyModule.getA());
+		}
+		
+		return modules;
+	}
+	
 	/**
 	 * Discover all files ending in .jar in {@link modulesFolder}
 	 * @param modulesFolder The folder to look in
-	 * @return Returns a List of absolute paths for all files ending in .jar found in {@link modulesFolder}
+	 * @return Returns a sorted List of absolute paths for all files ending in .jar found in {@link modulesFolder}
 	 */
 	private List<String> discoverModules(File modulesFolder) {
 		Stream<Path> walk = null;
@@ -161,79 +1103,313 @@ public class ModuleLoader {
 		} catch(IOException e) {
 			e.printStackTrace();
 		}
-		List<String> result = walk.map(x -> x.toString()).filter(f -> f.endsWith(".jar")).collect(Collectors.toList());
+		
+		//Sort the paths, the order in which the filesystem returns them is not guaranteed
+		List<String> result = walk.map(x -> x.toString()).filter(f -> f.endsWith(".jar")).sorted().collect(Collectors.toList());
 		
 		walk.close();
 		return result;
 	}
 	
 	/**
-	 * Load the Module information from a File
+	 * Get the amount of Metaspace currently in use
+	 * @return Returns the used Metaspace in bytes, or 0 if the JVM does not expose a Metaspace memory pool
+	 */
+	private static long getMetaspaceUsed() {
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getName().equals("Metaspace")) {
+				return pool.getUsage().getUsed();
+			}
+		}
+		
+		return 0;
+	}
+	
+	/**
+	 * Load the Module information of all provided jars on a bounded worker pool
+	 * @param modulePaths The absolute paths of the module jars, in the order in which they should be loaded
+	 * @return Returns a List of all valid modules, in the same order as {@link modulePaths}
+	 * 
+	 * @since 0.1.0
+	 */
+	private List<Pair<Module, Class<?>>> scanModules(List<String> modulePaths) {
+		List<Pair<Module, Class<?>>> modulesToLoad = new ArrayList<>(modulePaths.size());
+		if(modulePaths.isEmpty()) {
+			return modulesToLoad;
+		}
+		
+		//No need for more threads than there are jars
+		int threads = Math.min(modulePaths.size(), Runtime.getRuntime().availableProcessors());
+		ExecutorService scanPool = newWorkerPool("DutchyCore-ModuleScanner", threads);
+		
+		long scanStart = System.nanoTime();
+		long metaspaceStart = getMetaspaceUsed();
+		this.indexHits.set(0);
+		
+		//Submit all jars to the pool
+		List<Future<Pair<Module, Class<?>>>> futures = new ArrayList<>(modulePaths.size());
+		for(String modulePath : modulePaths) {
+			File moduleJarFile = new File(modulePath);
+			futures.add(scanPool.submit(() -> loadModuleInformation(moduleJarFile)));
+		}
+		
+		//Collect the results in submission order
+		try {
+			for(int i = 0; i < futures.size(); i++) {
+				File moduleJarFile = new File(modulePaths.get(i));
+				
+				Pair<Module, Class<?>> modulePair;
+				try {
+					modulePair = futures.get(i).get();
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					DutchyCore.logWarn("Interrupted while waiting for module scanning to complete. Not all modules will be loaded.");
+					break;
+				} catch(ExecutionException e) {
+					Throwable cause = e.getCause();
+					if(cause instanceof IOException) {
+						DutchyCore.logWarn(String.format("Failed to load module '%s'. An IOException occurred: %s", moduleJarFile.getAbsolutePath(), Utils.getStackTrace(cause)));
+					} else {
+						DutchyCore.logWarn(String.format("Failed to load module '%s', an exception occurred: %s", moduleJarFile.getAbsolutePath(), Utils.getStackTrace(cause)));
+					}
+					
+					continue;
+				}
+				
+				//A null Pair means the failure was already reported by loadModuleInformation
+				if(modulePair == null) {
+					continue;
+				}
+				
+				if(modulePair.getA() == null) {
+					DutchyCore.logWarn(String.format("Failed to load module '%s'. No class is annotated with RegisterModule.", moduleJarFile.getAbsolutePath()));
+					continue;
+				}
+				
+				modulesToLoad.add(modulePair);
+			}
+		} finally {
+			scanPool.shutdownNow();
+		}
+		
+		long scanMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - scanStart);
+		long metaspaceKib = (getMetaspaceUsed() - metaspaceStart) / 1024;
+		int indexed = this.indexHits.get();
+		DutchyCore.logInfo(String.format("Scanned %d module jar(s) in %dms using %d thread(s), %d taken from the module index (%s start). Metaspace grew by %d KiB.",
+				modulePaths.size(), scanMillis, threads, indexed, (indexed == modulePaths.size()) ? "warm" : "cold", metaspaceKib));
+		
+		return modulesToLoad;
+	}
+	
+	/**
+	 * Load the Module information from a File<br>
+	 * <br>
+	 * The classes in the jar are not loaded to find the main class. Instead their class file bytes are scanned for the {@link RegisterModule} annotation,
+	 * only the main class is loaded with the ModuleClassLoader.
 	 * @param file The file to load
 	 * @return Returns an instance of Module, or null when the module is invalid
-	 * @throws IOException Thrown when an IOException occurred while opening or closing the JarFile
+	 * @throws IOException Thrown when an IOException occurred while opening, reading or closing the JarFile
 	 * 
 	 * @since 0.1.0
 	 */
 	@Nullable
 	private Pair<Module, Class<?>> loadModuleInformation(File file)  throws IOException {
-		JarFile jarFile = new JarFile(file);
-		
-		List<String> classes = jarFile.stream()
-				.map(ZipEntry::getName)
-				.filter(name -> name.endsWith(".class"))
-				.map(name -> name
-						.replace(".class", "")
-						.replace("/", "."))
-				.distinct()
-				.collect(Collectors.toList());
-		
-		Module module = null;
-		Class<?> mainClass = null;
-		for(String clazz : classes) {
-			Class<?> c;
-			try {
-				c = Class.forName(clazz, false, this.moduleClassLoader);
-			} catch(ClassNotFoundException e) {
-				DutchyCore.logWarn(String.format("Failed to load module '%s', an exception occurred: %s", file.getAbsolutePath(), Utils.getStackTrace(e)));
-				jarFile.close();
-				return null;
+		long scanStart = System.nanoTime();
+		
+		//If the jar is unchanged since the last startup, its scan result can be taken from the index
+		ModuleIndex.Entry indexEntry = this.moduleIndex.lookup(file);
+		if(indexEntry != null) {
+			Pair<Module, Class<?>> indexed = loadModuleInformationFromIndex(file, indexEntry);
+			if(indexed != null) {
+				this.indexHits.incrementAndGet();
+				this.timings.record(indexed.getA().getName(), ModuleTimings.Phase.SCAN, System.nanoTime() - scanStart - this.timings.get(indexed.getA().getName(), ModuleTimings.Phase.CLASS_DEFINITION));
+				return indexed;
 			}
 			
-			if(c.isAnnotationPresent(RegisterModule.class)) {
-				mainClass = c;
-				RegisterModule registerModule = c.getAnnotation(RegisterModule.class);
-				
-				if(registerModule.name().isBlank()) {
-					DutchyCore.logWarn(String.format("Failed to load module '%s'. Missing field 'name' in RegisterModule annotation.", file.getAbsolutePath()));
-					jarFile.close();
-					return null;
-				}
+			//The entry is stale, fall back to a full scan
+			this.moduleIndex.remove(file);
+		}
+		
+		String mainClassName = null;
+		HashMap<String, Object> registerModule = null;
+		
+		try(JarFile jarFile = new JarFile(file)) {
+			Enumeration<JarEntry> entries = jarFile.entries();
+			while(entries.hasMoreElements()) {
+				JarEntry entry = entries.nextElement();
 				
-				if(registerModule.author().isBlank()) {
-					DutchyCore.logWarn(String.format("Failed to load module '%s'. Missing field 'author' in RegisterModule annotation.", file.getAbsolutePath()));
-					jarFile.close();
-					return null;
+				//META-INF holds e.g. module-info and multi-release classes, never the main class
+				if(entry.isDirectory() || !entry.getName().endsWith(".class") || entry.getName().startsWith("META-INF/")) {
+					continue;
 				}
 				
-				if(registerModule.version().isBlank()) {
-					DutchyCore.logWarn(String.format("Failed to load module '%s'. Missing field 'version' in RegisterModule annotation.", file.getAbsolutePath()));
-					jarFile.close();
-					return null;
+				//A damaged or unusual class file, e.g. in a shaded dependency, must not keep the module from loading
+				HashMap<String, Object> annotationValues;
+				try(InputStream in = jarFile.getInputStream(entry)) {
+					annotationValues = ClassFileScanner.readClassAnnotation(in, RegisterModule.class);
+				} catch(IOException e) {
+					DutchyCore.logWarn(String.format("Skipped class file '%s' in module '%s', it could not be read: %s", entry.getName(), file.getAbsolutePath(), e.getMessage()));
+					continue;
 				}
 				
-				if(registerModule.infoUrl().isBlank()) {
-					DutchyCore.logWarn(String.format("Module '%s' is missing the field 'infoUrl' in the RegisterModule annotation. This isn't a disaster, but it is recommended to set this.", file.getAbsolutePath()));
+				if(annotationValues != null) {
+					mainClassName = entry.getName()
+							.replace(".class", "")
+							.replace("/", ".");
+					registerModule = annotationValues;
+					break;
 				}
-				
-				module = new Module(registerModule.name(), clazz, registerModule.version(), registerModule.author(), registerModule.infoUrl(), file);
 			}
 		}
 		
-		jarFile.close();
+		//No main class, the caller will report this
+		if(mainClassName == null) {
+			return new Pair<Module, Class<?>>(null, null);
+		}
+		
+		Module module = createModule(file, mainClassName, registerModule);
+		if(module == null) {
+			return null;
+		}
+		
+		//Only the main class is loaded
+		long classStart = System.nanoTime();
+		Class<?> mainClass;
+		try {
+			mainClass = Class.forName(mainClassName, false, this.moduleClassLoaders.get(file.getAbsolutePath()));
+		} catch(ClassNotFoundException e) {
+			DutchyCore.logWarn(String.format("Failed to load module '%s', an exception occurred: %s", file.getAbsolutePath(), Utils.getStackTrace(e)));
+			return null;
+		}
+		
+		long classEnd = System.nanoTime();
+		this.moduleIndex.put(file, mainClassName, registerModule);
+		
+		this.timings.record(module.getName(), ModuleTimings.Phase.CLASS_DEFINITION, classEnd - classStart);
+		this.timings.record(module.getName(), ModuleTimings.Phase.SCAN, (classStart - scanStart) + (System.nanoTime() - classEnd));
 		return new Pair<Module, Class<?>>(module, mainClass);
 	}
 	
+	/**
+	 * Load the Module information from an entry in the module index
+	 * @param file The module jar
+	 * @param indexEntry The index entry of the module jar
+	 * @return Returns the Module and its main class, or null if the entry does not match the jar
+	 * 
+	 * @since 0.1.0
+	 */
+	@Nullable
+	private Pair<Module, Class<?>> loadModuleInformationFromIndex(File file, ModuleIndex.Entry indexEntry) {
+		long classStart = System.nanoTime();
+		Class<?> mainClass;
+		try {
+			mainClass = Class.forName(indexEntry.getMainClass(), false, this.moduleClassLoaders.get(file.getAbsolutePath()));
+		} catch(ClassNotFoundException | LinkageError e) {
+			return null;
+		}
+		
+		long classNanos = System.nanoTime() - classStart;
+		
+		if(!mainClass.isAnnotationPresent(RegisterModule.class)) {
+			return null;
+		}
+		
+		Module module;
+		try {
+			module = createModule(file, indexEntry.getMainClass(), indexEntry.getAnnotationValues());
+		} catch(ClassCastException e) {
+			//Corrupt annotation values
+			return null;
+		}
+		
+		if(module == null) {
+			return null;
+		}
+		
+		this.timings.record(module.getName(), ModuleTimings.Phase.CLASS_DEFINITION, classNanos);
+		return new Pair<Module, Class<?>>(module, mainClass);
+	}
+	
+	/**
+	 * Create a Module from the values of its RegisterModule annotation. Missing required fields are reported
+	 * @param file The module jar
+	 * @param mainClassName The name of the main class of the module
+	 * @param registerModule The values of the RegisterModule annotation, as returned by {@link ClassFileScanner}
+	 * @return Returns the Module, or null if a required field is missing
+	 * 
+	 * @since 0.1.0
+	 */
+	@Nullable
+	private Module createModule(File file, String mainClassName, HashMap<String, Object> registerModule) {
+		String name = (String) registerModule.getOrDefault("name", "");
+		String author = (String) registerModule.getOrDefault("author", "");
+		String version = (String) registerModule.getOrDefault("version", "");
+		String infoUrl = (String) registerModule.getOrDefault("infoUrl", DEFAULT_INFO_URL);
+		
+		if(name.isBlank()) {
+			DutchyCore.logWarn(String.format("Failed to load module '%s'. Missing field 'name' in RegisterModule annotation.", file.getAbsolutePath()));
+			return null;
+		}
+		
+		if(author.isBlank()) {
+			DutchyCore.logWarn(String.format("Failed to load module '%s'. Missing field 'author' in RegisterModule annotation.", file.getAbsolutePath()));
+			return null;
+		}
+		
+		if(version.isBlank()) {
+			DutchyCore.logWarn(String.format("Failed to load module '%s'. Missing field 'version' in RegisterModule annotation.", file.getAbsolutePath()));
+			return null;
+		}
+		
+		if(infoUrl.isBlank()) {
+			DutchyCore.logWarn(String.format("Module '%s' is missing the field 'infoUrl' in the RegisterModule annotation. This isn't a disaster, but it is recommended to set this.", file.getAbsolutePath()));
+		}
+		
+		List<String> dependencies = toStringList(registerModule.get("depends"));
+		List<String> softDependencies = toStringList(registerModule.get("softDepends"));
+		boolean threadSafeEnable = Boolean.TRUE.equals(registerModule.get("threadSafeEnable"));
+		
+		Module module = new Module(name, mainClassName, version, author, infoUrl, file, dependencies, softDependencies, threadSafeEnable);
+		if(Boolean.TRUE.equals(registerModule.get("lazy"))) {
+			module.setLazy(toStringList(registerModule.get("commands")), toStringList(registerModule.get("events")));
+		}
+		
+		return module;
+	}
+	
+	/**
+	 * Get the default value of an element of {@link RegisterModule}
+	 * @param element The name of the element
+	 * @return Returns the default value
+	 * @throws IllegalStateException If RegisterModule has no such element
+	 */
+	private static Object getAnnotationDefault(String element) {
+		try {
+			return RegisterModule.class.getMethod(element).getDefaultValue();
+		} catch(NoSuchMethodException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Convert an array annotation value to a List of Strings
+	 * @param value The value, as returned by {@link ClassFileScanner}. May be null if the element was not present
+	 * @return Returns a List of Strings, empty if {@link value} is null
+	 */
+	private static List<String> toStringList(@Nullable Object value) {
+		List<String> result = new ArrayList<>();
+		if(value instanceof List) {
+			for(Object element : (List<?>) value) {
+				result.add((String) element);
+			}
+		} else if(value != null) {
+			//Single element arrays may be written without braces, but are still stored as arrays. Handle it anyway for hand-edited indexes
+			result.add((String) value);
+		}
+		
+		return result;
+	}
+	
 	/**
 	 * Load a module from a File
 	 * 
@@ -272,97 +1448,6 @@ public class ModuleLoader {
 				file);
 	}
 	
-	public class ModuleClassLoader extends URLClassLoader {
-				
-		public ModuleClassLoader(URL[] urls, ClassLoader parent) {
-			super(urls, parent);
-		}
-		
-		
-		/**
-		 * Load the main class of a module and instantiate the module
-		 * @param clazz The class 
-		 * @return Returns an instance of PluginModule
-		 */
-		@Nullable
-		public PluginModule loadMainClass(Class<?> clazz) {
-			try {
-				//the main class extends PluginModule, so get the main class as a subclass of PluginModule
-				Class<? extends PluginModule> moduleClazz = null;
-				try {
-					moduleClazz = clazz.asSubclass(PluginModule.class);
-				} catch(ClassCastException e) {
-					throw new InvalidModuleException(String.format("Provided main class %s does not extend PluginModule", clazz.getName()));
-				}
-				
-				//Get the constructor for the plugin class
-				Constructor<?> pluginClazzConstructor = moduleClazz.getConstructor();
-				
-				//Create an instance of the plugin class
-				return (PluginModule) pluginClazzConstructor.newInstance();
-			} catch (IllegalAccessException e) {
-				e.printStackTrace();
-			} catch (InstantiationException e) {
-				e.printStackTrace();
-			} catch (NoSuchMethodException e) {
-				e.printStackTrace();
-			} catch (SecurityException e) {
-				e.printStackTrace();
-			} catch (IllegalArgumentException e) {
-				e.printStackTrace();
-			} catch (InvocationTargetException e) {
-				e.printStackTrace();
-			}
-			
-			return null;
-		}
-		
-		/**
-		 * Load the main class of a Module
-		 * @param className The name of the main class
-		 * @return Returns an instance of PluginModule, or null if an exception occured
-		 */
-		@Nullable
-		@Deprecated
-		public PluginModule loadMainClass(String className) {
-			try {
-				//Get the Class for the provided mainClassName
-				Class<?> jarClazz = findClass(className);
-								
-				//the main class extends PluginModule, so get the main class as a subclass of PluginModule
-				Class<? extends PluginModule> moduleClazz = null;
-				try {
-					moduleClazz = jarClazz.asSubclass(PluginModule.class);
-				} catch(ClassCastException e) {
-					throw new InvalidModuleException(String.format("Provided main class %s does not extend PluginModule", className));
-				}
-				
-				//Get the constructor for the plugin class
-				Constructor<?> pluginClazzConstructor = moduleClazz.getConstructor();
-				
-				//Create an instance of the plugin class
-				return (PluginModule) pluginClazzConstructor.newInstance();
-				
-			} catch (IllegalAccessException e) {
-				e.printStackTrace();
-			} catch (InstantiationException e) {
-				e.printStackTrace();
-			} catch (NoSuchMethodException e) {
-				e.printStackTrace();
-			} catch (SecurityException e) {
-				e.printStackTrace();
-			} catch (IllegalArgumentException e) {
-				e.printStackTrace();
-			} catch (InvocationTargetException e) {
-				e.printStackTrace();
-			} catch (ClassNotFoundException e) {
-				e.printStackTrace();
-			}
-			
-			return null;
-		}
-	}
-	
 	/**
 	 * Load a module's module.yml file
 	 * @param file The jarfile to load the yaml from
@@ -0,0 +1,21 @@
+package dev.array21.dutchycore.module;
+
+import java.lang.invoke.MethodHandles;
+
+/**
+ * A copy of this class is defined in every {@link ModuleClassLoader}, see {@link ModuleClassLoader#getLookup()}<br>
+ * <br>
+ * A Lookup created by that copy has full privilege access to the classes of the module,
+ * which is required to generate invokers with {@link java.lang.invoke.LambdaMetafactory}.
+ * This class must not reference anything that isn't in java.base.
+ *
+ * @since 0.1.0
+ */
+public final class ModuleLookup {
+	
+	private ModuleLookup() {}
+	
+	public static MethodHandles.Lookup lookup() {
+		return MethodHandles.lookup();
+	}
+}
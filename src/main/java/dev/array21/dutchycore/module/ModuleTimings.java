@@ -0,0 +1,236 @@
+package dev.array21.dutchycore.module;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import dev.array21.dutchycore.DutchyCore;
+import dev.array21.dutchycore.utils.Utils;
+
+/**
+ * Records how long each phase of loading the modules took<br>
+ * <br>
+ * Timings are recorded in nanoseconds. Per-module phases may be recorded from any thread.
+ *
+ * @since 0.1.0
+ */
+public class ModuleTimings {
+	
+	/**
+	 * The per-module phases of loading a module
+	 */
+	public enum Phase {
+		SCAN("Scan", "scanNanos"),
+		CLASS_DEFINITION("Class", "classDefinitionNanos"),
+		CONSTRUCTION("Construct", "constructionNanos"),
+		INIT("Init", "initNanos"),
+		ENABLE("Enable", "enableNanos"),
+		POST_ENABLE("PostEnable", "postEnableNanos");
+		
+		private final String displayName, jsonKey;
+		
+		private Phase(String displayName, String jsonKey) {
+			this.displayName = displayName;
+			this.jsonKey = jsonKey;
+		}
+		
+		public String getDisplayName() {
+			return this.displayName;
+		}
+		
+		public String getJsonKey() {
+			return this.jsonKey;
+		}
+	}
+	
+	private final LinkedHashMap<String, Long> globalTimings = new LinkedHashMap<>();
+	private final ConcurrentHashMap<String, AtomicLongArray> moduleTimings = new ConcurrentHashMap<>();
+	
+	/**
+	 * Keeps the modules in the order in which they were first recorded. Guarded by moduleTimings
+	 */
+	private final List<String> moduleOrder = new ArrayList<>();
+	
+	/**
+	 * Record a phase which is not specific to a module, e.g. discovery. Must be called from the main thread
+	 * @param name The name of the phase
+	 * @param nanos The duration in nanoseconds
+	 */
+	public void recordGlobal(String name, long nanos) {
+		synchronized(this.globalTimings) {
+			this.globalTimings.merge(name, nanos, Long::sum);
+		}
+	}
+	
+	/**
+	 * Record a phase of loading a module. Durations recorded for the same module and phase are added up
+	 * @param moduleName The name of the module
+	 * @param phase The phase
+	 * @param nanos The duration in nanoseconds
+	 */
+	public void record(String moduleName, Phase phase, long nanos) {
+		AtomicLongArray timings = this.moduleTimings.get(moduleName);
+		if(timings == null) {
+			synchronized(this.moduleTimings) {
+				timings = this.moduleTimings.get(moduleName);
+				if(timings == null) {
+					timings = new AtomicLongArray(Phase.values().length);
+					this.moduleTimings.put(moduleName, timings);
+					this.moduleOrder.add(moduleName);
+				}
+			}
+		}
+		
+		timings.addAndGet(phase.ordinal(), nanos);
+	}
+	
+	/**
+	 * Remove the timings of a module, e.g. because it was unloaded
+	 * @param moduleName The name of the module
+	 */
+	public void remove(String moduleName) {
+		synchronized(this.moduleTimings) {
+			this.moduleTimings.remove(moduleName);
+			this.moduleOrder.remove(moduleName);
+		}
+	}
+	
+	/**
+	 * Get the recorded duration of a phase of loading a module
+	 * @param moduleName The name of the module
+	 * @param phase The phase
+	 * @return Returns the duration in nanoseconds, 0 if nothing was recorded
+	 */
+	public long get(String moduleName, Phase phase) {
+		AtomicLongArray timings = this.moduleTimings.get(moduleName);
+		return (timings != null) ? timings.get(phase.ordinal()) : 0;
+	}
+	
+	/**
+	 * Format the timings as a table
+	 * @return Returns the lines of the table
+	 */
+	public List<String> formatTable() {
+		List<String> lines = new ArrayList<>();
+		
+		synchronized(this.globalTimings) {
+			for(Map.Entry<String, Long> entry : this.globalTimings.entrySet()) {
+				lines.add(String.format("%-24s %10s", entry.getKey(), formatMillis(entry.getValue())));
+			}
+		}
+		
+		LinkedHashMap<String, AtomicLongArray> modules = snapshotModules();
+		if(modules.isEmpty()) {
+			return lines;
+		}
+		
+		int nameWidth = "Module".length();
+		for(String module : modules.keySet()) {
+			nameWidth = Math.max(nameWidth, module.length());
+		}
+		
+		StringBuilder header = new StringBuilder(String.format("%-" + nameWidth + "s", "Module"));
+		for(Phase phase : Phase.values()) {
+			header.append(String.format(" %10s", phase.getDisplayName()));
+		}
+		
+		header.append(String.format(" %10s", "Total"));
+		lines.add(header.toString());
+		
+		long[] columnTotals = new long[Phase.values().length + 1];
+		for(Map.Entry<String, AtomicLongArray> module : modules.entrySet()) {
+			AtomicLongArray timings = module.getValue();
+			StringBuilder row = new StringBuilder(String.format("%-" + nameWidth + "s", module.getKey()));
+			
+			long total = 0;
+			for(Phase phase : Phase.values()) {
+				long nanos = timings.get(phase.ordinal());
+				total += nanos;
+				columnTotals[phase.ordinal()] += nanos;
+				row.append(String.format(" %10s", formatMillis(nanos)));
+			}
+			
+			columnTotals[columnTotals.length - 1] += total;
+			row.append(String.format(" %10s", formatMillis(total)));
+			lines.add(row.toString());
+		}
+		
+		StringBuilder totals = new StringBuilder(String.format("%-" + nameWidth + "s", "Total"));
+		for(long nanos : columnTotals) {
+			totals.append(String.format(" %10s", formatMillis(nanos)));
+		}
+		
+		lines.add(totals.toString());
+		return lines;
+	}
+	
+	/**
+	 * Write the timings as JSON, so they can be compared between builds
+	 * @param file The file to write to. It is overwritten if it exists
+	 * @param version The version of DutchyCore
+	 */
+	public void writeJson(File file, String version) {
+		LinkedHashMap<String, Object> root = new LinkedHashMap<>();
+		root.put("dutchyCoreVersion", version);
+		root.put("timestamp", System.currentTimeMillis());
+		
+		synchronized(this.globalTimings) {
+			root.put("phases", new LinkedHashMap<>(this.globalTimings));
+		}
+		
+		LinkedHashMap<String, AtomicLongArray> modules = snapshotModules();
+		List<Map<String, Object>> moduleList = new ArrayList<>(modules.size());
+		for(Map.Entry<String, AtomicLongArray> module : modules.entrySet()) {
+			AtomicLongArray timings = module.getValue();
+			
+			LinkedHashMap<String, Object> moduleEntry = new LinkedHashMap<>();
+			moduleEntry.put("name", module.getKey());
+			for(Phase phase : Phase.values()) {
+				moduleEntry.put(phase.getJsonKey(), timings.get(phase.ordinal()));
+			}
+			
+			moduleList.add(moduleEntry);
+		}
+		
+		root.put("modules", moduleList);
+		
+		Gson gson = new GsonBuilder().setPrettyPrinting().create();
+		try(Writer writer = new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8)) {
+			gson.toJson(root, writer);
+		} catch(IOException e) {
+			DutchyCore.logWarn(String.format("Failed to write module timings to '%s': %s", file.getAbsolutePath(), Utils.getStackTrace(e)));
+		}
+	}
+	
+	/**
+	 * Get the modules with their timings in the order in which they were first recorded. Taken under the lock, so a module removed meanwhile is either fully in it or not at all
+	 * @return Returns a copy of the modules and their timings
+	 */
+	private LinkedHashMap<String, AtomicLongArray> snapshotModules() {
+		LinkedHashMap<String, AtomicLongArray> modules = new LinkedHashMap<>();
+		synchronized(this.moduleTimings) {
+			for(String module : this.moduleOrder) {
+				modules.put(module, this.moduleTimings.get(module));
+			}
+		}
+		
+		return modules;
+	}
+	
+	private static String formatMillis(long nanos) {
+		return String.format(Locale.ROOT, "%.2fms", nanos / 1_000_000d);
+	}
+}
@@ -0,0 +1,185 @@
+package dev.array21.dutchycore.module;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.bukkit.Bukkit;
+
+import dev.array21.dutchycore.DutchyCore;
+import dev.array21.dutchycore.utils.Utils;
+
+/**
+ * Watches the modules folder and reloads a module when its jar is added, replaced or removed<br>
+ * <br>
+ * Changes are collected on a background thread. A jar is only reloaded once it has not changed for {@link #DEBOUNCE_MILLIS},
+ * so a jar which is still being copied is not loaded halfway. Reloads always happen on the main thread.
+ *
+ * @since 0.1.0
+ */
+public class ModuleWatcher implements Runnable {
+	
+	/**
+	 * How long a jar must be unchanged before it is reloaded
+	 */
+	private static final long DEBOUNCE_MILLIS = 1000;
+	
+	private final DutchyCore plugin;
+	private final ModuleLoader moduleLoader;
+	private final File moduleFolder;
+	
+	/**
+	 * Changed jars, mapped to the time of their last change. Guarded by itself
+	 */
+	private final HashMap<Path, Long> pendingChanges = new HashMap<>();
+	private boolean flushScheduled = false;
+	
+	private WatchService watchService;
+	private Thread thread;
+	
+	public ModuleWatcher(DutchyCore plugin, ModuleLoader moduleLoader, File moduleFolder) {
+		this.plugin = plugin;
+		this.moduleLoader = moduleLoader;
+		this.moduleFolder = moduleFolder;
+	}
+	
+	/**
+	 * Start watching the modules folder
+	 */
+	public void start() {
+		try {
+			this.watchService = FileSystems.getDefault().newWatchService();
+			
+			//Modules are discovered in subfolders as well, so those have to be watched too
+			try(Stream<Path> walk = Files.walk(this.moduleFolder.toPath())) {
+				for(Path directory : (Iterable<Path>) walk.filter(Files::isDirectory)::iterator) {
+					register(directory);
+				}
+			}
+		} catch(IOException e) {
+			DutchyCore.logWarn(String.format("Failed to watch the modules folder, modules will not be reloaded automatically: %s", Utils.getStackTrace(e)));
+			return;
+		}
+		
+		this.thread = new Thread(this, "DutchyCore-ModuleWatcher");
+		this.thread.setDaemon(true);
+		this.thread.start();
+		
+		DutchyCore.logInfo("Watching the modules folder for changes");
+	}
+	
+	/**
+	 * Stop watching the modules folder. Pending changes are discarded
+	 */
+	public void stop() {
+		try {
+			if(this.watchService != null) {
+				this.watchService.close();
+			}
+		} catch(IOException e) {
+			e.printStackTrace();
+		}
+		
+		if(this.thread != null) {
+			this.thread.interrupt();
+		}
+	}
+	
+	@Override
+	public void run() {
+		while(true) {
+			WatchKey key;
+			try {
+				key = this.watchService.take();
+			} catch(InterruptedException | ClosedWatchServiceException e) {
+				return;
+			}
+			
+			Path directory = (Path) key.watchable();
+			for(WatchEvent<?> event : key.pollEvents()) {
+				if(event.kind() == StandardWatchEventKinds.OVERFLOW) {
+					continue;
+				}
+				
+				Path changed = directory.resolve((Path) event.context());
+				if(event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+					try {
+						register(changed);
+					} catch(IOException e) {
+						DutchyCore.logWarn(String.format("Failed to watch folder '%s': %s", changed, Utils.getStackTrace(e)));
+					}
+					
+					continue;
+				}
+				
+				if(changed.toString().endsWith(".jar")) {
+					synchronized(this.pendingChanges) {
+						this.pendingChanges.put(changed, System.currentTimeMillis());
+						scheduleFlush();
+					}
+				}
+			}
+			
+			key.reset();
+		}
+	}
+	
+	private void register(Path directory) throws IOException {
+		directory.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+	}
+	
+	/**
+	 * Schedule a flush on the main thread, if none is scheduled yet. Must be called while holding the lock on pendingChanges
+	 */
+	private void scheduleFlush() {
+		if(this.flushScheduled) {
+			return;
+		}
+		
+		this.flushScheduled = true;
+		Bukkit.getScheduler().runTaskLater(this.plugin, this::flush, 20L);
+	}
+	
+	/**
+	 * Reload the jars which have not changed for {@link #DEBOUNCE_MILLIS}. Runs on the main thread
+	 */
+	private void flush() {
+		List<Path> toReload = new ArrayList<>();
+		synchronized(this.pendingChanges) {
+			this.flushScheduled = false;
+			
+			long now = System.currentTimeMillis();
+			Iterator<Map.Entry<Path, Long>> iterator = this.pendingChanges.entrySet().iterator();
+			while(iterator.hasNext()) {
+				Map.Entry<Path, Long> entry = iterator.next();
+				if(now - entry.getValue() >= DEBOUNCE_MILLIS) {
+					toReload.add(entry.getKey());
+					iterator.remove();
+				}
+			}
+			
+			//Jars which are still changing are checked again later
+			if(!this.pendingChanges.isEmpty()) {
+				scheduleFlush();
+			}
+		}
+		
+		for(Path jar : toReload) {
+			DutchyCore.logInfo(String.format("Module jar '%s' changed, reloading", jar.getFileName()));
+			this.moduleLoader.reloadModuleFile(jar.toFile());
+		}
+	}
+}
@@ -1,14 +1,14 @@
 package dev.array21.dutchycore.module;
 
-import java.lang.annotation.Annotation;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import org.bukkit.Bukkit;
-import org.bukkit.event.HandlerList;
+import org.bukkit.event.Event;
 import org.bukkit.event.Listener;
 import org.bukkit.permissions.PermissionDefault;
 
@@ -20,11 +20,18 @@ import dev.array21.dutchycore.module.commands.ModuleTabCompleter;
 import dev.array21.dutchycore.module.events.ModuleEvent;
 import dev.array21.dutchycore.module.events.ModuleEventListener;
 import dev.array21.dutchycore.module.file.ModuleFileHandler;
+import dev.array21.dutchycore.utils.Utils;
 
 public abstract class PluginModule {
 
 	private DutchyCore plugin;
 	private ModuleFileHandler moduleFileHandler;
+	
+	/**
+	 * Registered through this PluginModule, removed when the module is unloaded
+	 */
+	private final List<Listener> eventListeners = new ArrayList<>();
+	private final List<String> permissionNodes = new ArrayList<>();
 
 	/**
 	 * This method should only be called by {@link ModuleLoader}
@@ -47,30 +54,55 @@ public abstract class PluginModule {
 		//Implementation by module is optional
 	}
 	
+	/**
+	 * Called when the module is disabled, before it is reloaded or when the server stops<br>
+	 * <br>
+	 * Commands, event listeners and permission nodes registered through DutchyCore are removed afterwards, the module does not have to do this itself
+	 */
+	public void disable() {
+		//Implementation by module is optional
+	}
+	
+	/**
+	 * Remove the event listeners and permission nodes registered by this module. This method should only be called by {@link ModuleLoader}
+	 */
+	protected void unregisterAll() {
+		DutchyCore.getModuleLoader().eventBus.unregisterOwner(this);
+		DutchyCore.getModuleLoader().bukkitEventHub.unregisterOwner(this);
+		
+		for(String permissionNode : this.permissionNodes) {
+			Bukkit.getPluginManager().removePermission(permissionNode);
+		}
+		
+		this.eventListeners.clear();
+		this.permissionNodes.clear();
+	}
 	
 	/**
 	 * Get the Module associated with this PluginModule
 	 * @return Returns the Module
 	 */
 	public Module getModuleInfo() {
-		for(Module m : DutchyCore.getModuleLoader().getAllModules()) {
-			if(m.getModule().equals(this)) {
-				return m;
-			}
-		}
-		
-		//Unreachable
-		return null;
+		return DutchyCore.getModuleLoader().getModule(this);
 	}
 	
 	/**
-	 * Get a PluginModule
+	 * Get a PluginModule<br>
+	 * <br>
+	 * If the module is lazy and has not been used yet, it is enabled first. That happens on the main thread, when called from another thread this waits for it,
+	 * so it must not be called from a thread the main thread is waiting for
 	 * @param moduleName The name of the Module
 	 * @return Returns a PluginModule, if none was found null
 	 */
 	@Nullable
 	public PluginModule getPluginModule(String moduleName) {
-		for(Module m : DutchyCore.getModuleLoader().getAllModules()) {
+		ModuleLoader moduleLoader = DutchyCore.getModuleLoader();
+		if(moduleLoader.isLazyModule(moduleName)) {
+			//Enabling a module registers its commands and listeners, which must happen on the main thread
+			supplyOnMainThread(() -> moduleLoader.activateLazyModule(moduleName)).join();
+		}
+		
+		for(Module m : moduleLoader.getAllModules()) {
 			if(m.getName().equalsIgnoreCase(moduleName)) return m.getModule();
 		}
 		
@@ -78,63 +110,133 @@ public abstract class PluginModule {
 	}
 	
 	/**
-	 * Throw a ModuleEvent
+	 * Throw a ModuleEvent<br>
+	 * <br>
+	 * If it is a {@link dev.array21.dutchycore.module.events.PooledModuleEvent}, it is returned to its pool once all handlers have been invoked.
+	 * It must not be used after this method returns<br>
+	 * <br>
+	 * Lazy modules listening for the event are enabled on the main thread first. When called from another thread this waits for it,
+	 * so it must not be called from a thread the main thread is waiting for
 	 * @param <T> The type of the ModuleEvent to be thrown
 	 * @param moduleEvent Instance of the ModuleEvent
 	 */
 	public <T extends ModuleEvent> void throwModuleEvent(T moduleEvent) {
+		ModuleLoader moduleLoader = DutchyCore.getModuleLoader();
 		
-		//Get all methods which handle events
-		HashMap<ModuleEventListener, Method> handlers = new HashMap<>();
-		for(ModuleEventListener listener : DutchyCore.getModuleLoader().moduleEventListeners) {
-			Class<?> clazz = listener.getClass();
-			
-			for(Method m : getMethodsAnnotatedWith(clazz, EventHandler.class)) {
-				if(doesMethodHaveParameter(m, moduleEvent.getClass())) {
-					handlers.put(listener, m);
-				}
-			}
+		//Lazy modules listening for this event have to be enabled before the event is delivered. Enabling registers commands and listeners, which must happen on the main thread
+		if(moduleLoader.hasLazyModulesFor(moduleEvent.getClass())) {
+			runOnMainThread(() -> moduleLoader.activateLazyModulesFor(moduleEvent.getClass())).join();
 		}
 		
-		//Get all listeners for this ModuleEvent
-		//List<ModuleEventListener> listeners = DutchyCore.getModuleLoader().moduleEventListeners.get(moduleEvent.getClass());
-		
-		//Iterate over the event listeners and call the onEvent method
-		handlers.forEach((k, v) -> {
-			try {
-				v.invoke(k, moduleEvent);
-			} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-				e.printStackTrace();
-			}
-		});
+		//The handlers were looked up when their listeners were registered
+		moduleLoader.eventBus.post(moduleEvent);
 	}
 	
-	private boolean doesMethodHaveParameter(Method method, Class<?> parameterType) {
-		for(Class<?> clazz : method.getParameterTypes()) {
-			if(clazz.equals(parameterType)) return true;
+	/**
+	 * Throw a ModuleEvent without waiting for its handlers<br>
+	 * <br>
+	 * Handlers annotated with <code>@EventHandler(async = true)</code> are invoked on a worker thread. All other handlers are invoked on the main thread,
+	 * immediately if this is called from the main thread
+	 * @param <T> The type of the ModuleEvent to be thrown
+	 * @param moduleEvent Instance of the ModuleEvent
+	 * @return Returns a CompletableFuture with the ModuleEvent, which completes when all handlers have been invoked
+	 */
+	public <T extends ModuleEvent> CompletableFuture<T> throwModuleEventAsync(T moduleEvent) {
+		ModuleLoader moduleLoader = DutchyCore.getModuleLoader();
+		if(!moduleLoader.hasLazyModulesFor(moduleEvent.getClass())) {
+			return moduleLoader.eventBus.postAsync(moduleEvent).thenApply(v -> moduleEvent);
 		}
 		
-		return false;
+		//Enabling a module registers its commands and listeners, which must happen on the main thread. The event is delivered once that is done
+		return runOnMainThread(() -> moduleLoader.activateLazyModulesFor(moduleEvent.getClass()))
+				.thenCompose(v -> moduleLoader.eventBus.postAsync(moduleEvent))
+				.thenApply(v -> moduleEvent);
 	}
 	
-	private List<Method> getMethodsAnnotatedWith(Class<?> classToSearch, Class<? extends Annotation> annotation) {
-		List<Method> methods = new ArrayList<>();
-		
-		for(Method m : classToSearch.getDeclaredMethods()) {
-			if(m.isAnnotationPresent(annotation)) {
-				methods.add(m);
-			}
+	/**
+	 * Queue a ModuleEvent, to be delivered on the next tick together with all other events queued until then<br>
+	 * <br>
+	 * Handlers taking a {@link dev.array21.dutchycore.module.events.ModuleEventBatch} receive all queued events of their type in one batch, other handlers receive them one by one.
+	 * May be called from any thread
+	 * @param <T> The type of the ModuleEvent to be queued
+	 * @param moduleEvent Instance of the ModuleEvent
+	 */
+	public <T extends ModuleEvent> void queueModuleEvent(T moduleEvent) {
+		queueModuleEvent(moduleEvent, null);
+	}
+	
+	/**
+	 * Queue a ModuleEvent, to be delivered on the next tick together with all other events queued until then<br>
+	 * <br>
+	 * If an event of the same class with an equal coalesce key is still queued, it is replaced, so only the latest event per key is delivered.
+	 * E.g. use the location of a block as key to only deliver its latest state
+	 * @param <T> The type of the ModuleEvent to be queued
+	 * @param moduleEvent Instance of the ModuleEvent
+	 * @param coalesceKey {@link Nullable} The coalesce key. If null, the event is never replaced
+	 */
+	public <T extends ModuleEvent> void queueModuleEvent(T moduleEvent, @Nullable Object coalesceKey) {
+		ModuleLoader moduleLoader = DutchyCore.getModuleLoader();
+		if(!moduleLoader.hasLazyModulesFor(moduleEvent.getClass())) {
+			moduleLoader.eventBus.queue(moduleEvent, coalesceKey);
+			return;
 		}
 		
-		return methods;
+		//Enabling a module registers its commands and listeners, which must happen on the main thread. The event is queued once that is done
+		runOnMainThread(() -> {
+			moduleLoader.activateLazyModulesFor(moduleEvent.getClass());
+			moduleLoader.eventBus.queue(moduleEvent, coalesceKey);
+		});
 	}
 	
 	/**
-	 * Register a ModuleEventListener
+	 * Run a task on the main thread, e.g. to use the Bukkit API from an asynchronous EventHandler
+	 * @param task The task to run. It is run immediately if this is called from the main thread
+	 * @return Returns a CompletableFuture which completes when the task has run
+	 */
+	public CompletableFuture<Void> runOnMainThread(Runnable task) {
+		return Utils.runOnMainThread(this.plugin, task);
+	}
+	
+	/**
+	 * Compute a value on the main thread, e.g. to use the Bukkit API from an asynchronous EventHandler
+	 * @param <T> The type of the value
+	 * @param supplier Computes the value. It is run immediately if this is called from the main thread
+	 * @return Returns a CompletableFuture with the value
+	 */
+	public <T> CompletableFuture<T> supplyOnMainThread(Supplier<T> supplier) {
+		return Utils.supplyOnMainThread(this.plugin, supplier);
+	}
+	
+	/**
+	 * Register a ModuleEventListener<br>
+	 * <br>
+	 * Its methods annotated with {@link EventHandler} are looked up once, here. A handler method must take a single ModuleEvent as parameter,
+	 * and receives events of that type and of all its subtypes. A handler taking a {@link dev.array21.dutchycore.module.events.ModuleEventBatch} receives queued events per tick
 	 * @param eventListener An instance of a ModuleEventListener that wants to receive events
 	 */
 	public void registerModuleEventListener(ModuleEventListener eventListener) {
-		DutchyCore.getModuleLoader().moduleEventListeners.add(eventListener);
+		registerModuleEventListener(eventListener, false);
+	}
+	
+	/**
+	 * Register a ModuleEventListener, owned by this PluginModule. It is unregistered when this module is disabled<br>
+	 * <br>
+	 * A weakly registered listener is not kept reachable by DutchyCore. Once nothing else references it, it stops receiving events and is removed.
+	 * Use this for short-lived listeners, e.g. one per player session, which would otherwise have to be unregistered manually
+	 * @param eventListener An instance of a ModuleEventListener that wants to receive events
+	 * @param weak True to register the listener weakly
+	 */
+	public void registerModuleEventListener(ModuleEventListener eventListener, boolean weak) {
+		DutchyCore.getModuleLoader().eventBus.register(eventListener, this, weak);
+	}
+	
+	/**
+	 * Unregister a ModuleEventListener. It no longer receives events thrown after this method returns
+	 * @param eventListener The ModuleEventListener to unregister
+	 * @return Returns true if the ModuleEventListener was registered
+	 */
+	public boolean unregisterModuleEventListener(ModuleEventListener eventListener) {
+		return DutchyCore.getModuleLoader().eventBus.unregister(eventListener);
 	}
 	
 	/**
@@ -143,7 +245,7 @@ public abstract class PluginModule {
 	 * @return Returns true if the module is registered
 	 */
 	public boolean isModuleRegistered(String moduleName) {
-		for(Module m : DutchyCore.getModuleLoader().loadedModules.values()) {
+		for(Module m : DutchyCore.getModuleLoader().getRegisteredModules()) {
 			if(m.getName().equalsIgnoreCase(moduleName)) return true;
 		}
 		
@@ -181,14 +283,18 @@ public abstract class PluginModule {
 	 */ 
 	public void registerPermissionNode(String name, @Nullable PermissionDefault permissionDefault, @Nullable String description, @Nullable HashMap<String, Boolean> children) {		
 		DutchyCore.getCommandRegister().registerPermissionNode(name, permissionDefault, description, children);
+		this.permissionNodes.add(name);
 	}
 	
 	/**
-	 * Register an event listener
+	 * Register an event listener<br>
+	 * <br>
+	 * The listener is not registered with Bukkit directly. DutchyCore registers once per event type and priority, and passes events on to the listeners of all modules
 	 * @param listener The event listener to register
 	 */
 	public void registerEventListener(Listener listener) {
-		Bukkit.getPluginManager().registerEvents(listener, this.plugin);
+		DutchyCore.getModuleLoader().bukkitEventHub.register(listener, this);
+		this.eventListeners.add(listener);
 	}
 	
 	/**
@@ -196,7 +302,29 @@ public abstract class PluginModule {
 	 * @param listener The event listener to unregister
 	 */
 	public void unregisterEventListener(Listener listener) {
-		HandlerList.unregisterAll(listener);
+		DutchyCore.getModuleLoader().bukkitEventHub.unregister(listener);
+		this.eventListeners.remove(listener);
+	}
+	
+	/**
+	 * Register a filter for the Bukkit events delivered to the event listeners of this module. The filter is evaluated once per event, before any listener of this module is invoked<br>
+	 * <br>
+	 * The filter only applies to events of the given type, e.g. <code>registerEventFilter(PlayerMoveEvent.class, BukkitEventFilters.movedBlock())</code>.
+	 * Filters are removed when the module is unloaded
+	 * @param <T> The type of the events to filter
+	 * @param eventClass The class of the events to filter
+	 * @param filter Returns true for events the event listeners of this module should receive
+	 */
+	public <T extends Event> void registerEventFilter(Class<T> eventClass, Predicate<? super T> filter) {
+		DutchyCore.getModuleLoader().bukkitEventHub.registerFilter(this, eventClass, filter);
+	}
+	
+	/**
+	 * Get the number of Bukkit event listeners registered through this PluginModule
+	 * @return Returns the number of event listeners
+	 */
+	int getEventListenerCount() {
+		return this.eventListeners.size();
 	}
 	
 	/**
@@ -248,4 +376,13 @@ public abstract class PluginModule {
 		
 		return this.moduleFileHandler;
 	}
+	
+	/**
+	 * Get the file handler for this PluginModule, without creating it
+	 * @return Returns the ModuleFileHandler, null if the module never used it
+	 */
+	@Nullable
+	ModuleFileHandler getModuleFileHandlerIfCreated() {
+		return this.moduleFileHandler;
+	}
 }
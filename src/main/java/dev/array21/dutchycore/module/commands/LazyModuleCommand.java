@@ -0,0 +1,38 @@
+package dev.array21.dutchycore.module.commands;
+
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+
+import dev.array21.dutchycore.DutchyCore;
+
+/**
+ * Stub for a command of a lazy module. The first time it is run, the module is enabled and the command is passed on to the module's own ModuleCommand
+ */
+public class LazyModuleCommand implements ModuleCommand {
+	
+	private String moduleName, commandName, namespace;
+	
+	public LazyModuleCommand(String moduleName, String commandName, String namespace) {
+		this.moduleName = moduleName;
+		this.commandName = commandName;
+		this.namespace = namespace;
+	}
+	
+	@Override
+	public boolean fire(CommandSender sender, String[] args) {
+		if(!DutchyCore.getModuleLoader().activateLazyModule(this.moduleName)) {
+			sender.sendMessage(ChatColor.RED + "This command is currently unavailable.");
+			return true;
+		}
+		
+		//Enabling the module replaced this stub with the module's own command
+		ModuleCommand moduleCommand = DutchyCore.getCommandRegister().getModuleCommand(this.commandName, this.namespace);
+		if(moduleCommand == null || moduleCommand == this) {
+			DutchyCore.logWarn(String.format("Module '%s' declares the command '%s', but did not register it while enabling.", this.moduleName, this.commandName));
+			sender.sendMessage(ChatColor.RED + "This command is currently unavailable.");
+			return true;
+		}
+		
+		return moduleCommand.fire(sender, args);
+	}
+}
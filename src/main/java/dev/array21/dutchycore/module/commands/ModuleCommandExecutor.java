@@ -12,6 +12,14 @@ public class ModuleCommandExecutor implements CommandExecutor {
 		this.moduleCommand = moduleCommand;
 	}
 
+	/**
+	 * Get the ModuleCommand this executor delegates to
+	 * @return Returns the ModuleCommand
+	 */
+	public ModuleCommand getModuleCommand() {
+		return this.moduleCommand;
+	}
+	
 	@Override
 	public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
 		return this.moduleCommand.fire(sender, args);
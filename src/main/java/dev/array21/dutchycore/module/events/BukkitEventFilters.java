@@ -0,0 +1,78 @@
+package dev.array21.dutchycore.module.events;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.event.Event;
+import org.bukkit.event.block.BlockEvent;
+import org.bukkit.event.entity.EntityEvent;
+import org.bukkit.event.player.PlayerEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.world.WorldEvent;
+
+import dev.array21.dutchycore.annotations.Nullable;
+
+/**
+ * Common filters for {@link dev.array21.dutchycore.module.PluginModule#registerEventFilter(Class, Predicate)}
+ *
+ * @since 0.1.0
+ */
+public class BukkitEventFilters {
+	
+	/**
+	 * Only pass events which happen in one of the given worlds. Events which do not happen in a world always pass
+	 * @param worldNames The names of the worlds
+	 * @return Returns the filter
+	 */
+	public static Predicate<Event> inWorlds(String... worldNames) {
+		Set<String> names = new HashSet<>(Arrays.asList(worldNames));
+		return event -> {
+			World world = getWorld(event);
+			return world == null || names.contains(world.getName());
+		};
+	}
+	
+	/**
+	 * Only pass PlayerMoveEvents in which the player moved to another block. Turning the head or moving within a block is filtered out
+	 * @return Returns the filter
+	 */
+	public static Predicate<PlayerMoveEvent> movedBlock() {
+		return event -> {
+			Location from = event.getFrom();
+			Location to = event.getTo();
+			
+			return to != null
+					&& (from.getBlockX() != to.getBlockX() || from.getBlockY() != to.getBlockY() || from.getBlockZ() != to.getBlockZ() || from.getWorld() != to.getWorld());
+		};
+	}
+	
+	/**
+	 * Get the world an event happens in
+	 * @param event The event
+	 * @return Returns the World, null if the event does not happen in a world
+	 */
+	@Nullable
+	private static World getWorld(Event event) {
+		if(event instanceof PlayerEvent) {
+			return ((PlayerEvent) event).getPlayer().getWorld();
+		}
+		
+		if(event instanceof BlockEvent) {
+			return ((BlockEvent) event).getBlock().getWorld();
+		}
+		
+		if(event instanceof EntityEvent) {
+			return ((EntityEvent) event).getEntity().getWorld();
+		}
+		
+		if(event instanceof WorldEvent) {
+			return ((WorldEvent) event).getWorld();
+		}
+		
+		return null;
+	}
+}
@@ -0,0 +1,439 @@
+package dev.array21.dutchycore.module.events;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.bukkit.Bukkit;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.IllegalPluginAccessException;
+import org.bukkit.plugin.Plugin;
+
+import dev.array21.dutchycore.DutchyCore;
+import dev.array21.dutchycore.annotations.Nullable;
+import dev.array21.dutchycore.module.PluginModule;
+import dev.array21.dutchycore.utils.Utils;
+
+/**
+ * Delivers Bukkit events to the listeners of all modules through a single registration with Bukkit per event class and priority<br>
+ * <br>
+ * Without the hub every module listener is registered with Bukkit on its own, so a frequent event like PlayerMoveEvent passes through one
+ * reflective EventExecutor per module. The hub instead registers one {@link Channel} per event class and priority, which loops over a
+ * precompiled array of handlers. Handlers get an invoker generated with LambdaMetafactory, like ModuleEvent handlers.<br>
+ * <br>
+ * Modules may register filters with {@link #registerFilter(PluginModule, Class, Predicate)}. The filters of a module are evaluated once per event,
+ * before any handler of that module is invoked. If one of them rejects the event, none of the handlers of the module receive it.<br>
+ * <br>
+ * Registering or unregistering rebuilds the arrays of the affected channels and publishes them at once. Delivery never locks,
+ * so asynchronous Bukkit events are safe as well.
+ *
+ * @since 0.1.0
+ */
+public class BukkitEventHub {
+	
+	private static final HubHandler[] NO_HANDLERS = new HubHandler[0];
+	private static final ModuleGroup[] NO_GROUPS = new ModuleGroup[0];
+	
+	private final Plugin plugin;
+	private final EventMetrics metrics;
+	
+	/**
+	 * All handlers, in registration order. Guarded by this
+	 */
+	private final List<HubHandler> handlers = new ArrayList<>();
+	
+	/**
+	 * Filters by the module which registered them. Guarded by this
+	 */
+	private final HashMap<PluginModule, List<EventFilter>> filters = new HashMap<>();
+	
+	/**
+	 * Channels registered with Bukkit, keyed by a list of the event class and the priority. Guarded by this
+	 */
+	private final HashMap<List<Object>, Channel> channels = new HashMap<>();
+	
+	/**
+	 * Create a BukkitEventHub
+	 * @param plugin DutchyCore instance, the channels are registered with Bukkit in its name
+	 * @param metrics {@link Nullable} Records how long each handler takes. If null, nothing is recorded
+	 */
+	public BukkitEventHub(Plugin plugin, @Nullable EventMetrics metrics) {
+		this.plugin = plugin;
+		this.metrics = metrics;
+	}
+	
+	/**
+	 * Register the {@link org.bukkit.event.EventHandler} methods of a Bukkit listener
+	 * @param listener The Bukkit listener
+	 * @param owner {@link Nullable} The module registering the listener. Its filters apply to the handlers of the listener
+	 */
+	public synchronized void register(Listener listener, @Nullable PluginModule owner) {
+		Set<Method> methods = new LinkedHashSet<>(Arrays.asList(listener.getClass().getMethods()));
+		methods.addAll(Arrays.asList(listener.getClass().getDeclaredMethods()));
+		
+		Set<List<Object>> affected = new LinkedHashSet<>();
+		for(Method method : methods) {
+			org.bukkit.event.EventHandler annotation = method.getAnnotation(org.bukkit.event.EventHandler.class);
+			if(annotation == null || method.isBridge() || method.isSynthetic()) {
+				continue;
+			}
+			
+			if(method.getParameterCount() != 1 || !Event.class.isAssignableFrom(method.getParameterTypes()[0])) {
+				DutchyCore.logWarn(String.format("Event handler '%s' in '%s' must take exactly one Bukkit Event. It will not be registered.", method.getName(), listener.getClass().getName()));
+				continue;
+			}
+			
+			//Checked before anything is changed, Bukkit refuses to register these and the channel would never receive events
+			if(!hasHandlerList(method.getParameterTypes()[0])) {
+				DutchyCore.logWarn(String.format("Event handler '%s' in '%s' listens for '%s', which has no static getHandlerList method. It will not be registered.", method.getName(), listener.getClass().getName(), method.getParameterTypes()[0].getName()));
+				continue;
+			}
+			
+			ModuleEventBus.EventInvoker invoker;
+			try {
+				invoker = ModuleEventBus.createInvoker(method);
+			} catch(IllegalAccessException e) {
+				DutchyCore.logWarn(String.format("Failed to register event handler '%s' in '%s': %s", method.getName(), listener.getClass().getName(), Utils.getStackTrace(e)));
+				continue;
+			}
+			
+			@SuppressWarnings("unchecked")
+			Class<? extends Event> eventClass = (Class<? extends Event>) method.getParameterTypes()[0];
+			HandlerMetrics handlerMetrics = (this.metrics != null) ? this.metrics.getHandlerMetrics(EventMetrics.getHandlerName(method)) : null;
+			
+			HubHandler handler = new HubHandler(listener, method, eventClass, annotation.priority(), annotation.ignoreCancelled(), owner, invoker, handlerMetrics);
+			this.handlers.add(handler);
+			affected.add(handler.getChannelKey());
+		}
+		
+		rebuild(affected);
+	}
+	
+	/**
+	 * Unregister all handlers of a Bukkit listener
+	 * @param listener The Bukkit listener
+	 * @return Returns true if the listener was registered
+	 */
+	public synchronized boolean unregister(Listener listener) {
+		return removeHandlers(handler -> handler.listener == listener);
+	}
+	
+	/**
+	 * Unregister all handlers and filters registered by a module
+	 * @param owner The module
+	 */
+	public synchronized void unregisterOwner(PluginModule owner) {
+		this.filters.remove(owner);
+		
+		//Without its filters, the channels of the module have to be rebuilt even if it had no handlers left
+		Set<List<Object>> affected = new LinkedHashSet<>();
+		for(HubHandler handler : this.handlers) {
+			if(handler.owner == owner) {
+				affected.add(handler.getChannelKey());
+			}
+		}
+		
+		this.handlers.removeIf(handler -> handler.owner == owner);
+		rebuild(affected);
+	}
+	
+	/**
+	 * Unregister all handlers declared by classes loaded by a ClassLoader, e.g. because the module jar was unloaded
+	 * @param classLoader The ClassLoader
+	 */
+	public synchronized void unregisterAll(ClassLoader classLoader) {
+		removeHandlers(handler -> handler.method.getDeclaringClass().getClassLoader() == classLoader);
+	}
+	
+	/**
+	 * Register a filter for the Bukkit events delivered to a module<br>
+	 * <br>
+	 * The filter only applies to events of the given type. Events of other types pass it
+	 * @param <T> The type of the events to filter
+	 * @param owner The module
+	 * @param eventClass The class of the events to filter, e.g. PlayerMoveEvent
+	 * @param filter Returns true for events the handlers of the module should receive
+	 */
+	public synchronized <T extends Event> void registerFilter(PluginModule owner, Class<T> eventClass, Predicate<? super T> filter) {
+		this.filters.computeIfAbsent(owner, k -> new ArrayList<>()).add(new EventFilter(eventClass, filter));
+		
+		Set<List<Object>> affected = new LinkedHashSet<>();
+		for(HubHandler handler : this.handlers) {
+			if(handler.owner == owner) {
+				affected.add(handler.getChannelKey());
+			}
+		}
+		
+		rebuild(affected);
+	}
+	
+	/**
+	 * Get the number of Bukkit registrations the hub holds
+	 * @return Returns the number of channels
+	 */
+	public synchronized int getChannelCount() {
+		return this.channels.size();
+	}
+	
+	/**
+	 * Remove the handlers matching a predicate. Must be called while holding the lock on this
+	 * @param predicate Returns true for the handlers to remove
+	 * @return Returns true if any handler was removed
+	 */
+	private boolean removeHandlers(Predicate<HubHandler> predicate) {
+		Set<List<Object>> affected = new LinkedHashSet<>();
+		for(HubHandler handler : this.handlers) {
+			if(predicate.test(handler)) {
+				affected.add(handler.getChannelKey());
+			}
+		}
+		
+		if(affected.isEmpty()) {
+			return false;
+		}
+		
+		this.handlers.removeIf(predicate);
+		rebuild(affected);
+		return true;
+	}
+	
+	/**
+	 * Rebuild the handler arrays of channels. Channels without handlers are unregistered from Bukkit, new ones are registered. Must be called while holding the lock on this
+	 * @param keys The keys of the channels to rebuild
+	 */
+	private void rebuild(Set<List<Object>> keys) {
+		for(List<Object> key : keys) {
+			
+			//Group the handlers by module, in registration order, so the filters of a module are only evaluated once
+			LinkedHashMap<PluginModule, List<HubHandler>> byOwner = new LinkedHashMap<>();
+			for(HubHandler handler : this.handlers) {
+				if(handler.getChannelKey().equals(key)) {
+					byOwner.computeIfAbsent(handler.owner, k -> new ArrayList<>()).add(handler);
+				}
+			}
+			
+			Channel channel = this.channels.get(key);
+			if(byOwner.isEmpty()) {
+				if(channel != null) {
+					HandlerList.unregisterAll(channel);
+					channel.groups = NO_GROUPS;
+					this.channels.remove(key);
+				}
+				
+				continue;
+			}
+			
+			@SuppressWarnings("unchecked")
+			Class<? extends Event> eventClass = (Class<? extends Event>) key.get(0);
+			
+			List<ModuleGroup> groups = new ArrayList<>(byOwner.size());
+			for(Map.Entry<PluginModule, List<HubHandler>> entry : byOwner.entrySet()) {
+				groups.add(new ModuleGroup(getFilters(entry.getKey(), eventClass), entry.getValue().toArray(NO_HANDLERS)));
+			}
+			
+			if(channel == null) {
+				channel = new Channel(eventClass);
+				channel.groups = groups.toArray(NO_GROUPS);
+				
+				//The channel checks ignoreCancelled per handler, so Bukkit has to pass it cancelled events as well
+				try {
+					Bukkit.getPluginManager().registerEvent(eventClass, channel, (EventPriority) key.get(1), channel, this.plugin, false);
+				} catch(IllegalPluginAccessException e) {
+					//Only added once registered, so a later listener for this key tries again instead of using a dead channel
+					DutchyCore.logWarn(String.format("Failed to register the handlers for '%s' with Bukkit, they will not receive events: %s", eventClass.getName(), Utils.getStackTrace(e)));
+					this.handlers.removeIf(handler -> handler.getChannelKey().equals(key));
+					continue;
+				}
+				
+				this.channels.put(key, channel);
+			} else {
+				channel.groups = groups.toArray(NO_GROUPS);
+			}
+		}
+	}
+	
+	/**
+	 * Check if Bukkit can register a listener for an event class. Like Bukkit, the class or one of its superclasses below Event must declare getHandlerList
+	 * @param eventClass The event class
+	 * @return Returns true if the event class has a HandlerList
+	 */
+	private static boolean hasHandlerList(Class<?> eventClass) {
+		for(Class<?> clazz = eventClass; clazz != null && clazz != Event.class && Event.class.isAssignableFrom(clazz); clazz = clazz.getSuperclass()) {
+			try {
+				clazz.getDeclaredMethod("getHandlerList");
+				return true;
+			} catch(NoSuchMethodException e) {
+				//Try the superclass
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Get the filters of a module which apply to a channel
+	 * @param owner {@link Nullable} The module
+	 * @param eventClass The event class of the channel
+	 * @return Returns the filters, null if there are none
+	 */
+	@Nullable
+	private EventFilter[] getFilters(@Nullable PluginModule owner, Class<? extends Event> eventClass) {
+		List<EventFilter> moduleFilters = (owner != null) ? this.filters.get(owner) : null;
+		if(moduleFilters == null) {
+			return null;
+		}
+		
+		//A filter for a subclass of the channel's event class still applies to some of its events, a filter for an unrelated class never does
+		List<EventFilter> applicable = new ArrayList<>();
+		for(EventFilter filter : moduleFilters) {
+			if(filter.eventClass.isAssignableFrom(eventClass) || eventClass.isAssignableFrom(filter.eventClass)) {
+				applicable.add(filter);
+			}
+		}
+		
+		return applicable.isEmpty() ? null : applicable.toArray(new EventFilter[0]);
+	}
+	
+	/**
+	 * A single registration with Bukkit, for one event class and priority
+	 */
+	private static class Channel implements Listener, EventExecutor {
+		
+		private final Class<? extends Event> eventClass;
+		private volatile ModuleGroup[] groups = NO_GROUPS;
+		
+		private Channel(Class<? extends Event> eventClass) {
+			this.eventClass = eventClass;
+		}
+		
+		@Override
+		public void execute(Listener listener, Event event) {
+			
+			//Events of subclasses sharing the HandlerList of eventClass arrive here too, like with Bukkit's own executors
+			if(!this.eventClass.isInstance(event)) {
+				return;
+			}
+			
+			for(ModuleGroup group : this.groups) {
+				if(group.filters != null && !group.accepts(event)) {
+					continue;
+				}
+				
+				for(HubHandler handler : group.handlers) {
+					handler.invoke(event);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * The handlers of one module within a channel, with the filters of that module
+	 */
+	private static class ModuleGroup {
+		
+		private final EventFilter[] filters;
+		private final HubHandler[] handlers;
+		
+		private ModuleGroup(@Nullable EventFilter[] filters, HubHandler[] handlers) {
+			this.filters = filters;
+			this.handlers = handlers;
+		}
+		
+		private boolean accepts(Event event) {
+			for(EventFilter filter : this.filters) {
+				if(!filter.test(event)) {
+					return false;
+				}
+			}
+			
+			return true;
+		}
+	}
+	
+	/**
+	 * A filter registered by a module, for events of one type
+	 */
+	private static class EventFilter {
+		
+		private final Class<?> eventClass;
+		private final Predicate<Object> predicate;
+		
+		@SuppressWarnings("unchecked")
+		private EventFilter(Class<?> eventClass, Predicate<?> predicate) {
+			this.eventClass = eventClass;
+			this.predicate = (Predicate<Object>) predicate;
+		}
+		
+		private boolean test(Event event) {
+			if(!this.eventClass.isInstance(event)) {
+				return true;
+			}
+			
+			try {
+				return this.predicate.test(event);
+			} catch(Exception e) {
+				DutchyCore.logWarn(String.format("An event filter for '%s' threw an exception, the event is filtered out: %s", this.eventClass.getSimpleName(), Utils.getStackTrace(e)));
+				return false;
+			}
+		}
+	}
+	
+	/**
+	 * An {@link org.bukkit.event.EventHandler} method of a registered Bukkit listener
+	 */
+	private static class HubHandler {
+		
+		private final Listener listener;
+		private final Method method;
+		private final Class<? extends Event> eventClass;
+		private final EventPriority priority;
+		private final boolean ignoreCancelled;
+		private final PluginModule owner;
+		private final ModuleEventBus.EventInvoker invoker;
+		private final HandlerMetrics metrics;
+		
+		private HubHandler(Listener listener, Method method, Class<? extends Event> eventClass, EventPriority priority, boolean ignoreCancelled, @Nullable PluginModule owner, ModuleEventBus.EventInvoker invoker, @Nullable HandlerMetrics metrics) {
+			this.listener = listener;
+			this.method = method;
+			this.eventClass = eventClass;
+			this.priority = priority;
+			this.ignoreCancelled = ignoreCancelled;
+			this.owner = owner;
+			this.invoker = invoker;
+			this.metrics = metrics;
+		}
+		
+		private List<Object> getChannelKey() {
+			return Arrays.asList(this.eventClass, this.priority);
+		}
+		
+		private void invoke(Event event) {
+			if(this.ignoreCancelled && event instanceof Cancellable && ((Cancellable) event).isCancelled()) {
+				return;
+			}
+			
+			long start = (this.metrics != null) ? System.nanoTime() : 0;
+			try {
+				this.invoker.invoke(this.listener, event);
+			} catch(Throwable e) {
+				DutchyCore.logWarn(String.format("Could not pass event %s to '%s#%s': %s", event.getEventName(), this.listener.getClass().getName(), this.method.getName(), Utils.getStackTrace(e)));
+			} finally {
+				if(this.metrics != null) {
+					this.metrics.record(System.nanoTime() - start);
+				}
+			}
+		}
+	}
+}
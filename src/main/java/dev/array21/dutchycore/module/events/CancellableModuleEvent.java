@@ -0,0 +1,30 @@
+package dev.array21.dutchycore.module.events;
+
+/**
+ * A ModuleEvent which can be cancelled by its handlers<br>
+ * <br>
+ * Once an event is cancelled, handlers annotated with <code>@EventHandler(ignoreCancelled = true)</code> no longer receive it.
+ * The module throwing the event decides what cancelling means, by checking {@link #isCancelled()} after throwing it.
+ *
+ * @since 0.1.0
+ */
+public abstract class CancellableModuleEvent extends ModuleEvent {
+	
+	private volatile boolean cancelled = false;
+	
+	/**
+	 * Get whether this event is cancelled
+	 * @return Returns true if this event is cancelled
+	 */
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+	
+	/**
+	 * Set whether this event is cancelled
+	 * @param cancelled True to cancel this event, false to uncancel it
+	 */
+	public void setCancelled(boolean cancelled) {
+		this.cancelled = cancelled;
+	}
+}
@@ -0,0 +1,322 @@
+package dev.array21.dutchycore.module.events;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import dev.array21.dutchycore.DutchyCore;
+import dev.array21.dutchycore.annotations.DistributedEvent;
+import dev.array21.dutchycore.module.events.transport.EventTransport;
+import dev.array21.dutchycore.utils.Utils;
+
+/**
+ * Forwards {@link DistributedEvent}s to the other servers through an {@link EventTransport}, and delivers the events received from them<br>
+ * <br>
+ * Events are serialized with Gson on the thread throwing them, so they may be changed right after. A background thread sends them in batches:
+ * it waits for the first event, then takes all events queued since, up to {@link #MAX_BATCH_SIZE} per batch. A single event is sent right away,
+ * while events thrown faster than they can be sent end up in larger batches.<br>
+ * <br>
+ * Received events are delivered on the main thread, a whole batch in one task. The latency between sending and receiving a batch is recorded,
+ * the clocks of the servers are assumed to be in sync.
+ *
+ * @since 0.1.0
+ */
+public class EventForwarder implements Runnable {
+	
+	private static final int MAX_BATCH_SIZE = 1000;
+	
+	/**
+	 * Events which can't be sent fast enough are dropped beyond this many
+	 */
+	private static final int QUEUE_CAPACITY = 100_000;
+	
+	private static final ClassValue<Boolean> DISTRIBUTED = new ClassValue<>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			return type.isAnnotationPresent(DistributedEvent.class) && !PooledModuleEvent.class.isAssignableFrom(type);
+		}
+	};
+	
+	private final Plugin plugin;
+	private final String nodeId;
+	private final EventTransport transport;
+	private final EventClassResolver classResolver;
+	private final Consumer<ModuleEvent> delivery;
+	private final Gson gson = new Gson();
+	
+	private final LinkedBlockingQueue<JsonObject> outgoing = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+	private volatile boolean running = false;
+	private Thread thread;
+	
+	private final LongAdder sentEvents = new LongAdder();
+	private final LongAdder sentBatches = new LongAdder();
+	private final LongAdder receivedEvents = new LongAdder();
+	private final LongAdder droppedEvents = new LongAdder();
+	private final HandlerMetrics latency;
+	
+	/**
+	 * Create an EventForwarder
+	 * @param plugin DutchyCore instance, used to deliver received events on the main thread
+	 * @param nodeId The ID of this server, unique among the connected servers
+	 * @param transport The transport to the other servers
+	 * @param classResolver Finds the classes of received events
+	 * @param delivery Delivers a received event to the modules on this server
+	 */
+	public EventForwarder(Plugin plugin, String nodeId, EventTransport transport, EventClassResolver classResolver, Consumer<ModuleEvent> delivery) {
+		this.plugin = plugin;
+		this.nodeId = nodeId;
+		this.transport = transport;
+		this.classResolver = classResolver;
+		this.delivery = delivery;
+		
+		//Only batches slower than a second are logged, the histogram is what matters
+		this.latency = new HandlerMetrics("Distributed events from other nodes", TimeUnit.SECONDS.toNanos(1));
+	}
+	
+	/**
+	 * Finds the class of a received event
+	 */
+	@FunctionalInterface
+	public interface EventClassResolver {
+		
+		/**
+		 * Get the class of a received event. Must return the class of the module as it is loaded now, not of a module which was reloaded since
+		 * @param className The binary name of the class
+		 * @return Returns the Class
+		 * @throws ClassNotFoundException If no module on this server has the class
+		 */
+		public Class<?> resolve(String className) throws ClassNotFoundException;
+	}
+	
+	/**
+	 * Get whether events of a class are forwarded to other servers
+	 * @param eventClass The class of the ModuleEvent
+	 * @return Returns true if the class is annotated with {@link DistributedEvent}
+	 */
+	public static boolean isDistributed(Class<?> eventClass) {
+		return DISTRIBUTED.get(eventClass);
+	}
+	
+	/**
+	 * Start the transport and the thread sending the batches
+	 * @throws IOException If the transport could not be started
+	 */
+	public void start() throws IOException {
+		this.transport.start(this::receive);
+		
+		this.running = true;
+		this.thread = new Thread(this, "DutchyCore-EventForwarder");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+	
+	/**
+	 * Send the events which are still queued, then stop the transport
+	 */
+	public void close() {
+		this.running = false;
+		if(this.thread != null) {
+			this.thread.interrupt();
+			try {
+				this.thread.join(TimeUnit.SECONDS.toMillis(5));
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		
+		this.transport.close();
+	}
+	
+	/**
+	 * Queue an event to be sent to the other servers. It is serialized right away
+	 * @param event The ModuleEvent. Its class must be distributed
+	 */
+	public void forward(ModuleEvent event) {
+		JsonObject entry = new JsonObject();
+		entry.addProperty("type", event.getClass().getName());
+		try {
+			entry.add("data", this.gson.toJsonTree(event));
+		} catch(RuntimeException e) {
+			this.droppedEvents.increment();
+			DutchyCore.logWarn(String.format("Failed to serialize distributed event '%s', it is only delivered on this server: %s", event.getClass().getName(), Utils.getStackTrace(e)));
+			return;
+		}
+		
+		if(!this.outgoing.offer(entry)) {
+			this.droppedEvents.increment();
+		}
+	}
+	
+	@Override
+	public void run() {
+		List<JsonObject> batch = new ArrayList<>();
+		while(this.running || !this.outgoing.isEmpty()) {
+			try {
+				if(this.running) {
+					batch.add(this.outgoing.take());
+					this.outgoing.drainTo(batch, MAX_BATCH_SIZE - 1);
+				} else {
+					this.outgoing.drainTo(batch, MAX_BATCH_SIZE);
+				}
+			} catch(InterruptedException e) {
+				//Closing, the remaining events are sent without waiting
+				continue;
+			}
+			
+			send(batch);
+			batch.clear();
+		}
+	}
+	
+	private void send(List<JsonObject> entries) {
+		if(entries.isEmpty()) {
+			return;
+		}
+		
+		JsonArray events = new JsonArray();
+		for(JsonObject entry : entries) {
+			events.add(entry);
+		}
+		
+		JsonObject batch = new JsonObject();
+		batch.addProperty("node", this.nodeId);
+		batch.addProperty("sentNanos", getEpochNanos());
+		batch.add("events", events);
+		
+		try {
+			this.transport.send(this.gson.toJson(batch).getBytes(StandardCharsets.UTF_8));
+			this.sentEvents.add(entries.size());
+			this.sentBatches.increment();
+		} catch(IOException e) {
+			this.droppedEvents.add(entries.size());
+			DutchyCore.logWarn(String.format("Failed to forward %d distributed event(s): %s", entries.size(), Utils.getStackTrace(e)));
+		}
+	}
+	
+	/**
+	 * Deserialize a batch received from another server, and deliver its events on the main thread
+	 * @param bytes The serialized batch
+	 */
+	private void receive(byte[] bytes) {
+		JsonObject batch;
+		String origin;
+		long sentNanos;
+		try {
+			batch = this.gson.fromJson(new String(bytes, StandardCharsets.UTF_8), JsonObject.class);
+			origin = batch.get("node").getAsString();
+			sentNanos = batch.get("sentNanos").getAsLong();
+		} catch(RuntimeException e) {
+			DutchyCore.logWarn(String.format("Received an invalid batch of distributed events: %s", Utils.getStackTrace(e)));
+			return;
+		}
+		
+		if(origin.equals(this.nodeId)) {
+			return;
+		}
+		
+		this.latency.record(Math.max(0, getEpochNanos() - sentNanos));
+		
+		//Batches mostly contain a handful of event classes, so each is only looked up once
+		HashMap<String, Class<?>> classes = new HashMap<>();
+		List<ModuleEvent> events = new ArrayList<>();
+		for(JsonElement element : batch.getAsJsonArray("events")) {
+			JsonObject entry = element.getAsJsonObject();
+			String type = entry.get("type").getAsString();
+			
+			try {
+				Class<?> eventClass = classes.get(type);
+				if(eventClass == null) {
+					eventClass = this.classResolver.resolve(type);
+					classes.put(type, eventClass);
+				}
+				
+				if(!ModuleEvent.class.isAssignableFrom(eventClass) || !isDistributed(eventClass)) {
+					DutchyCore.logWarn(String.format("Received event '%s' from node '%s', but it is not a distributed ModuleEvent on this server", type, origin));
+					continue;
+				}
+				
+				ModuleEvent event = (ModuleEvent) this.gson.fromJson(entry.get("data"), eventClass);
+				event.setOriginNode(origin);
+				events.add(event);
+			} catch(ClassNotFoundException e) {
+				//The module declaring the event is not installed on this server
+				continue;
+			} catch(RuntimeException e) {
+				DutchyCore.logWarn(String.format("Failed to deserialize event '%s' from node '%s': %s", type, origin, Utils.getStackTrace(e)));
+			}
+		}
+		
+		this.receivedEvents.add(events.size());
+		if(!events.isEmpty()) {
+			Bukkit.getScheduler().runTask(this.plugin, () -> events.forEach(this.delivery));
+		}
+	}
+	
+	private static long getEpochNanos() {
+		Instant now = Instant.now();
+		return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+	}
+	
+	/**
+	 * Get the ID of this server
+	 * @return Returns the node ID
+	 */
+	public String getNodeId() {
+		return this.nodeId;
+	}
+	
+	/**
+	 * Get the number of events sent to the other servers
+	 * @return Returns the number of sent events
+	 */
+	public long getSentEvents() {
+		return this.sentEvents.sum();
+	}
+	
+	/**
+	 * Get the number of batches sent to the other servers
+	 * @return Returns the number of sent batches
+	 */
+	public long getSentBatches() {
+		return this.sentBatches.sum();
+	}
+	
+	/**
+	 * Get the number of events received from the other servers
+	 * @return Returns the number of received events
+	 */
+	public long getReceivedEvents() {
+		return this.receivedEvents.sum();
+	}
+	
+	/**
+	 * Get the number of events which could not be sent, because the queue was full or the transport failed
+	 * @return Returns the number of dropped events
+	 */
+	public long getDroppedEvents() {
+		return this.droppedEvents.sum();
+	}
+	
+	/**
+	 * Get the latency between another server sending a batch and this server receiving it
+	 * @return Returns the latency per received batch
+	 */
+	public HandlerMetrics getLatency() {
+		return this.latency;
+	}
+}
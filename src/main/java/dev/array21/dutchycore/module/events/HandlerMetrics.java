@@ -0,0 +1,146 @@
+package dev.array21.dutchycore.module.events;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import dev.array21.dutchycore.DutchyCore;
+
+/**
+ * Invocation count and latency histogram of a single event handler<br>
+ * <br>
+ * Recording does not lock, handlers may be invoked on several threads at once.
+ *
+ * @since 0.1.0
+ */
+public class HandlerMetrics {
+	
+	/**
+	 * Upper bounds of the histogram buckets in nanoseconds. The last bucket holds everything slower
+	 */
+	private static final long[] BUCKET_BOUNDS = { 10_000L, 100_000L, 1_000_000L, 5_000_000L, 20_000_000L, 50_000_000L };
+	private static final String[] BUCKET_NAMES = { "<10us", "<100us", "<1ms", "<5ms", "<20ms", "<50ms", ">=50ms" };
+	
+	/**
+	 * Slow invocations of one handler are logged at most this often
+	 */
+	private static final long WARNING_INTERVAL_NANOS = 10_000_000_000L;
+	
+	private final String name;
+	private final long slowThresholdNanos;
+	
+	private final LongAdder invocations = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final AtomicLong maxNanos = new AtomicLong();
+	private final AtomicLongArray histogram = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+	private final AtomicLong lastWarning = new AtomicLong(System.nanoTime() - WARNING_INTERVAL_NANOS);
+	private final LongAdder slowInvocations = new LongAdder();
+	
+	protected HandlerMetrics(String name, long slowThresholdNanos) {
+		this.name = name;
+		this.slowThresholdNanos = slowThresholdNanos;
+	}
+	
+	/**
+	 * Record an invocation of the handler
+	 * @param nanos How long the invocation took, in nanoseconds
+	 */
+	public void record(long nanos) {
+		this.invocations.increment();
+		this.totalNanos.add(nanos);
+		this.histogram.incrementAndGet(bucket(nanos));
+		
+		long max = this.maxNanos.get();
+		while(nanos > max && !this.maxNanos.compareAndSet(max, nanos)) {
+			max = this.maxNanos.get();
+		}
+		
+		if(nanos >= this.slowThresholdNanos) {
+			this.slowInvocations.increment();
+			warnSlow(nanos);
+		}
+	}
+	
+	private void warnSlow(long nanos) {
+		long now = System.nanoTime();
+		long last = this.lastWarning.get();
+		if(now - last < WARNING_INTERVAL_NANOS || !this.lastWarning.compareAndSet(last, now)) {
+			return;
+		}
+		
+		DutchyCore.logWarn(String.format(Locale.ROOT, "Event handler '%s' took %.2fms, the threshold is %.2fms. It was slow %d out of %d times so far.", this.name, nanos / 1_000_000d, this.slowThresholdNanos / 1_000_000d, this.slowInvocations.sum(), this.invocations.sum()));
+	}
+	
+	private static int bucket(long nanos) {
+		for(int i = 0; i < BUCKET_BOUNDS.length; i++) {
+			if(nanos < BUCKET_BOUNDS[i]) {
+				return i;
+			}
+		}
+		
+		return BUCKET_BOUNDS.length;
+	}
+	
+	/**
+	 * Get the name of the handler
+	 * @return Returns the name, e.g. <code>com.example.Listener#onEvent(ExampleEvent)</code>
+	 */
+	public String getName() {
+		return this.name;
+	}
+	
+	/**
+	 * Get the number of recorded invocations
+	 * @return Returns the number of invocations
+	 */
+	public long getInvocations() {
+		return this.invocations.sum();
+	}
+	
+	/**
+	 * Get the total time spent in the handler
+	 * @return Returns the total time in nanoseconds
+	 */
+	public long getTotalNanos() {
+		return this.totalNanos.sum();
+	}
+	
+	/**
+	 * Get the longest recorded invocation
+	 * @return Returns the longest invocation in nanoseconds
+	 */
+	public long getMaxNanos() {
+		return this.maxNanos.get();
+	}
+	
+	/**
+	 * Get the number of invocations which took at least the slow threshold
+	 * @return Returns the number of slow invocations
+	 */
+	public long getSlowInvocations() {
+		return this.slowInvocations.sum();
+	}
+	
+	/**
+	 * Format the latency histogram
+	 * @return Returns the non-empty buckets, e.g. <code>&lt;10us:120 &lt;100us:4</code>
+	 */
+	public String formatHistogram() {
+		StringBuilder builder = new StringBuilder();
+		for(int i = 0; i < this.histogram.length(); i++) {
+			long count = this.histogram.get(i);
+			if(count == 0) {
+				continue;
+			}
+			
+			if(builder.length() > 0) {
+				builder.append(' ');
+			}
+			
+			builder.append(BUCKET_NAMES[i]).append(':').append(count);
+		}
+		
+		return builder.toString();
+	}
+}
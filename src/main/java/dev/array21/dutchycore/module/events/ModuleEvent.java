@@ -1,3 +1,28 @@
 package dev.array21.dutchycore.module.events;
 
-public abstract class ModuleEvent {}
+import dev.array21.dutchycore.annotations.Nullable;
+
+public abstract class ModuleEvent {
+	
+	/**
+	 * The node which threw this event, if it was received from another server. Transient, so it is not forwarded itself
+	 */
+	private transient String originNode;
+	
+	/**
+	 * Get the server this event was thrown on, if it is a {@link dev.array21.dutchycore.annotations.DistributedEvent} received from another server
+	 * @return Returns the node ID of the other server, null if the event was thrown on this server
+	 */
+	@Nullable
+	public String getOriginNode() {
+		return this.originNode;
+	}
+	
+	/**
+	 * Set the server this event was received from. Only called by {@link EventForwarder}
+	 * @param originNode The node ID of the other server
+	 */
+	void setOriginNode(String originNode) {
+		this.originNode = originNode;
+	}
+}
@@ -0,0 +1,45 @@
+package dev.array21.dutchycore.module.events;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The ModuleEvents queued during one tick, delivered to an EventHandler at once<br>
+ * <br>
+ * An EventHandler receives batches by taking a ModuleEventBatch as parameter, e.g. <code>onUpdates(ModuleEventBatch&lt;BlockUpdateEvent&gt; batch)</code>.
+ * It then receives all queued events of that type and its subtypes, in the order in which they were queued.
+ * Events thrown with {@link dev.array21.dutchycore.module.PluginModule#throwModuleEvent(ModuleEvent)} are not batched.
+ *
+ * @param <T> The type of the ModuleEvents
+ * @since 0.1.0
+ */
+public class ModuleEventBatch<T> implements Iterable<T> {
+	
+	private final List<T> events;
+	
+	protected ModuleEventBatch(List<T> events) {
+		this.events = Collections.unmodifiableList(events);
+	}
+	
+	/**
+	 * Get the events in this batch
+	 * @return Returns an unmodifiable List of the events, in the order in which they were queued
+	 */
+	public List<T> getEvents() {
+		return this.events;
+	}
+	
+	/**
+	 * Get the number of events in this batch
+	 * @return Returns the number of events
+	 */
+	public int size() {
+		return this.events.size();
+	}
+	
+	@Override
+	public Iterator<T> iterator() {
+		return this.events.iterator();
+	}
+}
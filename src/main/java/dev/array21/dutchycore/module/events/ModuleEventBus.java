@@ -0,0 +1,920 @@
+package dev.array21.dutchycore.module.events;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+
+import dev.array21.dutchycore.DutchyCore;
+import dev.array21.dutchycore.annotations.EventHandler;
+import dev.array21.dutchycore.annotations.EventPriority;
+import dev.array21.dutchycore.annotations.Nullable;
+import dev.array21.dutchycore.module.ModuleClassLoader;
+import dev.array21.dutchycore.module.PluginModule;
+import dev.array21.dutchycore.utils.Utils;
+
+/**
+ * Delivers ModuleEvents to the {@link EventHandler} methods of registered ModuleEventListeners<br>
+ * <br>
+ * Handler methods are discovered once, when a listener is registered. Each handler gets an invoker generated with {@link LambdaMetafactory},
+ * falling back to a {@link MethodHandle} when that is not possible.<br>
+ * <br>
+ * A handler receives events of the type it accepts and of all its subtypes, including interfaces. A listener may have several handlers for the same type.
+ * The handlers for a concrete event class are resolved the first time it is posted and cached, sorted by {@link EventPriority} and then by the order in which they were registered.
+ * After that, posting an event is a single map lookup followed by a loop over an array, it does not allocate.<br>
+ * <br>
+ * Registering or unregistering a listener publishes a new immutable snapshot of all handlers. Posting never locks and never sees a half-updated registry,
+ * so listeners may be (un)registered from any thread, also while events are being delivered.<br>
+ * <br>
+ * Once a {@link CancellableModuleEvent} is cancelled, handlers with <code>ignoreCancelled = true</code> are skipped.
+ * If all remaining handlers ignore cancelled events, delivery stops right away.<br>
+ * <br>
+ * Handlers annotated with <code>@EventHandler(async = true)</code> are invoked on a bounded pool of worker threads, which uses virtual threads when the runtime supports them.
+ * All other handlers are invoked on the thread posting the event, or on the main thread for {@link #postAsync(ModuleEvent)}.<br>
+ * <br>
+ * Events can also be queued with {@link #queue(ModuleEvent, Object)}. Queued events are delivered once per tick: handlers taking a {@link ModuleEventBatch}
+ * receive all of them at once, other handlers receive them one by one. The Bukkit API has no hook at the end of a tick, so the events queued during a tick
+ * are delivered by a scheduler task at the start of the next one, before the worlds are ticked.<br>
+ * <br>
+ * A {@link PooledModuleEvent} is returned to its {@link ModuleEventPool} once it has been delivered, so frequent events need not allocate.<br>
+ * <br>
+ * Events annotated with {@link dev.array21.dutchycore.annotations.DistributedEvent} are also handed to the {@link EventForwarder}, if one is set.
+ *
+ * @since 0.1.0
+ */
+public class ModuleEventBus {
+	
+	private static final RegisteredHandler[] NO_HANDLERS = new RegisteredHandler[0];
+	private static final Dispatch NO_DISPATCH = new Dispatch(NO_HANDLERS, NO_HANDLERS);
+	private static final MethodType INVOKER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+	
+	/**
+	 * Handlers are invoked by priority, and in the order in which they were registered within a priority
+	 */
+	private static final Comparator<RegisteredHandler> HANDLER_ORDER = Comparator.<RegisteredHandler, EventPriority>comparing(handler -> handler.priority).thenComparingLong(handler -> handler.sequence);
+	
+	/**
+	 * Maximum number of queued asynchronous deliveries. When the queue is full, the posting thread delivers the event itself
+	 */
+	private static final int ASYNC_QUEUE_CAPACITY = 10_000;
+	
+	private final Plugin plugin;
+	private final int asyncThreads;
+	private volatile ThreadPoolExecutor asyncExecutor;
+	private final EventMetrics metrics;
+	
+	/**
+	 * Forwards distributed events to other servers. Null if event forwarding is disabled
+	 */
+	private volatile EventForwarder forwarder;
+	
+	/**
+	 * The registered handlers. Never modified, (un)registering publishes a new Registry. Writes are guarded by this
+	 */
+	private volatile Registry registry = new Registry(Collections.emptyMap(), Collections.emptyMap());
+	private long nextSequence = 0;
+	
+	/**
+	 * Events queued for the next flush, keyed by their coalesce key. Guarded by queueLock
+	 */
+	private final Object queueLock = new Object();
+	private LinkedHashMap<Object, ModuleEvent> queuedEvents = new LinkedHashMap<>();
+	private boolean flushScheduled = false;
+	
+	/**
+	 * Create a ModuleEventBus
+	 * @param plugin DutchyCore instance, used to schedule work on the main thread
+	 * @param asyncThreads The maximum number of threads invoking asynchronous handlers
+	 * @param metrics {@link Nullable} Records how long each handler takes. If null, nothing is recorded
+	 */
+	public ModuleEventBus(Plugin plugin, int asyncThreads, @Nullable EventMetrics metrics) {
+		this.plugin = plugin;
+		this.asyncThreads = Math.max(1, asyncThreads);
+		this.metrics = metrics;
+	}
+	
+	/**
+	 * Invokes an event handler method
+	 */
+	@FunctionalInterface
+	public interface EventInvoker {
+		
+		/**
+		 * Invoke the handler
+		 * @param listener The ModuleEventListener declaring the handler
+		 * @param event The ModuleEvent
+		 * @throws Throwable Anything thrown by the handler
+		 */
+		public void invoke(Object listener, Object event) throws Throwable;
+	}
+	
+	/**
+	 * Register all {@link EventHandler} methods of a ModuleEventListener, without an owner
+	 * @param listener The ModuleEventListener
+	 */
+	public void register(ModuleEventListener listener) {
+		register(listener, null, false);
+	}
+	
+	/**
+	 * Register all {@link EventHandler} methods of a ModuleEventListener
+	 * @param listener The ModuleEventListener
+	 * @param owner {@link Nullable} The PluginModule which registered the listener. Its listeners are removed with {@link #unregisterOwner(PluginModule)}
+	 * @param weak If true, the bus does not keep the listener reachable. Its handlers are removed once it has been garbage collected
+	 */
+	public synchronized void register(ModuleEventListener listener, @Nullable PluginModule owner, boolean weak) {
+		//A good moment to drop the handlers of weak listeners which are gone, as a new Registry is published anyway
+		expungeCollected();
+		
+		WeakReference<ModuleEventListener> weakListener = weak ? new WeakReference<>(listener) : null;
+		HashMap<Class<?>, List<RegisteredHandler>> handlers = new HashMap<>();
+		HashMap<Class<?>, List<RegisteredHandler>> batchHandlers = new HashMap<>();
+		
+		for(Method method : listener.getClass().getDeclaredMethods()) {
+			if(!method.isAnnotationPresent(EventHandler.class)) {
+				continue;
+			}
+			
+			Class<?>[] parameterTypes = method.getParameterTypes();
+			
+			//Interfaces are allowed, ModuleEvents may implement them
+			boolean batch = parameterTypes.length == 1 && parameterTypes[0] == ModuleEventBatch.class;
+			if(parameterTypes.length != 1 || !(batch || ModuleEvent.class.isAssignableFrom(parameterTypes[0]) || parameterTypes[0].isInterface())) {
+				DutchyCore.logWarn(String.format("Method '%s' in '%s' is annotated with EventHandler, but does not take a single ModuleEvent, interface or ModuleEventBatch as parameter. It will not receive events.", method.getName(), listener.getClass().getName()));
+				continue;
+			}
+			
+			Class<?> eventType = batch ? getBatchEventType(method) : parameterTypes[0];
+			
+			EventInvoker invoker;
+			try {
+				invoker = createInvoker(method);
+			} catch(IllegalAccessException e) {
+				DutchyCore.logWarn(String.format("Failed to register EventHandler '%s' in '%s': %s", method.getName(), listener.getClass().getName(), Utils.getStackTrace(e)));
+				continue;
+			}
+			
+			HandlerMetrics handlerMetrics = (this.metrics != null) ? this.metrics.getHandlerMetrics(EventMetrics.getHandlerName(method)) : null;
+			RegisteredHandler handler = new RegisteredHandler(weak ? null : listener, weakListener, owner, method, invoker, handlerMetrics, this.nextSequence++);
+			(batch ? batchHandlers : handlers).computeIfAbsent(eventType, k -> new ArrayList<>()).add(handler);
+		}
+		
+		if(handlers.isEmpty() && batchHandlers.isEmpty()) {
+			return;
+		}
+		
+		Registry current = this.registry;
+		this.registry = new Registry(withHandlers(current.handlersByType, handlers), withHandlers(current.batchHandlersByType, batchHandlers));
+	}
+	
+	/**
+	 * Unregister all {@link EventHandler} methods of a ModuleEventListener. Events which are being delivered while this is called may still reach it
+	 * @param listener The ModuleEventListener
+	 * @return Returns true if the listener was registered
+	 */
+	public synchronized boolean unregister(ModuleEventListener listener) {
+		return removeHandlers(handler -> handler.getListener() == listener);
+	}
+	
+	/**
+	 * Unregister all ModuleEventListeners registered by a PluginModule, e.g. because it is being disabled
+	 * @param owner The PluginModule
+	 */
+	public synchronized void unregisterOwner(PluginModule owner) {
+		removeHandlers(handler -> handler.owner == owner || handler.isCollected());
+	}
+	
+	/**
+	 * Remove the handlers of weakly registered listeners which have been garbage collected. Must be called while holding the lock on this
+	 */
+	private void expungeCollected() {
+		removeHandlers(RegisteredHandler::isCollected);
+	}
+	
+	/**
+	 * Count the listeners registered by a PluginModule
+	 * @param owner {@link Nullable} The PluginModule. If null, listeners registered without an owner are counted
+	 * @return Returns the statistics of the listeners
+	 */
+	public synchronized ListenerStatistics getListenerStatistics(@Nullable PluginModule owner) {
+		expungeCollected();
+		
+		Registry current = this.registry;
+		List<RegisteredHandler> handlers = new ArrayList<>();
+		for(RegisteredHandler[] typeHandlers : current.handlersByType.values()) {
+			handlers.addAll(Arrays.asList(typeHandlers));
+		}
+		
+		for(RegisteredHandler[] typeHandlers : current.batchHandlersByType.values()) {
+			handlers.addAll(Arrays.asList(typeHandlers));
+		}
+		
+		int handlerCount = 0;
+		Set<ModuleEventListener> strongListeners = Collections.newSetFromMap(new IdentityHashMap<>());
+		Set<ModuleEventListener> weakListeners = Collections.newSetFromMap(new IdentityHashMap<>());
+		for(RegisteredHandler handler : handlers) {
+			if(handler.owner != owner) {
+				continue;
+			}
+			
+			handlerCount++;
+			if(handler.listener != null) {
+				strongListeners.add(handler.listener);
+			} else {
+				ModuleEventListener listener = handler.weakListener.get();
+				if(listener != null) {
+					weakListeners.add(listener);
+				}
+			}
+		}
+		
+		return new ListenerStatistics(handlerCount, strongListeners.size(), weakListeners.size());
+	}
+	
+	/**
+	 * Get the event type of a handler taking a ModuleEventBatch, from the type argument of its parameter
+	 * @param method The handler method
+	 * @return Returns the event type. ModuleEvent if the type argument is missing or not a class
+	 */
+	private static Class<?> getBatchEventType(Method method) {
+		Type parameterType = method.getGenericParameterTypes()[0];
+		if(parameterType instanceof ParameterizedType) {
+			Type typeArgument = ((ParameterizedType) parameterType).getActualTypeArguments()[0];
+			if(typeArgument instanceof ParameterizedType) {
+				typeArgument = ((ParameterizedType) typeArgument).getRawType();
+			}
+			
+			if(typeArgument instanceof Class) {
+				return (Class<?>) typeArgument;
+			}
+		}
+		
+		return ModuleEvent.class;
+	}
+	
+	/**
+	 * Unregister all ModuleEventListeners whose class was loaded by a ClassLoader, e.g. because the module is being unloaded
+	 * @param classLoader The ClassLoader
+	 */
+	public synchronized void unregisterAll(ClassLoader classLoader) {
+		removeHandlers(handler -> handler.method.getDeclaringClass().getClassLoader() == classLoader);
+	}
+	
+	/**
+	 * Publish a Registry without the matching handlers. Must be called while holding the lock on this
+	 * @param filter Matches the handlers to remove
+	 * @return Returns true if any handler was removed
+	 */
+	private boolean removeHandlers(Predicate<RegisteredHandler> filter) {
+		Registry current = this.registry;
+		Map<Class<?>, RegisteredHandler[]> handlersByType = withoutHandlers(current.handlersByType, filter);
+		Map<Class<?>, RegisteredHandler[]> batchHandlersByType = withoutHandlers(current.batchHandlersByType, filter);
+		if(handlersByType == current.handlersByType && batchHandlersByType == current.batchHandlersByType) {
+			return false;
+		}
+		
+		//The new Registry starts with empty caches, so event classes of unloaded modules are not kept alive by them either
+		this.registry = new Registry(handlersByType, batchHandlersByType);
+		return true;
+	}
+	
+	/**
+	 * Copy handlers by type, with handlers added
+	 * @param handlersByType The current handlers by type
+	 * @param added The handlers to add by type
+	 * @return Returns the copy
+	 */
+	private static Map<Class<?>, RegisteredHandler[]> withHandlers(Map<Class<?>, RegisteredHandler[]> handlersByType, Map<Class<?>, List<RegisteredHandler>> added) {
+		if(added.isEmpty()) {
+			return handlersByType;
+		}
+		
+		HashMap<Class<?>, RegisteredHandler[]> copy = new HashMap<>(handlersByType);
+		for(Map.Entry<Class<?>, List<RegisteredHandler>> entry : added.entrySet()) {
+			RegisteredHandler[] existing = copy.getOrDefault(entry.getKey(), NO_HANDLERS);
+			RegisteredHandler[] handlers = Arrays.copyOf(existing, existing.length + entry.getValue().size());
+			for(int i = 0; i < entry.getValue().size(); i++) {
+				handlers[existing.length + i] = entry.getValue().get(i);
+			}
+			
+			copy.put(entry.getKey(), handlers);
+		}
+		
+		return copy;
+	}
+	
+	/**
+	 * Copy handlers by type, without the matching handlers
+	 * @param handlersByType The current handlers by type
+	 * @param filter Matches the handlers to remove
+	 * @return Returns the copy, or handlersByType itself if no handler matched
+	 */
+	private static Map<Class<?>, RegisteredHandler[]> withoutHandlers(Map<Class<?>, RegisteredHandler[]> handlersByType, Predicate<RegisteredHandler> filter) {
+		HashMap<Class<?>, RegisteredHandler[]> copy = null;
+		for(Map.Entry<Class<?>, RegisteredHandler[]> entry : handlersByType.entrySet()) {
+			RegisteredHandler[] remaining = Arrays.stream(entry.getValue()).filter(filter.negate()).toArray(RegisteredHandler[]::new);
+			if(remaining.length == entry.getValue().length) {
+				continue;
+			}
+			
+			if(copy == null) {
+				copy = new HashMap<>(handlersByType);
+			}
+			
+			if(remaining.length == 0) {
+				copy.remove(entry.getKey());
+			} else {
+				copy.put(entry.getKey(), remaining);
+			}
+		}
+		
+		return (copy != null) ? copy : handlersByType;
+	}
+	
+	/**
+	 * Deliver a ModuleEvent to all handlers accepting its class<br>
+	 * <br>
+	 * Synchronous handlers are invoked on the current thread before this method returns. Asynchronous handlers are queued on the worker pool.<br>
+	 * <br>
+	 * A {@link PooledModuleEvent} is released once all handlers have been invoked
+	 * @param event The ModuleEvent
+	 * @throws IllegalStateException If the event is a PooledModuleEvent which has already been released
+	 */
+	public void post(ModuleEvent event) {
+		PooledModuleEvent pooled = (event instanceof PooledModuleEvent) ? (PooledModuleEvent) event : null;
+		if(pooled != null) {
+			pooled.checkAccess();
+		}
+		
+		forward(event);
+		Dispatch dispatch = getDispatch(event.getClass());
+		invokeAll(dispatch.syncHandlers, dispatch.syncStopIndex, event);
+		
+		//Checked after the synchronous handlers, so a cancelled event is not handed to the pool at all if no remaining handler wants it
+		if(dispatch.asyncHandlers.length > 0 && !isSkipped(event, dispatch.asyncStopIndex)) {
+			getAsyncExecutor().execute(() -> {
+				try {
+					invokeAll(dispatch.asyncHandlers, dispatch.asyncStopIndex, event);
+				} finally {
+					if(pooled != null) {
+						pooled.release();
+					}
+				}
+			});
+		} else if(pooled != null) {
+			pooled.release();
+		}
+	}
+	
+	/**
+	 * Deliver a ModuleEvent without blocking the current thread<br>
+	 * <br>
+	 * Synchronous handlers are invoked on the main thread: immediately if this is the main thread, otherwise on the next tick.
+	 * Asynchronous handlers are invoked on the worker pool. For a {@link CancellableModuleEvent}, they are invoked after the synchronous handlers,
+	 * so they see whether it was cancelled. Exceptions thrown by handlers are logged, they do not fail the returned future
+	 * @param event The ModuleEvent
+	 * @return Returns a CompletableFuture which completes when all handlers have been invoked
+	 * @throws IllegalArgumentException If the event is a PooledModuleEvent
+	 */
+	public CompletableFuture<Void> postAsync(ModuleEvent event) {
+		rejectPooled(event);
+		forward(event);
+		
+		Dispatch dispatch = getDispatch(event.getClass());
+		
+		CompletableFuture<Void> syncDelivery = (dispatch.syncHandlers.length > 0)
+				? Utils.runOnMainThread(this.plugin, () -> invokeAll(dispatch.syncHandlers, dispatch.syncStopIndex, event))
+				: CompletableFuture.completedFuture(null);
+		
+		if(dispatch.asyncHandlers.length == 0) {
+			return syncDelivery;
+		}
+		
+		Runnable asyncDelivery = () -> invokeAll(dispatch.asyncHandlers, dispatch.asyncStopIndex, event);
+		if(event instanceof CancellableModuleEvent) {
+			return syncDelivery.thenRunAsync(asyncDelivery, getAsyncExecutor());
+		}
+		
+		return CompletableFuture.allOf(syncDelivery, CompletableFuture.runAsync(asyncDelivery, getAsyncExecutor()));
+	}
+	
+	/**
+	 * Queue a ModuleEvent, to be delivered on the next tick together with the other events queued until then<br>
+	 * <br>
+	 * May be called from any thread. Delivery always starts on the main thread, in a scheduler task at the start of the next tick
+	 * @param event The ModuleEvent
+	 * @param coalesceKey {@link Nullable} If not null, a queued event of the same class with an equal key is replaced by this event
+	 * @throws IllegalArgumentException If the event is a PooledModuleEvent
+	 */
+	public void queue(ModuleEvent event, @Nullable Object coalesceKey) {
+		rejectPooled(event);
+		
+		//Events without a key are never coalesced, the event itself is a unique key
+		Object key = (coalesceKey != null) ? Arrays.asList(event.getClass(), coalesceKey) : event;
+		
+		synchronized(this.queueLock) {
+			//Remove first, so the replacing event moves to the end of the queue
+			this.queuedEvents.remove(key);
+			this.queuedEvents.put(key, event);
+			
+			if(!this.flushScheduled) {
+				this.flushScheduled = true;
+				
+				//Scheduler tasks run at the start of a tick, so everything queued during this tick is delivered before the next tick's game logic
+				Bukkit.getScheduler().runTask(this.plugin, this::flushQueue);
+			}
+		}
+	}
+	
+	/**
+	 * Set the EventForwarder which forwards distributed events to other servers
+	 * @param forwarder {@link Nullable} The EventForwarder, or null to stop forwarding events
+	 */
+	public void setForwarder(@Nullable EventForwarder forwarder) {
+		this.forwarder = forwarder;
+	}
+	
+	/**
+	 * Forward an event to the other servers, if it is distributed and was not received from another server itself
+	 * @param event The ModuleEvent
+	 */
+	private void forward(ModuleEvent event) {
+		EventForwarder forwarder = this.forwarder;
+		if(forwarder != null && event.getOriginNode() == null && EventForwarder.isDistributed(event.getClass())) {
+			forwarder.forward(event);
+		}
+	}
+	
+	/**
+	 * A PooledModuleEvent is released right after it was posted, so it must not be delivered later
+	 * @param event The ModuleEvent
+	 * @throws IllegalArgumentException If the event is a PooledModuleEvent
+	 */
+	private static void rejectPooled(ModuleEvent event) {
+		if(event instanceof PooledModuleEvent) {
+			throw new IllegalArgumentException(String.format("Pooled ModuleEvent '%s' can only be thrown with throwModuleEvent", event.getClass().getName()));
+		}
+	}
+	
+	/**
+	 * Deliver all queued events. Must be called from the main thread
+	 */
+	public void flushQueue() {
+		LinkedHashMap<Object, ModuleEvent> queued;
+		synchronized(this.queueLock) {
+			queued = this.queuedEvents;
+			this.queuedEvents = new LinkedHashMap<>();
+			this.flushScheduled = false;
+		}
+		
+		if(queued.isEmpty()) {
+			return;
+		}
+		
+		//Batch handlers get all events they accept in one batch, in the order the events were queued
+		IdentityHashMap<RegisteredHandler, List<ModuleEvent>> batches = new IdentityHashMap<>();
+		for(ModuleEvent event : queued.values()) {
+			post(event);
+			
+			for(RegisteredHandler handler : getBatchHandlers(event.getClass())) {
+				batches.computeIfAbsent(handler, k -> new ArrayList<>()).add(event);
+			}
+		}
+		
+		List<RegisteredHandler> batchHandlers = new ArrayList<>(batches.keySet());
+		batchHandlers.sort(HANDLER_ORDER);
+		for(RegisteredHandler handler : batchHandlers) {
+			ModuleEventBatch<ModuleEvent> batch = new ModuleEventBatch<>(batches.get(handler));
+			if(handler.async) {
+				getAsyncExecutor().execute(() -> handler.invoke(batch));
+			} else {
+				handler.invoke(batch);
+			}
+		}
+	}
+	
+	/**
+	 * Stop the worker pool. Queued asynchronous deliveries get a few seconds to complete
+	 */
+	public synchronized void shutdown() {
+		ThreadPoolExecutor executor = this.asyncExecutor;
+		if(executor == null) {
+			return;
+		}
+		
+		this.asyncExecutor = null;
+		executor.shutdown();
+		try {
+			if(!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+				DutchyCore.logWarn("Asynchronous ModuleEvent handlers did not complete within 5 seconds, they are interrupted.");
+				executor.shutdownNow();
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Invoke handlers in order, skipping those which ignore cancelled events once the event is cancelled
+	 * @param handlers The handlers, sorted by priority
+	 * @param stopIndex The index from which on all handlers ignore cancelled events
+	 * @param event The ModuleEvent
+	 */
+	private static void invokeAll(RegisteredHandler[] handlers, int stopIndex, ModuleEvent event) {
+		if(!(event instanceof CancellableModuleEvent)) {
+			for(RegisteredHandler handler : handlers) {
+				handler.invoke(event);
+			}
+			
+			return;
+		}
+		
+		CancellableModuleEvent cancellable = (CancellableModuleEvent) event;
+		for(int i = 0; i < handlers.length; i++) {
+			if(cancellable.isCancelled()) {
+				//None of the remaining handlers want a cancelled event
+				if(i >= stopIndex) {
+					return;
+				}
+				
+				if(handlers[i].ignoreCancelled) {
+					continue;
+				}
+			}
+			
+			handlers[i].invoke(event);
+		}
+	}
+	
+	/**
+	 * Check whether none of the handlers from the start of an array would receive an event
+	 * @param event The ModuleEvent
+	 * @param stopIndex The index from which on all handlers ignore cancelled events
+	 * @return Returns true if the event is cancelled and all handlers ignore cancelled events
+	 */
+	private static boolean isSkipped(ModuleEvent event, int stopIndex) {
+		return stopIndex == 0 && event instanceof CancellableModuleEvent && ((CancellableModuleEvent) event).isCancelled();
+	}
+	
+	private Dispatch getDispatch(Class<?> eventClass) {
+		return this.registry.getDispatch(eventClass);
+	}
+	
+	private RegisteredHandler[] getBatchHandlers(Class<?> eventClass) {
+		return this.registry.getBatchHandlers(eventClass);
+	}
+	
+	/**
+	 * Get the worker pool for asynchronous handlers. It is created when it is first needed
+	 * @return Returns the ThreadPoolExecutor
+	 */
+	private ThreadPoolExecutor getAsyncExecutor() {
+		ThreadPoolExecutor executor = this.asyncExecutor;
+		if(executor != null) {
+			return executor;
+		}
+		
+		synchronized(this) {
+			if(this.asyncExecutor == null) {
+				//When the queue is full, the posting thread invokes the handlers itself. This slows down the producer instead of dropping events
+				this.asyncExecutor = new ThreadPoolExecutor(this.asyncThreads, this.asyncThreads, 60, TimeUnit.SECONDS,
+						new LinkedBlockingQueue<>(ASYNC_QUEUE_CAPACITY), newThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+				this.asyncExecutor.allowCoreThreadTimeOut(true);
+			}
+			
+			return this.asyncExecutor;
+		}
+	}
+	
+	/**
+	 * Create the ThreadFactory for the worker pool. Virtual threads are used when the runtime supports them (Java 21+)
+	 * @return Returns the ThreadFactory
+	 */
+	private static ThreadFactory newThreadFactory() {
+		String namePrefix = "DutchyCore-ModuleEvent-";
+		
+		//DutchyCore is compiled for an older Java version, so Thread.ofVirtual() has to be called reflectively
+		try {
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+			return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+		} catch(ReflectiveOperationException e) {
+			//Virtual threads are not available
+		}
+		
+		AtomicInteger threadCounter = new AtomicInteger();
+		return r -> {
+			Thread t = new Thread(r, namePrefix + threadCounter.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		};
+	}
+	
+	/**
+	 * Get an event class and all of its supertypes, including interfaces
+	 * @param eventClass The class of the event
+	 * @return Returns the types, starting with {@link eventClass}. Each type occurs once
+	 */
+	public static Set<Class<?>> getEventTypes(Class<?> eventClass) {
+		LinkedHashSet<Class<?>> types = new LinkedHashSet<>();
+		ArrayDeque<Class<?>> queue = new ArrayDeque<>();
+		queue.add(eventClass);
+		
+		while(!queue.isEmpty()) {
+			Class<?> type = queue.poll();
+			if(type == Object.class || !types.add(type)) {
+				continue;
+			}
+			
+			if(type.getSuperclass() != null) {
+				queue.add(type.getSuperclass());
+			}
+			
+			queue.addAll(Arrays.asList(type.getInterfaces()));
+		}
+		
+		return types;
+	}
+	
+	/**
+	 * Create an invoker for a handler method
+	 * @param method The handler method, taking one ModuleEvent or Bukkit Event
+	 * @return Returns the invoker
+	 * @throws IllegalAccessException If the method can't be accessed
+	 */
+	static EventInvoker createInvoker(Method method) throws IllegalAccessException {
+		//The handler may be private, so look it up with the privileges of the class declaring it.
+		//Module classes get a Lookup from their own ClassLoader, which has the full privileges LambdaMetafactory needs
+		ClassLoader classLoader = method.getDeclaringClass().getClassLoader();
+		MethodHandles.Lookup callerLookup = (classLoader instanceof ModuleClassLoader) ? ((ModuleClassLoader) classLoader).getLookup() : MethodHandles.lookup();
+		MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(method.getDeclaringClass(), callerLookup);
+		MethodHandle handle = lookup.unreflect(method);
+		
+		if(Modifier.isStatic(method.getModifiers())) {
+			handle = MethodHandles.dropArguments(handle, 0, Object.class);
+		} else {
+			try {
+				CallSite callSite = LambdaMetafactory.metafactory(
+						lookup,
+						"invoke",
+						MethodType.methodType(EventInvoker.class),
+						INVOKER_TYPE,
+						handle,
+						MethodType.methodType(void.class, method.getDeclaringClass(), method.getParameterTypes()[0]));
+				
+				return (EventInvoker) callSite.getTarget().invokeExact();
+			} catch(Throwable e) {
+				//The Lookup lacks the privileges to define a class next to the listener. A MethodHandle is a bit slower, but works everywhere
+			}
+		}
+		
+		MethodHandle invoker = handle.asType(INVOKER_TYPE);
+		return (listener, event) -> {
+			invoker.invokeExact(listener, event);
+		};
+	}
+	
+	/**
+	 * An immutable snapshot of the registered handlers, with the handlers resolved from it per concrete event class<br>
+	 * <br>
+	 * Readers never lock: a cache miss is resolved from the snapshot and published with putIfAbsent, so every thread ends up with the same Dispatch.
+	 * As each snapshot has its own caches, a resolution from an outdated snapshot can never end up in the cache of a newer one
+	 */
+	private static class Registry {
+		
+		/**
+		 * Handlers by the event type they accept, in registration order
+		 */
+		private final Map<Class<?>, RegisteredHandler[]> handlersByType;
+		
+		/**
+		 * Handlers taking a ModuleEventBatch, by the event type of the batch, in registration order
+		 */
+		private final Map<Class<?>, RegisteredHandler[]> batchHandlersByType;
+		
+		private final ConcurrentHashMap<Class<?>, Dispatch> dispatchCache = new ConcurrentHashMap<>();
+		private final ConcurrentHashMap<Class<?>, RegisteredHandler[]> batchDispatchCache = new ConcurrentHashMap<>();
+		
+		private Registry(Map<Class<?>, RegisteredHandler[]> handlersByType, Map<Class<?>, RegisteredHandler[]> batchHandlersByType) {
+			this.handlersByType = handlersByType;
+			this.batchHandlersByType = batchHandlersByType;
+		}
+		
+		/**
+		 * Get the handlers for a concrete event class, resolving them if they are not cached yet
+		 * @param eventClass The class of the event
+		 * @return Returns the handlers accepting the class or one of its supertypes, in the order in which they are invoked
+		 */
+		private Dispatch getDispatch(Class<?> eventClass) {
+			Dispatch dispatch = this.dispatchCache.get(eventClass);
+			if(dispatch != null) {
+				return dispatch;
+			}
+			
+			List<RegisteredHandler> handlers = collectHandlers(this.handlersByType, eventClass);
+			List<RegisteredHandler> syncHandlers = new ArrayList<>();
+			List<RegisteredHandler> asyncHandlers = new ArrayList<>();
+			for(RegisteredHandler handler : handlers) {
+				(handler.async ? asyncHandlers : syncHandlers).add(handler);
+			}
+			
+			dispatch = handlers.isEmpty() ? NO_DISPATCH : new Dispatch(syncHandlers.toArray(NO_HANDLERS), asyncHandlers.toArray(NO_HANDLERS));
+			Dispatch raced = this.dispatchCache.putIfAbsent(eventClass, dispatch);
+			return (raced != null) ? raced : dispatch;
+		}
+		
+		/**
+		 * Get the batch handlers for a concrete event class, resolving them if they are not cached yet
+		 * @param eventClass The class of the event
+		 * @return Returns the batch handlers accepting the class or one of its supertypes, in the order in which they are invoked
+		 */
+		private RegisteredHandler[] getBatchHandlers(Class<?> eventClass) {
+			RegisteredHandler[] handlers = this.batchDispatchCache.get(eventClass);
+			if(handlers != null) {
+				return handlers;
+			}
+			
+			handlers = collectHandlers(this.batchHandlersByType, eventClass).toArray(NO_HANDLERS);
+			RegisteredHandler[] raced = this.batchDispatchCache.putIfAbsent(eventClass, handlers);
+			return (raced != null) ? raced : handlers;
+		}
+		
+		/**
+		 * Collect the handlers accepting an event class or one of its supertypes
+		 * @param handlersByType The handlers by the type they accept
+		 * @param eventClass The class of the event
+		 * @return Returns the handlers, in the order in which they are invoked
+		 */
+		private static List<RegisteredHandler> collectHandlers(Map<Class<?>, RegisteredHandler[]> handlersByType, Class<?> eventClass) {
+			List<RegisteredHandler> handlers = new ArrayList<>();
+			for(Class<?> type : getEventTypes(eventClass)) {
+				handlers.addAll(Arrays.asList(handlersByType.getOrDefault(type, NO_HANDLERS)));
+			}
+			
+			handlers.sort(HANDLER_ORDER);
+			return handlers;
+		}
+	}
+	
+	/**
+	 * The resolved handlers for a concrete event class, split by the thread they run on
+	 */
+	private static class Dispatch {
+		
+		private final RegisteredHandler[] syncHandlers, asyncHandlers;
+		
+		/**
+		 * Once an event is cancelled, no handler from these indices on has to be invoked
+		 */
+		private final int syncStopIndex, asyncStopIndex;
+		
+		private Dispatch(RegisteredHandler[] syncHandlers, RegisteredHandler[] asyncHandlers) {
+			this.syncHandlers = syncHandlers;
+			this.asyncHandlers = asyncHandlers;
+			this.syncStopIndex = stopIndex(syncHandlers);
+			this.asyncStopIndex = stopIndex(asyncHandlers);
+		}
+		
+		private static int stopIndex(RegisteredHandler[] handlers) {
+			int stopIndex = handlers.length;
+			while(stopIndex > 0 && handlers[stopIndex - 1].ignoreCancelled) {
+				stopIndex--;
+			}
+			
+			return stopIndex;
+		}
+	}
+	
+	/**
+	 * The number of ModuleEventListeners and handlers registered by one owner
+	 */
+	public static class ListenerStatistics {
+		
+		private final int handlers, listeners, weakListeners;
+		
+		private ListenerStatistics(int handlers, int listeners, int weakListeners) {
+			this.handlers = handlers;
+			this.listeners = listeners;
+			this.weakListeners = weakListeners;
+		}
+		
+		/**
+		 * Get the number of registered EventHandler methods
+		 * @return Returns the number of handlers
+		 */
+		public int getHandlers() {
+			return this.handlers;
+		}
+		
+		/**
+		 * Get the number of listener instances the bus keeps reachable
+		 * @return Returns the number of strongly registered listeners
+		 */
+		public int getListeners() {
+			return this.listeners;
+		}
+		
+		/**
+		 * Get the number of weakly registered listener instances which have not been garbage collected yet
+		 * @return Returns the number of weakly registered listeners
+		 */
+		public int getWeakListeners() {
+			return this.weakListeners;
+		}
+	}
+	
+	/**
+	 * An EventHandler method of a registered ModuleEventListener
+	 */
+	private static class RegisteredHandler {
+		
+		/**
+		 * Exactly one of listener and weakListener is set
+		 */
+		private final ModuleEventListener listener;
+		private final WeakReference<ModuleEventListener> weakListener;
+		private final PluginModule owner;
+		private final Method method;
+		private final EventInvoker invoker;
+		private final long sequence;
+		private final boolean async, ignoreCancelled;
+		private final EventPriority priority;
+		
+		/**
+		 * Null if metrics are disabled
+		 */
+		private final HandlerMetrics metrics;
+		
+		private RegisteredHandler(ModuleEventListener listener, WeakReference<ModuleEventListener> weakListener, PluginModule owner, Method method, EventInvoker invoker, HandlerMetrics metrics, long sequence) {
+			EventHandler annotation = method.getAnnotation(EventHandler.class);
+			
+			this.listener = listener;
+			this.weakListener = weakListener;
+			this.owner = owner;
+			this.method = method;
+			this.invoker = invoker;
+			this.metrics = metrics;
+			this.sequence = sequence;
+			this.async = annotation.async();
+			this.ignoreCancelled = annotation.ignoreCancelled();
+			this.priority = annotation.priority();
+		}
+		
+		private ModuleEventListener getListener() {
+			return (this.listener != null) ? this.listener : this.weakListener.get();
+		}
+		
+		private boolean isCollected() {
+			return this.listener == null && this.weakListener.get() == null;
+		}
+		
+		private void invoke(Object event) {
+			ModuleEventListener target = getListener();
+			if(target == null) {
+				return;
+			}
+			
+			long start = (this.metrics != null) ? System.nanoTime() : 0L;
+			try {
+				this.invoker.invoke(target, event);
+			} catch(Throwable e) {
+				DutchyCore.logWarn(String.format("EventHandler '%s' in '%s' threw an exception while handling '%s': %s", this.method.getName(), this.method.getDeclaringClass().getName(), event.getClass().getName(), Utils.getStackTrace(e)));
+			}
+			
+			if(this.metrics != null) {
+				this.metrics.record(System.nanoTime() - start);
+			}
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package dev.array21.dutchycore.module.events;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A pool of reusable {@link PooledModuleEvent} instances of one class<br>
+ * <br>
+ * When the pool is empty a new event is created. At most maxSize released events are kept, the rest is left to the garbage collector.
+ * The pool may be used from any thread.
+ *
+ * @param <T> The type of the pooled events
+ * @since 0.1.0
+ */
+public class ModuleEventPool<T extends PooledModuleEvent> {
+	
+	/**
+	 * Whether released events are reused. Shared by all pools
+	 */
+	private static volatile boolean recycling = true;
+	
+	private final Supplier<T> factory;
+	private final int maxSize;
+	
+	/**
+	 * Released events. Guarded by itself
+	 */
+	private final ArrayDeque<T> released;
+	
+	private final LongAdder created = new LongAdder();
+	private final LongAdder acquired = new LongAdder();
+	
+	/**
+	 * Create a ModuleEventPool
+	 * @param factory Creates a new event when the pool is empty, e.g. <code>ExampleEvent::new</code>
+	 * @param maxSize The maximum number of released events kept in the pool
+	 */
+	public ModuleEventPool(Supplier<T> factory, int maxSize) {
+		this.factory = factory;
+		this.maxSize = Math.max(1, maxSize);
+		this.released = new ArrayDeque<>(this.maxSize);
+	}
+	
+	/**
+	 * Take an event from the pool, or create one if the pool is empty. Its fields are reset
+	 * @return Returns the event
+	 */
+	public T acquire() {
+		T event;
+		synchronized(this.released) {
+			event = this.released.pollLast();
+		}
+		
+		if(event == null) {
+			event = this.factory.get();
+			this.created.increment();
+		}
+		
+		this.acquired.increment();
+		event.acquired(this);
+		return event;
+	}
+	
+	/**
+	 * Return a released event to the pool. Only called by {@link PooledModuleEvent#release()}
+	 * @param event The event
+	 */
+	@SuppressWarnings("unchecked")
+	void offer(PooledModuleEvent event) {
+		if(!recycling) {
+			return;
+		}
+		
+		synchronized(this.released) {
+			if(this.released.size() < this.maxSize) {
+				this.released.addLast((T) event);
+			}
+		}
+	}
+	
+	/**
+	 * Get the number of events created by this pool. If it keeps growing with the number of acquired events, maxSize is too small
+	 * @return Returns the number of created events
+	 */
+	public long getCreated() {
+		return this.created.sum();
+	}
+	
+	/**
+	 * Get the number of times an event was taken from this pool
+	 * @return Returns the number of acquired events
+	 */
+	public long getAcquired() {
+		return this.acquired.sum();
+	}
+	
+	/**
+	 * Set whether pools reuse released events. If not, a released event stays released, so {@link PooledModuleEvent#checkAccess()} catches every handler
+	 * using it afterwards, at the cost of allocating every event. Set from checkPooledEvents in the config
+	 * @param recycling True to reuse released events, the default
+	 */
+	public static void setRecycling(boolean recycling) {
+		ModuleEventPool.recycling = recycling;
+	}
+	
+	/**
+	 * Get whether pools reuse released events
+	 * @return Returns true if released events are reused
+	 */
+	public static boolean isRecycling() {
+		return recycling;
+	}
+}
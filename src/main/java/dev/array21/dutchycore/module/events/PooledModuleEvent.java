@@ -0,0 +1,69 @@
+package dev.array21.dutchycore.module.events;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A ModuleEvent which is taken from a {@link ModuleEventPool} and returned to it after it was delivered, so frequent events do not allocate<br>
+ * <br>
+ * Acquire an event with {@link ModuleEventPool#acquire()}, set its fields and throw it with {@link dev.array21.dutchycore.module.PluginModule#throwModuleEvent(ModuleEvent)}.
+ * It is released automatically once all handlers, including asynchronous ones, have been invoked. It can't be queued or thrown asynchronously.<br>
+ * <br>
+ * Handlers must not keep a reference to a pooled event. Subclasses should call {@link #checkAccess()} in their getters,
+ * so a handler using the event after it was released gets an exception. This only works while the instance is not reused: once it is acquired again,
+ * a stale reference sees the fields of the new event. Enable checkPooledEvents in the config to stop pools from reusing events, so every use after a release is caught.
+ *
+ * @since 0.1.0
+ */
+public abstract class PooledModuleEvent extends ModuleEvent {
+	
+	private static final int RELEASED = 0, ACQUIRED = 1;
+	
+	private final AtomicInteger state = new AtomicInteger(RELEASED);
+	private ModuleEventPool<?> pool;
+	
+	/**
+	 * Clear the fields of this event, before it is returned to its pool. References to other objects should be set to null, so they can be garbage collected
+	 */
+	protected abstract void reset();
+	
+	/**
+	 * Throw an exception if this event is not in use. Subclasses should call this in their getters and setters.
+	 * An event which was released and acquired again is in use, see {@link ModuleEventPool#setRecycling(boolean)}
+	 * @throws IllegalStateException If this event has been released
+	 */
+	protected final void checkAccess() {
+		if(this.state.get() != ACQUIRED) {
+			throw new IllegalStateException(String.format("Pooled ModuleEvent '%s' was used after it was released. Handlers must not keep a reference to a pooled event after handling it", getClass().getName()));
+		}
+	}
+	
+	/**
+	 * Get whether this event has been released to its pool
+	 * @return Returns true if this event is released, false while it is in use
+	 */
+	public boolean isReleased() {
+		return this.state.get() == RELEASED;
+	}
+	
+	/**
+	 * Mark this event as in use. Only called by {@link ModuleEventPool}
+	 * @param pool The pool this event was taken from
+	 */
+	void acquired(ModuleEventPool<?> pool) {
+		this.pool = pool;
+		this.state.set(ACQUIRED);
+	}
+	
+	/**
+	 * Reset this event and return it to its pool. Called by the ModuleEventBus once the event has been delivered
+	 * @throws IllegalStateException If this event was already released
+	 */
+	void release() {
+		if(!this.state.compareAndSet(ACQUIRED, RELEASED)) {
+			throw new IllegalStateException(String.format("Pooled ModuleEvent '%s' was released twice", getClass().getName()));
+		}
+		
+		reset();
+		this.pool.offer(this);
+	}
+}
@@ -0,0 +1,37 @@
+package dev.array21.dutchycore.module.events.transport;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Carries batches of distributed ModuleEvents between servers<br>
+ * <br>
+ * A transport only moves bytes, the events are serialized by DutchyCore. A batch sent by one node should reach every other node,
+ * it does not have to be delivered back to the node which sent it. Batches may be lost, e.g. while a node is restarting.<br>
+ * <br>
+ * DutchyCore ships a {@link LoopbackTransport} for tests and a {@link UnixSocketTransport} for servers on the same machine.
+ * Other transports can be started with {@link dev.array21.dutchycore.module.ModuleLoader#startEventForwarding(EventTransport, String)}
+ *
+ * @since 0.1.0
+ */
+public interface EventTransport {
+	
+	/**
+	 * Start the transport
+	 * @param receiver Receives the batches sent by other nodes. May be called from any thread
+	 * @throws IOException If the transport could not be started
+	 */
+	public void start(Consumer<byte[]> receiver) throws IOException;
+	
+	/**
+	 * Send a batch to all other nodes. Only called from a single thread
+	 * @param batch The serialized batch. It must not be modified
+	 * @throws IOException If the batch could not be sent to any node
+	 */
+	public void send(byte[] batch) throws IOException;
+	
+	/**
+	 * Stop the transport. No batches are received after this returns
+	 */
+	public void close();
+}
@@ -0,0 +1,60 @@
+package dev.array21.dutchycore.module.events.transport;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * A transport between nodes in the same JVM, e.g. for tests and benchmarks<br>
+ * <br>
+ * Transports created with {@link #connect()} form a network. A batch is delivered to the other started transports in the network,
+ * on the thread sending it.
+ *
+ * @since 0.1.0
+ */
+public class LoopbackTransport implements EventTransport {
+	
+	private final List<LoopbackTransport> network;
+	private volatile Consumer<byte[]> receiver;
+	
+	/**
+	 * Create a LoopbackTransport in a new network
+	 */
+	public LoopbackTransport() {
+		this(new CopyOnWriteArrayList<>());
+	}
+	
+	private LoopbackTransport(List<LoopbackTransport> network) {
+		this.network = network;
+	}
+	
+	/**
+	 * Create another transport in the network of this transport
+	 * @return Returns the new LoopbackTransport
+	 */
+	public LoopbackTransport connect() {
+		return new LoopbackTransport(this.network);
+	}
+	
+	@Override
+	public void start(Consumer<byte[]> receiver) {
+		this.receiver = receiver;
+		this.network.add(this);
+	}
+	
+	@Override
+	public void send(byte[] batch) {
+		for(LoopbackTransport transport : this.network) {
+			Consumer<byte[]> receiver = transport.receiver;
+			if(transport != this && receiver != null) {
+				receiver.accept(batch);
+			}
+		}
+	}
+	
+	@Override
+	public void close() {
+		this.network.remove(this);
+		this.receiver = null;
+	}
+}
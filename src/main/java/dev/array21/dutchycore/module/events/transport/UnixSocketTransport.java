@@ -0,0 +1,231 @@
+package dev.array21.dutchycore.module.events.transport;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import dev.array21.dutchycore.DutchyCore;
+import dev.array21.dutchycore.utils.Utils;
+
+/**
+ * A transport between servers on the same machine, over Unix domain sockets<br>
+ * <br>
+ * All nodes share a folder. Every node listens on a socket named after its node ID in that folder, and sends a batch by writing it to the sockets of all other nodes.
+ * Connections are kept open between batches. The folder is scanned for new nodes at most every few seconds, a node which can't be reached is skipped until the next scan.<br>
+ * <br>
+ * A batch is written as its length, followed by the batch itself.
+ *
+ * @since 0.1.0
+ */
+public class UnixSocketTransport implements EventTransport {
+	
+	private static final String SOCKET_SUFFIX = ".sock";
+	private static final int MAX_BATCH_BYTES = 64 * 1024 * 1024;
+	private static final long PEER_SCAN_INTERVAL_NANOS = 5_000_000_000L;
+	
+	private final Path folder;
+	private final Path socketPath;
+	
+	private volatile boolean closed = false;
+	private ServerSocketChannel server;
+	private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+	
+	/**
+	 * Connections to other nodes, by the path of their socket. Only used by the sending thread
+	 */
+	private final HashMap<Path, SocketChannel> peers = new HashMap<>();
+	private final List<Path> peerPaths = new ArrayList<>();
+	private long lastPeerScan = System.nanoTime() - PEER_SCAN_INTERVAL_NANOS;
+	
+	/**
+	 * Create a UnixSocketTransport
+	 * @param folder The folder shared by all nodes. It is created if it does not exist
+	 * @param nodeId The ID of this node, unique among the nodes sharing the folder
+	 */
+	public UnixSocketTransport(Path folder, String nodeId) {
+		this.folder = folder;
+		this.socketPath = folder.resolve(nodeId + SOCKET_SUFFIX);
+	}
+	
+	@Override
+	public void start(Consumer<byte[]> receiver) throws IOException {
+		Files.createDirectories(this.folder);
+		
+		//Left behind if the server was not stopped cleanly
+		Files.deleteIfExists(this.socketPath);
+		
+		this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+		this.server.bind(UnixDomainSocketAddress.of(this.socketPath));
+		
+		Thread acceptThread = new Thread(() -> accept(receiver), "DutchyCore-EventTransport-Accept");
+		acceptThread.setDaemon(true);
+		acceptThread.start();
+	}
+	
+	private void accept(Consumer<byte[]> receiver) {
+		while(!this.closed) {
+			SocketChannel connection;
+			try {
+				connection = this.server.accept();
+			} catch(ClosedChannelException e) {
+				return;
+			} catch(IOException e) {
+				DutchyCore.logWarn(String.format("Failed to accept a connection on '%s': %s", this.socketPath, Utils.getStackTrace(e)));
+				continue;
+			}
+			
+			this.connections.add(connection);
+			Thread readThread = new Thread(() -> read(connection, receiver), "DutchyCore-EventTransport-Read");
+			readThread.setDaemon(true);
+			readThread.start();
+		}
+	}
+	
+	private void read(SocketChannel connection, Consumer<byte[]> receiver) {
+		ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+		try {
+			while(!this.closed) {
+				header.clear();
+				readFully(connection, header);
+				
+				int length = header.getInt(0);
+				if(length < 0 || length > MAX_BATCH_BYTES) {
+					throw new IOException(String.format("Invalid batch length %d", length));
+				}
+				
+				ByteBuffer batch = ByteBuffer.allocate(length);
+				readFully(connection, batch);
+				receiver.accept(batch.array());
+			}
+		} catch(EOFException | ClosedChannelException e) {
+			//The other node disconnected, or this transport was closed
+		} catch(IOException e) {
+			if(!this.closed) {
+				DutchyCore.logWarn(String.format("Failed to read from a connection on '%s': %s", this.socketPath, Utils.getStackTrace(e)));
+			}
+		} finally {
+			this.connections.remove(connection);
+			closeQuietly(connection);
+		}
+	}
+	
+	private static void readFully(SocketChannel connection, ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()) {
+			if(connection.read(buffer) < 0) {
+				throw new EOFException();
+			}
+		}
+	}
+	
+	@Override
+	public void send(byte[] batch) throws IOException {
+		if(System.nanoTime() - this.lastPeerScan >= PEER_SCAN_INTERVAL_NANOS) {
+			scanPeers();
+		}
+		
+		ByteBuffer header = ByteBuffer.allocate(Integer.BYTES).putInt(0, batch.length);
+		IOException failure = null;
+		int sent = 0;
+		
+		Iterator<Path> iterator = this.peerPaths.iterator();
+		while(iterator.hasNext()) {
+			Path peerPath = iterator.next();
+			try {
+				SocketChannel peer = this.peers.get(peerPath);
+				if(peer == null) {
+					peer = SocketChannel.open(UnixDomainSocketAddress.of(peerPath));
+					this.peers.put(peerPath, peer);
+				}
+				
+				ByteBuffer[] frame = { header.duplicate(), ByteBuffer.wrap(batch) };
+				while(frame[1].hasRemaining()) {
+					peer.write(frame);
+				}
+				
+				sent++;
+			} catch(IOException e) {
+				//The node stopped, or its socket was left behind. Skip it until the next scan
+				closeQuietly(this.peers.remove(peerPath));
+				iterator.remove();
+				failure = e;
+			}
+		}
+		
+		if(sent == 0 && failure != null) {
+			throw failure;
+		}
+	}
+	
+	/**
+	 * Find the sockets of the other nodes in the folder, and close connections to nodes whose socket is gone
+	 * @throws IOException If the folder could not be listed
+	 */
+	private void scanPeers() throws IOException {
+		this.lastPeerScan = System.nanoTime();
+		this.peerPaths.clear();
+		
+		try(Stream<Path> files = Files.list(this.folder)) {
+			files.filter(path -> path.getFileName().toString().endsWith(SOCKET_SUFFIX) && !path.equals(this.socketPath)).forEach(this.peerPaths::add);
+		}
+		
+		Iterator<Map.Entry<Path, SocketChannel>> iterator = this.peers.entrySet().iterator();
+		while(iterator.hasNext()) {
+			Map.Entry<Path, SocketChannel> entry = iterator.next();
+			if(!this.peerPaths.contains(entry.getKey())) {
+				closeQuietly(entry.getValue());
+				iterator.remove();
+			}
+		}
+	}
+	
+	@Override
+	public void close() {
+		this.closed = true;
+		closeQuietly(this.server);
+		
+		try {
+			Files.deleteIfExists(this.socketPath);
+		} catch(IOException e) {
+			e.printStackTrace();
+		}
+		
+		for(SocketChannel connection : this.connections) {
+			closeQuietly(connection);
+		}
+		
+		for(SocketChannel peer : this.peers.values()) {
+			closeQuietly(peer);
+		}
+		
+		this.connections.clear();
+		this.peers.clear();
+	}
+	
+	private static void closeQuietly(AutoCloseable closeable) {
+		if(closeable == null) {
+			return;
+		}
+		
+		try {
+			closeable.close();
+		} catch(Exception e) {
+			//Nothing left to do with it
+		}
+	}
+}
@@ -0,0 +1,573 @@
+package dev.array21.dutchycore.module.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.CRC32;
+
+import dev.array21.dutchycore.DutchyCore;
+import dev.array21.dutchycore.annotations.Nullable;
+import dev.array21.dutchycore.utils.Utils;
+
+/**
+ * Stores a {@link ModuleStorage} in a memory-mapped, append-only log of binary records<br>
+ * <br>
+ * Every write appends a record per changed key, an in-memory index points to the latest record of every key. Reading the storage only scans the record headers
+ * to build the index, a value is decoded the first time it is used. This makes loading a large storage much cheaper than parsing YAML, and a write only costs the size of the change.<br>
+ * <br>
+ * Every record carries a CRC32. When the log is opened, it is read up to the first record which is incomplete or damaged, e.g. because the server crashed while writing it.
+ * Everything after that record is discarded.<br>
+ * <br>
+ * Overwritten and removed values stay in the log until it is compacted. Once they take up more than half of it, the live records are copied to a new log in the background,
+ * which then replaces the old one.<br>
+ * <br>
+ * Values are decoded into new objects, changing a value in place is not persisted: set it again with {@link ModuleStorage#setValue(String, Object)}.
+ *
+ * @since 0.1.0
+ */
+public class LogStorageBackend implements StorageBackend {
+	
+	/**
+	 * "DCLG", followed by the version of the format
+	 */
+	private static final int MAGIC = 0x44434C47;
+	private static final int VERSION = 1;
+	private static final int FILE_HEADER_BYTES = 8;
+	
+	/**
+	 * A record starts with the length of its body and the CRC32 of its body. The body holds the type, the length of the key, the key and the value
+	 */
+	private static final int RECORD_HEADER_BYTES = 8;
+	private static final int BODY_HEADER_BYTES = 5;
+	private static final byte PUT = 1, REMOVE = 2;
+	
+	private static final int INITIAL_CAPACITY = 64 * 1024;
+	
+	/**
+	 * The log is not compacted while it holds less than this many bytes of overwritten and removed values
+	 */
+	private static final long MIN_COMPACTION_GARBAGE = 1024 * 1024;
+	
+	/**
+	 * Marks a removed key in the pending changes
+	 */
+	private static final Object REMOVED = new Object();
+	
+	private final File file;
+	private final Executor compactionExecutor;
+	
+	/**
+	 * The log, index and statistics are guarded by this, as they are also used by the compaction thread
+	 */
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private int end;
+	private long garbage = 0;
+	private HashMap<String, Long> index = new HashMap<>();
+	private boolean compacting = false, closed = false;
+	private int compactions = 0;
+	
+	/**
+	 * The log is compacted once it holds this many bytes of garbage. Raised after a compaction fails, so a log which can't be replaced, e.g. on Windows, isn't copied on every save
+	 */
+	private long compactionThreshold = MIN_COMPACTION_GARBAGE;
+	
+	/**
+	 * Values which were set but not appended to the log yet, and values which were decoded already. Guarded by the ModuleStorage
+	 */
+	private final HashMap<String, Object> pending = new HashMap<>();
+	private final HashMap<String, Object> decoded = new HashMap<>();
+	
+	/**
+	 * Create a LogStorageBackend
+	 * @param file The log file
+	 * @param compactionExecutor Compacts the log in the background, e.g. the {@link StorageWriter}. If null, the log is compacted on the thread writing it
+	 */
+	public LogStorageBackend(File file, @Nullable Executor compactionExecutor) {
+		this.file = file;
+		this.compactionExecutor = compactionExecutor;
+	}
+	
+	@Override
+	public synchronized void read() throws IOException {
+		//The log is only written through this backend, once it is open the index is always up to date
+		if(this.channel != null) {
+			return;
+		}
+		
+		Files.createDirectories(this.file.toPath().toAbsolutePath().getParent());
+		this.channel = FileChannel.open(this.file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		
+		long size = this.channel.size();
+		map((int) Math.min(Integer.MAX_VALUE, Math.max(INITIAL_CAPACITY, size)));
+		
+		if(size < FILE_HEADER_BYTES) {
+			this.buffer.putInt(0, MAGIC);
+			this.buffer.putInt(4, VERSION);
+			this.end = FILE_HEADER_BYTES;
+			return;
+		}
+		
+		if(this.buffer.getInt(0) != MAGIC || this.buffer.getInt(4) != VERSION) {
+			this.channel.close();
+			this.channel = null;
+			throw new IOException(String.format("'%s' is not a storage log, or was written by another version of DutchyCore", this.file));
+		}
+		
+		recover();
+	}
+	
+	/**
+	 * Build the index from the records in the log, up to the first record which is incomplete or damaged
+	 */
+	private void recover() {
+		CRC32 crc = new CRC32();
+		int capacity = this.buffer.capacity();
+		int position = FILE_HEADER_BYTES;
+		
+		while(position <= capacity - RECORD_HEADER_BYTES) {
+			int length = this.buffer.getInt(position);
+			if(length == 0) {
+				break;
+			}
+			
+			if(length < BODY_HEADER_BYTES || length > capacity - position - RECORD_HEADER_BYTES) {
+				break;
+			}
+			
+			crc.reset();
+			crc.update(this.buffer.slice(position + RECORD_HEADER_BYTES, length));
+			byte type = this.buffer.get(position + RECORD_HEADER_BYTES);
+			int keyLength = this.buffer.getInt(position + RECORD_HEADER_BYTES + 1);
+			if((int) crc.getValue() != this.buffer.getInt(position + 4) || (type != PUT && type != REMOVE) || keyLength < 0 || keyLength > length - BODY_HEADER_BYTES) {
+				break;
+			}
+			
+			this.garbage += apply(this.index, this.buffer, position, position);
+			position += RECORD_HEADER_BYTES + length;
+		}
+		
+		this.end = position;
+		
+		//Appending after a damaged record must not leave parts of it behind, they could be mistaken for a record when the log is opened again
+		if(!isZero(this.end, capacity)) {
+			this.buffer.put(this.end, new byte[capacity - this.end]);
+			this.buffer.force();
+			DutchyCore.logWarn(String.format("Storage log '%s' has a damaged or incomplete record at byte %d, it was recovered up to the last intact record", this.file, this.end));
+		}
+	}
+	
+	private boolean isZero(int from, int to) {
+		int i = from;
+		for(; i <= to - Long.BYTES; i += Long.BYTES) {
+			if(this.buffer.getLong(i) != 0) {
+				return false;
+			}
+		}
+		
+		for(; i < to; i++) {
+			if(this.buffer.get(i) != 0) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Apply a record to an index
+	 * @param index The index
+	 * @param buffer The log holding the record
+	 * @param offset The position of the record in the buffer
+	 * @param indexOffset The position of the record to put in the index
+	 * @return Returns the number of bytes this record turned into garbage, including itself if it removes a key
+	 */
+	private static long apply(HashMap<String, Long> index, ByteBuffer buffer, int offset, int indexOffset) {
+		int size = RECORD_HEADER_BYTES + buffer.getInt(offset);
+		byte type = buffer.get(offset + RECORD_HEADER_BYTES);
+		byte[] key = new byte[buffer.getInt(offset + RECORD_HEADER_BYTES + 1)];
+		buffer.get(offset + RECORD_HEADER_BYTES + BODY_HEADER_BYTES, key);
+		
+		String keyString = new String(key, StandardCharsets.UTF_8);
+		Long previous = (type == PUT) ? index.put(keyString, ((long) indexOffset << 32) | size) : index.remove(keyString);
+		long garbage = (previous != null) ? (int) (long) previous : 0;
+		return (type == REMOVE) ? garbage + size : garbage;
+	}
+	
+	@Override
+	public boolean readIfChanged() {
+		return false;
+	}
+	
+	@Override
+	public Object get(String key) {
+		Object value = this.pending.get(key);
+		if(value != null) {
+			return (value == REMOVED) ? null : value;
+		}
+		
+		if(this.decoded.containsKey(key)) {
+			return this.decoded.get(key);
+		}
+		
+		value = decode(key);
+		if(value != null) {
+			this.decoded.put(key, value);
+		}
+		
+		return value;
+	}
+	
+	private synchronized Object decode(String key) {
+		Long entry = this.index.get(key);
+		if(entry == null) {
+			return null;
+		}
+		
+		int offset = (int) (entry >>> 32);
+		int keyLength = this.buffer.getInt(offset + RECORD_HEADER_BYTES + 1);
+		int valueOffset = offset + RECORD_HEADER_BYTES + BODY_HEADER_BYTES + keyLength;
+		int valueLength = (int) (long) entry - (valueOffset - offset);
+		
+		try {
+			return StorageValueCodec.decode(this.buffer.slice(valueOffset, valueLength));
+		} catch(IllegalArgumentException | BufferUnderflowException e) {
+			DutchyCore.logWarn(String.format("Failed to decode the value of '%s' in storage log '%s': %s", key, this.file, Utils.getStackTrace(e)));
+			return null;
+		}
+	}
+	
+	@Override
+	public void set(String key, Object value) {
+		this.pending.put(key, (value != null) ? value : REMOVED);
+		this.decoded.remove(key);
+	}
+	
+	@Override
+	public Collection<String> getKeys() {
+		HashSet<String> keys;
+		synchronized(this) {
+			keys = new HashSet<>(this.index.keySet());
+		}
+		
+		for(Map.Entry<String, Object> entry : this.pending.entrySet()) {
+			if(entry.getValue() == REMOVED) {
+				keys.remove(entry.getKey());
+			} else {
+				keys.add(entry.getKey());
+			}
+		}
+		
+		return keys;
+	}
+	
+	@Override
+	public PendingWrite prepareWrite() {
+		if(this.pending.isEmpty()) {
+			return null;
+		}
+		
+		MappedByteBuffer written;
+		boolean compactNow = false;
+		synchronized(this) {
+			if(this.channel == null) {
+				return null;
+			}
+			
+			//Appending is a copy into memory, so it is done while holding the lock. Forcing it to disk is left to the PendingWrite
+			Iterator<Map.Entry<String, Object>> iterator = this.pending.entrySet().iterator();
+			while(iterator.hasNext()) {
+				Map.Entry<String, Object> entry = iterator.next();
+				
+				//Encoded before anything is appended, so a value which can't be encoded doesn't leave a partial record behind, or hold up the other changes
+				byte[] value;
+				try {
+					value = (entry.getValue() != REMOVED) ? StorageValueCodec.encode(entry.getValue()) : null;
+				} catch(RuntimeException e) {
+					DutchyCore.logWarn(String.format("Failed to encode the value of '%s' for storage log '%s', it is not saved: %s", entry.getKey(), this.file, Utils.getStackTrace(e)));
+					iterator.remove();
+					continue;
+				}
+				
+				try {
+					append(entry.getKey(), value);
+				} catch(IOException e) {
+					DutchyCore.logWarn(String.format("Failed to append to storage log '%s', the remaining changes are written by the next save: %s", this.file, Utils.getStackTrace(e)));
+					break;
+				}
+				
+				if(entry.getValue() != REMOVED) {
+					this.decoded.put(entry.getKey(), entry.getValue());
+				}
+				
+				iterator.remove();
+			}
+			
+			written = this.buffer;
+			if(needsCompaction()) {
+				this.compacting = true;
+				if(this.compactionExecutor != null) {
+					try {
+						this.compactionExecutor.execute(this::compact);
+					} catch(RejectedExecutionException e) {
+						//Shutting down, the log is compacted another time
+						this.compacting = false;
+					}
+				} else {
+					compactNow = true;
+				}
+			}
+		}
+		
+		if(compactNow) {
+			compact();
+		}
+		
+		return new PendingWrite() {
+			@Override
+			public void write() {
+				written.force();
+			}
+			
+			@Override
+			public void finish() {
+				//Nothing to restore, the changes are in the log already
+			}
+			
+			@Override
+			public int getSegments() {
+				return 1;
+			}
+		};
+	}
+	
+	/**
+	 * Append a record to the log and update the index
+	 * @param key The key
+	 * @param value The encoded value, null if the key is removed
+	 * @throws IOException If the log could not be grown
+	 */
+	private void append(String key, @Nullable byte[] value) throws IOException {
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		byte[] valueBytes = (value != null) ? value : new byte[0];
+		
+		ByteBuffer body = ByteBuffer.allocate(BODY_HEADER_BYTES + keyBytes.length + valueBytes.length);
+		body.put((value != null) ? PUT : REMOVE).putInt(keyBytes.length).put(keyBytes).put(valueBytes);
+		
+		CRC32 crc = new CRC32();
+		crc.update(body.array());
+		
+		ensureCapacity(RECORD_HEADER_BYTES + body.capacity());
+		this.buffer.putInt(this.end, body.capacity());
+		this.buffer.putInt(this.end + 4, (int) crc.getValue());
+		this.buffer.put(this.end + RECORD_HEADER_BYTES, body.array());
+		
+		this.garbage += apply(this.index, this.buffer, this.end, this.end);
+		this.end += RECORD_HEADER_BYTES + body.capacity();
+	}
+	
+	private void ensureCapacity(int bytes) throws IOException {
+		long required = (long) this.end + bytes;
+		if(required <= this.buffer.capacity()) {
+			return;
+		}
+		
+		if(required > Integer.MAX_VALUE) {
+			throw new IOException(String.format("Storage log '%s' can't grow beyond 2 GB", this.file));
+		}
+		
+		map((int) Math.min(Integer.MAX_VALUE, Math.max(required, 2L * this.buffer.capacity())));
+	}
+	
+	/**
+	 * Map the log file. The file grows to the capacity if it is smaller
+	 * @param capacity The number of bytes to map
+	 * @throws IOException If the file could not be mapped
+	 */
+	private void map(int capacity) throws IOException {
+		this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+	}
+	
+	private boolean needsCompaction() {
+		return !this.compacting && this.garbage >= this.compactionThreshold && this.garbage * 2 >= this.end - FILE_HEADER_BYTES;
+	}
+	
+	/**
+	 * Copy the live records to a new log and replace the old log with it. Records appended while copying are copied afterwards, while holding the lock
+	 */
+	private void compact() {
+		try {
+			compactLog();
+		} catch(IOException e) {
+			DutchyCore.logWarn(String.format("Failed to compact storage log '%s', it is compacted again once its garbage has doubled: %s", this.file, Utils.getStackTrace(e)));
+			synchronized(this) {
+				this.compactionThreshold = Math.max(MIN_COMPACTION_GARBAGE, this.garbage * 2);
+			}
+		} finally {
+			synchronized(this) {
+				this.compacting = false;
+			}
+		}
+	}
+	
+	private void compactLog() throws IOException {
+		MappedByteBuffer source;
+		int sourceEnd;
+		String[] keys;
+		long[] entries;
+		synchronized(this) {
+			if(this.closed) {
+				return;
+			}
+			
+			source = this.buffer;
+			sourceEnd = this.end;
+			keys = new String[this.index.size()];
+			entries = new long[this.index.size()];
+			
+			int i = 0;
+			for(Map.Entry<String, Long> entry : this.index.entrySet()) {
+				keys[i] = entry.getKey();
+				entries[i++] = entry.getValue();
+			}
+		}
+		
+		//Records below the end are never changed, so they can be copied without holding the lock. In the order of the log, so it is read sequentially
+		Integer[] order = new Integer[keys.length];
+		for(int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		
+		Arrays.sort(order, (a, b) -> Long.compare(entries[a], entries[b]));
+		
+		Path target = this.file.toPath();
+		Path temp = target.resolveSibling(this.file.getName() + ".compact");
+		try {
+			HashMap<String, Long> compactedIndex = new HashMap<>();
+			int position = FILE_HEADER_BYTES;
+			try(FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				writeFully(out, ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip());
+				
+				for(int i : order) {
+					int offset = (int) (entries[i] >>> 32);
+					int size = (int) entries[i];
+					writeFully(out, source.slice(offset, size));
+					compactedIndex.put(keys[i], ((long) position << 32) | size);
+					position += size;
+				}
+			}
+			
+			synchronized(this) {
+				if(this.closed) {
+					return;
+				}
+				
+				//Records appended while copying. The log might have been remapped, so the current buffer is used
+				try(FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+					writeFully(out, this.buffer.slice(sourceEnd, this.end - sourceEnd));
+					out.force(true);
+				}
+				
+				long compactedGarbage = 0;
+				int tailStart = position;
+				for(int offset = sourceEnd; offset < this.end; offset += RECORD_HEADER_BYTES + this.buffer.getInt(offset)) {
+					compactedGarbage += apply(compactedIndex, this.buffer, offset, tailStart + (offset - sourceEnd));
+				}
+				
+				position += this.end - sourceEnd;
+				
+				try {
+					Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				} catch(AtomicMoveNotSupportedException e) {
+					Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+				}
+				
+				this.channel.close();
+				this.channel = FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE);
+				map(Math.max(INITIAL_CAPACITY, position * 2));
+				
+				this.end = position;
+				this.index = compactedIndex;
+				this.garbage = compactedGarbage;
+				this.compactionThreshold = MIN_COMPACTION_GARBAGE;
+				this.compactions++;
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+	
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+	
+	@Override
+	public int getSegmentCount() {
+		return 1;
+	}
+	
+	@Override
+	public synchronized void close() throws IOException {
+		this.closed = true;
+		if(this.channel != null) {
+			//The buffer is null if the log failed to open
+			if(this.buffer != null) {
+				this.buffer.force();
+			}
+			
+			this.channel.close();
+			this.channel = null;
+		}
+	}
+	
+	/**
+	 * Get the size of the log, including overwritten and removed values
+	 * @return Returns the size in bytes
+	 */
+	public synchronized long getLogBytes() {
+		return this.end;
+	}
+	
+	/**
+	 * Get the number of bytes in the log taken up by overwritten and removed values, which are dropped when the log is compacted
+	 * @return Returns the size in bytes
+	 */
+	public synchronized long getGarbageBytes() {
+		return this.garbage;
+	}
+	
+	/**
+	 * Get the number of times the log was compacted
+	 * @return Returns the number of compactions
+	 */
+	public synchronized int getCompactions() {
+		return this.compactions;
+	}
+	
+	/**
+	 * Get the number of keys in the log, not counting changes which were not written yet
+	 * @return Returns the number of keys
+	 */
+	public synchronized int getIndexSize() {
+		return this.index.size();
+	}
+}
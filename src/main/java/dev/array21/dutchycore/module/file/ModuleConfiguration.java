@@ -21,15 +21,22 @@ public class ModuleConfiguration {
 	private FileConfiguration fileConfig;
 	private File configFile;
 	
+	/**
+	 * The modification time and size of the config file when it was last read or saved
+	 */
+	private long lastModified = -1, lastSize = -1;
+	private final ModuleFileStatistics statistics = new ModuleFileStatistics();
+	
 	public ModuleConfiguration(Module module, DutchyCore plugin) {
 		this.module = module;
 		this.plugin = plugin;
 	}
 	
 	/**
-	 * Read the configuration into memory
+	 * Read the configuration into memory. The file is always read, use {@link #readIfChanged()} to only read it when it has changed
 	 */
-	public void read() {
+	public synchronized void read() {
+		long start = System.nanoTime();
 		configFile = new File(plugin.getDataFolder() + File.separator + "moduleconfig", module.getName() + ".yml");
 		
 		//Check if the config file exists. If not, make it
@@ -57,12 +64,42 @@ public class ModuleConfiguration {
 		} catch (InvalidConfigurationException e) {
 			e.printStackTrace();
 		}
+		
+		rememberFileState();
+		this.statistics.recordRead(System.nanoTime() - start);
+	}
+	
+	/**
+	 * Read the configuration into memory, unless the file has the same modification time and size as when it was last read or saved
+	 * @return Returns true if the file was read
+	 */
+	public synchronized boolean readIfChanged() {
+		if(this.fileConfig != null && this.configFile.lastModified() == this.lastModified && this.configFile.length() == this.lastSize) {
+			this.statistics.recordCacheHit();
+			return false;
+		}
+		
+		read();
+		return true;
+	}
+	
+	private void rememberFileState() {
+		this.lastModified = this.configFile.lastModified();
+		this.lastSize = this.configFile.length();
+	}
+	
+	/**
+	 * Get how often the config file was read, and how often reading it was avoided
+	 * @return Returns the ModuleFileStatistics
+	 */
+	public ModuleFileStatistics getStatistics() {
+		return this.statistics;
 	}
 	
 	/**
 	 * Save the configuration file
 	 */
-	public void save() {
+	public synchronized void save() {
 		//Check if fileConfig is not null
 		Validate.notNull(this.fileConfig);
 		
@@ -72,11 +109,17 @@ public class ModuleConfiguration {
 		}
 		
 		//Save the fileConfig back into the config file
+		long start = System.nanoTime();
 		try {
 			fileConfig.save(this.configFile);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
+		
+		this.statistics.recordWrite(System.nanoTime() - start, 1);
+		
+		//Our own changes don't have to be read back
+		rememberFileState();
 	}
 	
 	/**
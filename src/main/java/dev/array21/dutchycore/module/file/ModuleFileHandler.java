@@ -1,10 +1,15 @@
 package dev.array21.dutchycore.module.file;
 
 import java.io.File;
+import java.io.IOException;
+
+import org.bukkit.configuration.ConfigurationSection;
 
 import dev.array21.dutchycore.DutchyCore;
+import dev.array21.dutchycore.annotations.Nullable;
 import dev.array21.dutchycore.module.Module;
 import dev.array21.dutchycore.module.PluginModule;
+import dev.array21.dutchycore.utils.Utils;
 
 public class ModuleFileHandler {
 
@@ -31,35 +36,129 @@ public class ModuleFileHandler {
 	}
 	
 	/**
-	 * Get the configuration for this Module
+	 * Get the configuration for this Module<br>
+	 * <br>
+	 * The file is only read again if its modification time or size changed since it was last read or saved. Use {@link ModuleConfiguration#read()} to force a reload
 	 * @return Returns the ModuleConfiguration
 	 */
-	public ModuleConfiguration getModuleConfiguration() {
+	public synchronized ModuleConfiguration getModuleConfiguration() {
 		if(this.moduleConfiguration == null) {
 			this.moduleConfiguration = new ModuleConfiguration(module, this.plugin);
 		}
 		
-		this.moduleConfiguration.read();
+		this.moduleConfiguration.readIfChanged();
 		return this.moduleConfiguration;
 	}
 	
 	/**
-	 * Get the storage for this Module
+	 * Get the storage for this Module<br>
+	 * <br>
+	 * The file is only read again if its modification time or size changed since it was last read or saved. Use {@link ModuleStorage#read()} to force a reload.
+	 * If write-behind storage is enabled in the config, {@link ModuleStorage#save()} writes the storage in the background.
+	 * The backend is picked in the storageBackends section of the config
 	 * @return Returns the ModuleStorage
 	 */
-	public ModuleStorage getModuleStorage() {
+	public synchronized ModuleStorage getModuleStorage() {
 		if(this.moduleStorage == null) {
-			this.moduleStorage = new ModuleStorage(module, plugin);
+			this.moduleStorage = createModuleStorage();
+			if(DutchyCore.getModuleLoader().isWriteBehindStorage()) {
+				this.moduleStorage.setWriter(DutchyCore.getModuleLoader().getStorageWriter());
+			}
 		}
 		
-		this.moduleStorage.read();
+		this.moduleStorage.readIfChanged();
 		return this.moduleStorage;
 	}
 	
+	private ModuleStorage createModuleStorage() {
+		String backend = StorageBackends.DEFAULT;
+		Object storageBackends = DutchyCore.getCoreConfiguration().getOption("storageBackends");
+		if(storageBackends instanceof ConfigurationSection) {
+			backend = ((ConfigurationSection) storageBackends).getString(this.module.getName(), backend);
+		}
+		
+		StorageBackendFactory factory = DutchyCore.getModuleLoader().getStorageBackends().get(backend);
+		if(factory == null) {
+			DutchyCore.logWarn(String.format("Unknown storage backend '%s' for module '%s', using %s. Available are: %s", backend, this.module.getName(), StorageBackends.DEFAULT, DutchyCore.getModuleLoader().getStorageBackends().getNames()));
+			backend = StorageBackends.DEFAULT;
+		}
+		
+		if(backend.equalsIgnoreCase(StorageBackends.DEFAULT)) {
+			return new ModuleStorage(this.module, this.plugin);
+		}
+		
+		boolean importYaml = !factory.exists(this.module, this.plugin) && getModuleStorageFile().exists();
+		
+		//A backend which can't be opened would drop every change, so the module keeps using YAML instead
+		StorageBackend storageBackend = factory.create(this.module, this.plugin);
+		try {
+			storageBackend.read();
+		} catch(IOException e) {
+			DutchyCore.logWarn(String.format("Failed to open the %s storage backend of module '%s', its storage is kept in YAML until this is fixed: %s", backend, this.module.getName(), Utils.getStackTrace(e)));
+			
+			try {
+				storageBackend.close();
+			} catch(IOException closeException) {
+				closeException.printStackTrace();
+			}
+			
+			return new ModuleStorage(this.module, this.plugin);
+		}
+		
+		ModuleStorage storage = new ModuleStorage(this.module, this.plugin, storageBackend);
+		if(importYaml) {
+			
+			//The module used YAML before, its values are carried over once. The YAML files are left as they are
+			ModuleStorage yamlStorage = new ModuleStorage(this.module, this.plugin);
+			yamlStorage.read();
+			storage.read();
+			
+			for(String key : yamlStorage.getKeys()) {
+				storage.setValue(key, yamlStorage.getValue(key));
+			}
+			
+			storage.save();
+			DutchyCore.logInfo(String.format("Imported the YAML storage of module '%s' into the %s backend", this.module.getName(), backend));
+		}
+		
+		return storage;
+	}
+	
+	/**
+	 * Release the files of the storage, once the module is unloaded
+	 */
+	public synchronized void close() {
+		if(this.moduleStorage != null) {
+			this.moduleStorage.close();
+		}
+	}
+	
+	/**
+	 * Get how often the config file was read, and how often reading it was avoided
+	 * @return Returns the ModuleFileStatistics, null if the configuration was never used
+	 */
+	@Nullable
+	public synchronized ModuleFileStatistics getConfigurationStatistics() {
+		return (this.moduleConfiguration != null) ? this.moduleConfiguration.getStatistics() : null;
+	}
+	
+	/**
+	 * Get how often the storage file was read, and how often reading it was avoided
+	 * @return Returns the ModuleFileStatistics, null if the storage was never used
+	 */
+	@Nullable
+	public synchronized ModuleFileStatistics getStorageStatistics() {
+		return (this.moduleStorage != null) ? this.moduleStorage.getStatistics() : null;
+	}
+	
 	public File getModuleConfigurationFile() {
 		return new File(plugin.getDataFolder() + File.separator + "moduleconfig", module.getName() + ".yml");
 	}
 	
+	/**
+	 * Get the file holding the keys of the storage without a namespace. Namespaced keys are stored in a folder named after the module, next to it
+	 * @return Returns the storage file
+	 */
 	public File getModuleStorageFile() {
 		return new File(plugin.getDataFolder() + File.separator + "modulestorage", module.getName() + ".yml");
 	}
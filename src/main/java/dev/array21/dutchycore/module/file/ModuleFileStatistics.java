@@ -0,0 +1,102 @@
+package dev.array21.dutchycore.module.file;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How often a module file was parsed, how often parsing it was avoided because it had not changed, and how often it was written
+ *
+ * @since 0.1.0
+ */
+public class ModuleFileStatistics {
+	
+	private final LongAdder reads = new LongAdder();
+	private final LongAdder readNanos = new LongAdder();
+	private final LongAdder cacheHits = new LongAdder();
+	private final LongAdder writes = new LongAdder();
+	private final LongAdder writeNanos = new LongAdder();
+	private final LongAdder segmentsWritten = new LongAdder();
+	
+	/**
+	 * Record that the file was read and parsed
+	 * @param nanos How long reading took, in nanoseconds
+	 */
+	void recordRead(long nanos) {
+		this.reads.increment();
+		this.readNanos.add(nanos);
+	}
+	
+	/**
+	 * Record that the file was not read, because it had not changed since it was last read
+	 */
+	void recordCacheHit() {
+		this.cacheHits.increment();
+	}
+	
+	/**
+	 * Record that changes were written
+	 * @param nanos How long writing took, in nanoseconds
+	 * @param segments The number of files written
+	 */
+	void recordWrite(long nanos, int segments) {
+		this.writes.increment();
+		this.writeNanos.add(nanos);
+		this.segmentsWritten.add(segments);
+	}
+	
+	/**
+	 * Get the number of times the file was read and parsed
+	 * @return Returns the number of reads
+	 */
+	public long getReads() {
+		return this.reads.sum();
+	}
+	
+	/**
+	 * Get the total time spent reading the file
+	 * @return Returns the time in nanoseconds
+	 */
+	public long getReadNanos() {
+		return this.readNanos.sum();
+	}
+	
+	/**
+	 * Get the number of times reading the file was avoided
+	 * @return Returns the number of cache hits
+	 */
+	public long getCacheHits() {
+		return this.cacheHits.sum();
+	}
+	
+	/**
+	 * Get the number of times changes were written
+	 * @return Returns the number of writes
+	 */
+	public long getWrites() {
+		return this.writes.sum();
+	}
+	
+	/**
+	 * Get the total time spent writing changes
+	 * @return Returns the time in nanoseconds
+	 */
+	public long getWriteNanos() {
+		return this.writeNanos.sum();
+	}
+	
+	/**
+	 * Get the number of files written. A ModuleStorage only writes the segments which changed, so this can be lower than the writes times its number of segments
+	 * @return Returns the number of files written
+	 */
+	public long getSegmentsWritten() {
+		return this.segmentsWritten.sum();
+	}
+	
+	/**
+	 * Estimate the time saved by not reading the file, from the average time a read took
+	 * @return Returns the time in nanoseconds, 0 if the file was never read
+	 */
+	public long getAvoidedNanos() {
+		long reads = getReads();
+		return (reads > 0) ? getReadNanos() / reads * getCacheHits() : 0;
+	}
+}
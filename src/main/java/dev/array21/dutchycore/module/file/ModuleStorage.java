@@ -2,75 +2,268 @@ package dev.array21.dutchycore.module.file;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collection;
+import java.util.TreeMap;
 
 import org.apache.commons.lang.Validate;
-import org.bukkit.configuration.InvalidConfigurationException;
-import org.bukkit.configuration.file.FileConfiguration;
 
 import dev.array21.dutchycore.DutchyCore;
-import dev.array21.dutchycore.config.Utf8YamlConfiguration;
+import dev.array21.dutchycore.annotations.Nullable;
 import dev.array21.dutchycore.module.Module;
+import dev.array21.dutchycore.utils.Utils;
 
+/**
+ * Values stored by a module, kept in memory and persisted by a {@link StorageBackend}<br>
+ * <br>
+ * The default backend is a {@link YamlStorageBackend}. Modules storing many values can be switched to another backend in the config, see {@link StorageBackends},
+ * the methods of this class behave the same for every backend.
+ *
+ * @since 0.1.0
+ */
 public class ModuleStorage {
 
 	private Module module;
 	private DutchyCore plugin;
-	private HashMap<String, Object> storage = new HashMap<>();
-	private FileConfiguration storageFileConfig;
-	private File storageFile;
+	private final StorageBackend backend;
+	private boolean loaded = false;
 	
+	private final ModuleFileStatistics statistics = new ModuleFileStatistics();
+	
+	/**
+	 * Null if saves are written on the thread saving
+	 */
+	private volatile StorageWriter writer;
+	
+	/**
+	 * Create a ModuleStorage stored in YAML files
+	 * @param module The Module owning the storage
+	 * @param plugin DutchyCore instance
+	 */
 	public ModuleStorage(Module module, DutchyCore plugin) {
+		this(module, plugin, new YamlStorageBackend(getStorageFile(plugin, module, ".yml"), getStorageFile(plugin, module, "")));
+	}
+	
+	/**
+	 * Create a ModuleStorage
+	 * @param module The Module owning the storage
+	 * @param plugin DutchyCore instance
+	 * @param backend The backend persisting the storage
+	 */
+	public ModuleStorage(Module module, DutchyCore plugin, StorageBackend backend) {
 		this.module = module;
 		this.plugin = plugin;
+		this.backend = backend;
 	}
 	
-	public void read() {
-		storageFile = new File(plugin.getDataFolder() + File.separator + "modulestorage", module.getName() + ".yml");
+	/**
+	 * Get a file in the modulestorage folder named after a module
+	 * @param plugin DutchyCore instance
+	 * @param module The Module
+	 * @param extension The extension of the file, including the dot. Empty for the folder holding the YAML namespaces
+	 * @return Returns the File
+	 */
+	public static File getStorageFile(DutchyCore plugin, Module module, String extension) {
+		return new File(plugin.getDataFolder() + File.separator + "modulestorage", module.getName() + extension);
+	}
+	
+	/**
+	 * Read the storage into memory. Everything is always read, use {@link #readIfChanged()} to only read what has changed
+	 */
+	public synchronized void read() {
+		long start = System.nanoTime();
 		
-		if(!storageFile.exists()) {
-			try {
-				storageFile.createNewFile();
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+		try {
+			this.backend.read();
+		} catch(IOException e) {
+			DutchyCore.logWarn(String.format("Failed to read the storage of module '%s': %s", this.module.getName(), Utils.getStackTrace(e)));
 		}
 		
-		storageFileConfig = new Utf8YamlConfiguration();
+		this.loaded = true;
+		this.statistics.recordRead(System.nanoTime() - start);
+	}
+	
+	/**
+	 * Read the parts of the storage which changed since they were last read or saved. Parts with changes which are not written yet are not read
+	 * @return Returns true if anything was read
+	 */
+	public synchronized boolean readIfChanged() {
+		if(!this.loaded) {
+			read();
+			return true;
+		}
 		
+		long start = System.nanoTime();
+		boolean read = false;
 		try {
-			storageFileConfig.load(storageFile);
-			
-			for(String key : storageFileConfig.getKeys(false)) {
-				this.storage.put(key, storageFileConfig.get(key));
-			}
+			read = this.backend.readIfChanged();
+		} catch(IOException e) {
+			DutchyCore.logWarn(String.format("Failed to read the storage of module '%s': %s", this.module.getName(), Utils.getStackTrace(e)));
+		}
+		
+		if(read) {
+			this.statistics.recordRead(System.nanoTime() - start);
+		} else {
+			this.statistics.recordCacheHit();
+		}
+		
+		return read;
+	}
+	
+	/**
+	 * Get how often the storage was read, how often reading it was avoided, and how often it was written
+	 * @return Returns the ModuleFileStatistics
+	 */
+	public ModuleFileStatistics getStatistics() {
+		return this.statistics;
+	}
+	
+	/**
+	 * Get the number of files the storage is split in
+	 * @return Returns the number of files
+	 */
+	public synchronized int getSegmentCount() {
+		return this.backend.getSegmentCount();
+	}
+	
+	/**
+	 * Get all keys which have a value
+	 * @return Returns a copy of the keys
+	 */
+	public synchronized Collection<String> getKeys() {
+		return this.backend.getKeys();
+	}
+	
+	/**
+	 * Get the values with a key in a range, sorted by key. Depending on the backend, this reads less than getting every key
+	 * @param fromKey The lowest key, inclusive
+	 * @param toKey The highest key, exclusive
+	 * @return Returns the keys and their values
+	 */
+	public synchronized TreeMap<String, Object> getRange(String fromKey, String toKey) {
+		return this.backend.getRange(fromKey, toKey);
+	}
+	
+	/**
+	 * Get the values in a namespace, the keys starting with the namespace followed by a dot
+	 * @param namespace The namespace
+	 * @return Returns the keys and their values, sorted by key
+	 */
+	public TreeMap<String, Object> getNamespace(String namespace) {
+		//'/' follows '.', so this is every key starting with "namespace."
+		return getRange(namespace + ".", namespace + "/");
+	}
+	
+	/**
+	 * Get the backend persisting this storage
+	 * @return Returns the StorageBackend
+	 */
+	public StorageBackend getBackend() {
+		return this.backend;
+	}
+	
+	/**
+	 * Write saves through a StorageWriter, instead of on the thread saving
+	 * @param writer The StorageWriter, or null to write on the thread saving
+	 */
+	public void setWriter(@Nullable StorageWriter writer) {
+		this.writer = writer;
+	}
+	
+	/**
+	 * Save the storage to disk. Only what changed since it was last written is written<br>
+	 * <br>
+	 * With a {@link StorageWriter}, this only schedules the write and returns right away. The writer takes a copy of the changes when it writes them,
+	 * so values must not be changed in place afterwards: set a new value with {@link #setValue(String, Object)} instead of changing e.g. a stored List.
+	 * Without a writer, the changes are written right away.
+	 */
+	public synchronized void save() {
+		Validate.isTrue(this.loaded, "The storage has to be read before it is saved");
+		
+		StorageWriter writer = this.writer;
+		if(writer != null && writer.schedule(this)) {
+			return;
+		}
+		
+		StorageBackend.PendingWrite pendingWrite = this.backend.prepareWrite();
+		if(pendingWrite == null) {
+			return;
+		}
+		
+		long start = System.nanoTime();
+		try {
+			pendingWrite.write();
+			this.statistics.recordWrite(System.nanoTime() - start, pendingWrite.getSegments());
 		} catch(IOException e) {
 			e.printStackTrace();
-		} catch (InvalidConfigurationException e) {
-			e.printStackTrace();
+		} finally {
+			pendingWrite.finish();
 		}
 	}
 	
-	public void save() {
-		Validate.notNull(this.storageFileConfig);
+	/**
+	 * Write the changes to disk if there are any. Called by the {@link StorageWriter} thread
+	 * @return Returns true if anything was written, false if there was nothing to write
+	 * @throws IOException If the changes could not be written. They are written again by the next write
+	 */
+	boolean writeSnapshot() throws IOException {
+		StorageBackend.PendingWrite pendingWrite;
+		synchronized(this) {
+			pendingWrite = this.backend.prepareWrite();
+		}
 		
-		for(Map.Entry<String, Object> entry : this.storage.entrySet()) {
-			this.storageFileConfig.set(entry.getKey(), entry.getValue());
+		if(pendingWrite == null) {
+			return false;
 		}
 		
+		//Serializing and writing happens without holding the lock, so the main thread isn't blocked
+		long start = System.nanoTime();
 		try {
-			storageFileConfig.save(this.storageFile);
-		} catch (IOException e) {
+			pendingWrite.write();
+			this.statistics.recordWrite(System.nanoTime() - start, pendingWrite.getSegments());
+		} finally {
+			synchronized(this) {
+				pendingWrite.finish();
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Wait until this storage has been written, if it is saved through a {@link StorageWriter}. Must not be called while synchronized on this storage
+	 */
+	public void flush() {
+		StorageWriter writer = this.writer;
+		if(writer != null) {
+			writer.flush();
+		}
+	}
+	
+	/**
+	 * Release the files of the storage. Called when the module is unloaded, after the storage was flushed
+	 */
+	public synchronized void close() {
+		try {
+			this.backend.close();
+		} catch(IOException e) {
 			e.printStackTrace();
 		}
 	}
 	
-	public Object getValue(String key) {
-		return this.storage.get(key);
+	String getModuleName() {
+		return this.module.getName();
+	}
+	
+	public synchronized Object getValue(String key) {
+		return this.backend.get(key);
 	}
 	
-	public void setValue(String key, Object value) {
-		this.storage.put(key, value);
+	/**
+	 * Set a value. Setting a value to null removes it
+	 * @param key The key. With a {@link YamlStorageBackend}, a dot in it separates the namespace from the rest of the key
+	 * @param value The value
+	 */
+	public synchronized void setValue(String key, Object value) {
+		this.backend.set(key, value);
 	}
 }
@@ -0,0 +1,464 @@
+package dev.array21.dutchycore.module.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import dev.array21.dutchycore.DutchyCore;
+import dev.array21.dutchycore.Pair;
+import dev.array21.dutchycore.annotations.Nullable;
+import dev.array21.dutchycore.utils.Utils;
+
+/**
+ * Stores a {@link ModuleStorage} in an SQLite database, for modules storing more values than should be kept in memory<br>
+ * <br>
+ * Values are only read from the database when they are asked for, the most recently read ones are cached. Values which were set are kept in memory until they are written.
+ * Every write commits all changes since the previous write in one transaction, so with writeBehindStorage enabled the changes of one storageSaveDelayMillis interval are committed together.
+ * The database uses write-ahead logging, values can be read while a write is in progress.<br>
+ * <br>
+ * The SQLite driver is shipped with the server, so no other dependencies are required.
+ *
+ * @since 0.1.0
+ */
+public class SqliteStorageBackend implements StorageBackend {
+	
+	/**
+	 * The number of values read from the database which are kept in memory
+	 */
+	public static final int CACHE_SIZE = 4096;
+	
+	/**
+	 * Marks a key which was removed in {@link #pending}
+	 */
+	private static final Object REMOVED = new Object();
+	
+	private final File file;
+	
+	/**
+	 * Used while holding the lock of the ModuleStorage
+	 */
+	private Connection readConnection;
+	private PreparedStatement selectValue;
+	private PreparedStatement selectRange;
+	private PreparedStatement selectKeys;
+	private PreparedStatement selectDataVersion;
+	private long dataVersion;
+	
+	/**
+	 * Used by {@link PendingWrite#write()}, guarded by this backend's own lock
+	 */
+	private Connection writeConnection;
+	private PreparedStatement upsertValue;
+	private PreparedStatement deleteValue;
+	
+	/**
+	 * Changes which were not written yet
+	 */
+	private final HashMap<String, Object> pending = new HashMap<>();
+	
+	/**
+	 * Changes which are being written, and might not be committed yet
+	 */
+	private final HashMap<String, Object> writing = new HashMap<>();
+	
+	/**
+	 * Values read from the database, least recently used first
+	 */
+	private final LinkedHashMap<String, Object> cache = new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+			return this.size() > CACHE_SIZE;
+		}
+	};
+	
+	/**
+	 * Create a SqliteStorageBackend
+	 * @param file The database file
+	 */
+	public SqliteStorageBackend(File file) {
+		this.file = file;
+	}
+	
+	@Override
+	public void read() throws IOException {
+		//The database is the storage, only the cache has to be dropped
+		this.cache.clear();
+		if(this.readConnection != null) {
+			this.dataVersion = readDataVersion();
+			return;
+		}
+		
+		try {
+			Class.forName("org.sqlite.JDBC");
+		} catch(ClassNotFoundException e) {
+			throw new IOException("The SQLite driver is not available on this server", e);
+		}
+		
+		try {
+			this.writeConnection = DriverManager.getConnection("jdbc:sqlite:" + this.file.getAbsolutePath());
+			try(Statement statement = this.writeConnection.createStatement()) {
+				statement.execute("PRAGMA journal_mode=WAL");
+				
+				//Commits are not synced until the write-ahead log is checkpointed. A crash can lose the last commits, but never corrupt the database
+				statement.execute("PRAGMA synchronous=NORMAL");
+				statement.execute("CREATE TABLE IF NOT EXISTS storage (key TEXT PRIMARY KEY NOT NULL, value BLOB NOT NULL) WITHOUT ROWID");
+			}
+			
+			this.writeConnection.setAutoCommit(false);
+			this.upsertValue = this.writeConnection.prepareStatement("INSERT OR REPLACE INTO storage (key, value) VALUES (?, ?)");
+			this.deleteValue = this.writeConnection.prepareStatement("DELETE FROM storage WHERE key = ?");
+			
+			this.readConnection = DriverManager.getConnection("jdbc:sqlite:" + this.file.getAbsolutePath());
+			this.selectValue = this.readConnection.prepareStatement("SELECT value FROM storage WHERE key = ?");
+			this.selectRange = this.readConnection.prepareStatement("SELECT key, value FROM storage WHERE key >= ? AND key < ? ORDER BY key");
+			this.selectKeys = this.readConnection.prepareStatement("SELECT key FROM storage");
+			this.selectDataVersion = this.readConnection.prepareStatement("PRAGMA data_version");
+		} catch(SQLException e) {
+			close();
+			throw new IOException(String.format("Failed to open storage database '%s'", this.file), e);
+		}
+		
+		this.dataVersion = readDataVersion();
+	}
+	
+	/**
+	 * Get the version of the database, which changes when another connection commits
+	 * @return Returns the version
+	 * @throws IOException If the version could not be read
+	 */
+	private long readDataVersion() throws IOException {
+		try(ResultSet result = this.selectDataVersion.executeQuery()) {
+			return result.next() ? result.getLong(1) : 0L;
+		} catch(SQLException e) {
+			throw new IOException(e);
+		}
+	}
+	
+	@Override
+	public boolean readIfChanged() throws IOException {
+		if(this.readConnection == null) {
+			return false;
+		}
+		
+		//Our own commits change the version as well, as they go through the other connection. The version after them is recorded by the BatchWrite
+		long version = readDataVersion();
+		if(version == this.dataVersion) {
+			return false;
+		}
+		
+		this.dataVersion = version;
+		this.cache.clear();
+		return true;
+	}
+	
+	@Override
+	public Object get(String key) {
+		Object value = this.pending.get(key);
+		if(value == null) {
+			value = this.writing.get(key);
+		}
+		
+		if(value != null) {
+			return (value == REMOVED) ? null : value;
+		}
+		
+		if(this.cache.containsKey(key)) {
+			return this.cache.get(key);
+		}
+		
+		value = select(key);
+		if(value != null) {
+			this.cache.put(key, value);
+		}
+		
+		return value;
+	}
+	
+	@Nullable
+	private Object select(String key) {
+		if(this.selectValue == null) {
+			return null;
+		}
+		
+		try {
+			this.selectValue.setString(1, key);
+			try(ResultSet result = this.selectValue.executeQuery()) {
+				return result.next() ? decode(key, result.getBytes(1)) : null;
+			}
+		} catch(SQLException e) {
+			DutchyCore.logWarn(String.format("Failed to read '%s' from storage database '%s': %s", key, this.file, Utils.getStackTrace(e)));
+			return null;
+		}
+	}
+	
+	@Nullable
+	private Object decode(String key, byte[] value) {
+		try {
+			return StorageValueCodec.decode(ByteBuffer.wrap(value));
+		} catch(IllegalArgumentException | BufferUnderflowException e) {
+			DutchyCore.logWarn(String.format("Failed to decode the value of '%s' in storage database '%s': %s", key, this.file, Utils.getStackTrace(e)));
+			return null;
+		}
+	}
+	
+	@Override
+	public void set(String key, Object value) {
+		this.pending.put(key, (value != null) ? value : REMOVED);
+		this.cache.remove(key);
+	}
+	
+	/**
+	 * Get all keys which have a value. This reads every key from the database, use {@link #getRange(String, String)} where possible
+	 * @return Returns the keys
+	 */
+	@Override
+	public Collection<String> getKeys() {
+		HashSet<String> keys = new HashSet<>();
+		if(this.selectKeys != null) {
+			try(ResultSet result = this.selectKeys.executeQuery()) {
+				while(result.next()) {
+					keys.add(result.getString(1));
+				}
+			} catch(SQLException e) {
+				DutchyCore.logWarn(String.format("Failed to read the keys of storage database '%s': %s", this.file, Utils.getStackTrace(e)));
+			}
+		}
+		
+		applyChanges(keys, this.writing);
+		applyChanges(keys, this.pending);
+		return keys;
+	}
+	
+	private static void applyChanges(HashSet<String> keys, HashMap<String, Object> changes) {
+		for(Map.Entry<String, Object> entry : changes.entrySet()) {
+			if(entry.getValue() == REMOVED) {
+				keys.remove(entry.getKey());
+			} else {
+				keys.add(entry.getKey());
+			}
+		}
+	}
+	
+	/**
+	 * Get the values with a key in a range, sorted by key. Only the range is read from the database
+	 * @param fromKey The lowest key, inclusive
+	 * @param toKey The highest key, exclusive
+	 * @return Returns the keys and their values
+	 */
+	@Override
+	public TreeMap<String, Object> getRange(String fromKey, String toKey) {
+		TreeMap<String, Object> range = new TreeMap<>();
+		if(this.selectRange != null) {
+			try {
+				this.selectRange.setString(1, fromKey);
+				this.selectRange.setString(2, toKey);
+				try(ResultSet result = this.selectRange.executeQuery()) {
+					while(result.next()) {
+						String key = result.getString(1);
+						Object value = decode(key, result.getBytes(2));
+						if(value != null) {
+							range.put(key, value);
+						}
+					}
+				}
+			} catch(SQLException e) {
+				DutchyCore.logWarn(String.format("Failed to read keys '%s' to '%s' from storage database '%s': %s", fromKey, toKey, this.file, Utils.getStackTrace(e)));
+			}
+		}
+		
+		applyChanges(range, this.writing, fromKey, toKey);
+		applyChanges(range, this.pending, fromKey, toKey);
+		return range;
+	}
+	
+	private static void applyChanges(TreeMap<String, Object> range, HashMap<String, Object> changes, String fromKey, String toKey) {
+		for(Map.Entry<String, Object> entry : changes.entrySet()) {
+			String key = entry.getKey();
+			if(key.compareTo(fromKey) < 0 || key.compareTo(toKey) >= 0) {
+				continue;
+			}
+			
+			if(entry.getValue() == REMOVED) {
+				range.remove(key);
+			} else {
+				range.put(key, entry.getValue());
+			}
+		}
+	}
+	
+	@Override
+	public PendingWrite prepareWrite() {
+		//The previous write is still in progress. Its changes have to be committed first, these are written by the next write
+		if(this.pending.isEmpty() || !this.writing.isEmpty() || this.writeConnection == null) {
+			return null;
+		}
+		
+		//Changes by other connections have to be noticed before our commit changes the version
+		try {
+			readIfChanged();
+		} catch(IOException e) {
+			e.printStackTrace();
+		}
+		
+		//Encoding copies the values, so they may be changed again once the lock is released
+		List<Pair<String, byte[]>> changes = new ArrayList<>(this.pending.size());
+		Iterator<Map.Entry<String, Object>> iterator = this.pending.entrySet().iterator();
+		while(iterator.hasNext()) {
+			Map.Entry<String, Object> entry = iterator.next();
+			try {
+				changes.add(new Pair<>(entry.getKey(), (entry.getValue() != REMOVED) ? StorageValueCodec.encode(entry.getValue()) : null));
+			} catch(RuntimeException e) {
+				//Retrying would fail the same way, so the value is dropped
+				DutchyCore.logWarn(String.format("Failed to encode the value of '%s' for storage database '%s', it is not saved: %s", entry.getKey(), this.file, Utils.getStackTrace(e)));
+				iterator.remove();
+			}
+		}
+		
+		if(this.pending.isEmpty()) {
+			return null;
+		}
+		
+		this.writing.putAll(this.pending);
+		this.pending.clear();
+		return new BatchWrite(changes);
+	}
+	
+	/**
+	 * Commit changes in one transaction
+	 * @param changes The keys and their encoded values, null to remove a key
+	 * @throws IOException If the changes could not be committed. None of them are committed then
+	 */
+	private synchronized void commit(List<Pair<String, byte[]>> changes) throws IOException {
+		if(this.writeConnection == null) {
+			throw new IOException(String.format("Storage database '%s' is closed", this.file));
+		}
+		
+		try {
+			int upserts = 0;
+			int deletes = 0;
+			for(Pair<String, byte[]> change : changes) {
+				if(change.getB() != null) {
+					this.upsertValue.setString(1, change.getA());
+					this.upsertValue.setBytes(2, change.getB());
+					this.upsertValue.addBatch();
+					upserts++;
+				} else {
+					this.deleteValue.setString(1, change.getA());
+					this.deleteValue.addBatch();
+					deletes++;
+				}
+			}
+			
+			if(upserts > 0) {
+				this.upsertValue.executeBatch();
+			}
+			
+			if(deletes > 0) {
+				this.deleteValue.executeBatch();
+			}
+			
+			this.writeConnection.commit();
+		} catch(SQLException e) {
+			try {
+				this.writeConnection.rollback();
+			} catch(SQLException rollbackException) {
+				e.addSuppressed(rollbackException);
+			}
+			
+			throw new IOException(String.format("Failed to write to storage database '%s'", this.file), e);
+		}
+	}
+	
+	@Override
+	public int getSegmentCount() {
+		return 1;
+	}
+	
+	@Override
+	public synchronized void close() throws IOException {
+		SQLException failure = null;
+		for(AutoCloseable closeable : new AutoCloseable[] { this.selectValue, this.selectRange, this.selectKeys, this.selectDataVersion, this.readConnection, this.upsertValue, this.deleteValue, this.writeConnection }) {
+			if(closeable == null) {
+				continue;
+			}
+			
+			try {
+				closeable.close();
+			} catch(SQLException e) {
+				failure = e;
+			} catch(Exception e) {
+				//Statements and connections only throw SQLExceptions
+				throw new IllegalStateException(e);
+			}
+		}
+		
+		this.selectValue = this.selectRange = this.selectKeys = this.selectDataVersion = this.upsertValue = this.deleteValue = null;
+		this.readConnection = this.writeConnection = null;
+		
+		if(failure != null) {
+			throw new IOException(String.format("Failed to close storage database '%s'", this.file), failure);
+		}
+	}
+	
+	/**
+	 * The changes of one write, committed in one transaction
+	 */
+	private class BatchWrite implements PendingWrite {
+		
+		private final List<Pair<String, byte[]>> changes;
+		private boolean committed = false;
+		
+		private BatchWrite(List<Pair<String, byte[]>> changes) {
+			this.changes = changes;
+		}
+		
+		@Override
+		public void write() throws IOException {
+			commit(this.changes);
+			this.committed = true;
+		}
+		
+		@Override
+		public void finish() {
+			//Changes which were made during the write are newer, they are kept
+			if(!this.committed) {
+				for(Map.Entry<String, Object> entry : SqliteStorageBackend.this.writing.entrySet()) {
+					SqliteStorageBackend.this.pending.putIfAbsent(entry.getKey(), entry.getValue());
+				}
+			} else if(SqliteStorageBackend.this.readConnection != null) {
+				//Our own commit doesn't invalidate the cache, so readIfChanged must not see it as a change
+				try {
+					SqliteStorageBackend.this.dataVersion = readDataVersion();
+				} catch(IOException e) {
+					//The cache is dropped by the next readIfChanged instead
+					e.printStackTrace();
+				}
+			}
+			
+			SqliteStorageBackend.this.writing.clear();
+		}
+		
+		@Override
+		public int getSegments() {
+			return 1;
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package dev.array21.dutchycore.module.file;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.TreeMap;
+
+import dev.array21.dutchycore.annotations.Nullable;
+
+/**
+ * Persists the values of a {@link ModuleStorage}<br>
+ * <br>
+ * All methods are called while holding the lock of the ModuleStorage, except {@link PendingWrite#write()}.
+ * A backend therefore only needs locking of its own for work it does on other threads.
+ *
+ * @since 0.1.0
+ */
+public interface StorageBackend {
+	
+	/**
+	 * Read the storage. Called before any other method, and again when the storage is reloaded. Values which were set but not written yet are kept
+	 * @throws IOException If the storage could not be read
+	 */
+	public void read() throws IOException;
+	
+	/**
+	 * Read the parts of the storage which were changed by someone else since they were last read or written
+	 * @return Returns true if anything was read
+	 * @throws IOException If the storage could not be read
+	 */
+	public boolean readIfChanged() throws IOException;
+	
+	/**
+	 * Get a value
+	 * @param key The key
+	 * @return Returns the value, null if there is none
+	 */
+	@Nullable
+	public Object get(String key);
+	
+	/**
+	 * Set a value. It is persisted by the next write
+	 * @param key The key
+	 * @param value The value, null to remove it
+	 */
+	public void set(String key, @Nullable Object value);
+	
+	/**
+	 * Get all keys which have a value
+	 * @return Returns the keys
+	 */
+	public Collection<String> getKeys();
+	
+	/**
+	 * Get the values with a key in a range, sorted by key. By default this goes through all keys, backends which keep their keys sorted should override it
+	 * @param fromKey The lowest key, inclusive
+	 * @param toKey The highest key, exclusive
+	 * @return Returns the keys and their values
+	 */
+	public default TreeMap<String, Object> getRange(String fromKey, String toKey) {
+		TreeMap<String, Object> range = new TreeMap<>();
+		for(String key : getKeys()) {
+			if(key.compareTo(fromKey) >= 0 && key.compareTo(toKey) < 0) {
+				range.put(key, get(key));
+			}
+		}
+		
+		return range;
+	}
+	
+	/**
+	 * Collect the changes since the last write, so they can be written without holding the lock
+	 * @return Returns the PendingWrite, null if nothing changed
+	 */
+	@Nullable
+	public PendingWrite prepareWrite();
+	
+	/**
+	 * Get the number of files the storage is split in
+	 * @return Returns the number of files
+	 */
+	public int getSegmentCount();
+	
+	/**
+	 * Release the files of the storage. Changes which were not written are lost
+	 * @throws IOException If the files could not be closed
+	 */
+	public void close() throws IOException;
+	
+	/**
+	 * Changes collected by {@link StorageBackend#prepareWrite()}
+	 */
+	public interface PendingWrite {
+		
+		/**
+		 * Write the changes. Called without holding the lock of the ModuleStorage, so it must not touch state used by the other methods of the backend
+		 * @throws IOException If the changes could not be written
+		 */
+		public void write() throws IOException;
+		
+		/**
+		 * Finish the write while holding the lock again. Also called if {@link #write()} failed, changes which were not written must be written by the next write
+		 */
+		public void finish();
+		
+		/**
+		 * Get the number of files this write touches
+		 * @return Returns the number of files
+		 */
+		public int getSegments();
+	}
+}
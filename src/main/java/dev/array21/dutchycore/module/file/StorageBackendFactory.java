@@ -0,0 +1,28 @@
+package dev.array21.dutchycore.module.file;
+
+import dev.array21.dutchycore.DutchyCore;
+import dev.array21.dutchycore.module.Module;
+
+/**
+ * Creates the {@link StorageBackend} of a module, registered by name in {@link StorageBackends}
+ *
+ * @since 0.1.0
+ */
+public interface StorageBackendFactory {
+	
+	/**
+	 * Create the backend of a module
+	 * @param module The Module owning the storage
+	 * @param plugin DutchyCore instance
+	 * @return Returns the StorageBackend
+	 */
+	public StorageBackend create(Module module, DutchyCore plugin);
+	
+	/**
+	 * Get whether the module has stored anything in this backend before. If not, its YAML storage is imported when it is switched to this backend
+	 * @param module The Module
+	 * @param plugin DutchyCore instance
+	 * @return Returns true if the module has a storage in this backend
+	 */
+	public boolean exists(Module module, DutchyCore plugin);
+}
@@ -0,0 +1,108 @@
+package dev.array21.dutchycore.module.file;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import dev.array21.dutchycore.DutchyCore;
+import dev.array21.dutchycore.annotations.Nullable;
+import dev.array21.dutchycore.module.Module;
+
+/**
+ * The storage backends a module can be switched to in the storageBackends section of the config, by name<br>
+ * <br>
+ * Always available are:
+ * <ul>
+ * <li>yaml, the {@link YamlStorageBackend}. The default</li>
+ * <li>log, the {@link LogStorageBackend}</li>
+ * <li>sqlite, the {@link SqliteStorageBackend}</li>
+ * </ul>
+ * Other plugins can register their own backend. A module's backend is created when the module first gets its storage, the backend must be registered before that.
+ *
+ * @since 0.1.0
+ */
+public class StorageBackends {
+	
+	/**
+	 * The name of the backend used if a module has none configured
+	 */
+	public static final String DEFAULT = "yaml";
+	
+	private final ConcurrentHashMap<String, StorageBackendFactory> factories = new ConcurrentHashMap<>();
+	
+	/**
+	 * Create StorageBackends with the built-in backends
+	 */
+	public StorageBackends() {
+		this.register(DEFAULT, new FileBackendFactory(".yml") {
+			@Override
+			public StorageBackend create(Module module, DutchyCore plugin) {
+				return new YamlStorageBackend(getFile(module, plugin), ModuleStorage.getStorageFile(plugin, module, ""));
+			}
+		});
+		
+		this.register("log", new FileBackendFactory(".log") {
+			@Override
+			public StorageBackend create(Module module, DutchyCore plugin) {
+				return new LogStorageBackend(getFile(module, plugin), DutchyCore.getModuleLoader().getStorageWriter());
+			}
+		});
+		
+		this.register("sqlite", new FileBackendFactory(".db") {
+			@Override
+			public StorageBackend create(Module module, DutchyCore plugin) {
+				return new SqliteStorageBackend(getFile(module, plugin));
+			}
+		});
+	}
+	
+	/**
+	 * Register a backend. A backend registered earlier with the same name is replaced
+	 * @param name The name modules refer to it by in the config, case insensitive
+	 * @param factory The StorageBackendFactory creating the backend of a module
+	 */
+	public void register(String name, StorageBackendFactory factory) {
+		this.factories.put(name.toLowerCase(Locale.ROOT), factory);
+	}
+	
+	/**
+	 * Get a backend
+	 * @param name The name of the backend, case insensitive
+	 * @return Returns the StorageBackendFactory, null if no backend has this name
+	 */
+	@Nullable
+	public StorageBackendFactory get(String name) {
+		return this.factories.get(name.toLowerCase(Locale.ROOT));
+	}
+	
+	/**
+	 * Get the names of all backends
+	 * @return Returns the names, sorted
+	 */
+	public Set<String> getNames() {
+		return new TreeSet<>(this.factories.keySet());
+	}
+	
+	/**
+	 * A backend storing a module in one file in the modulestorage folder, named after the module
+	 */
+	private static abstract class FileBackendFactory implements StorageBackendFactory {
+		
+		private final String extension;
+		
+		private FileBackendFactory(String extension) {
+			this.extension = extension;
+		}
+		
+		protected File getFile(Module module, DutchyCore plugin) {
+			return ModuleStorage.getStorageFile(plugin, module, this.extension);
+		}
+		
+		@Override
+		public boolean exists(Module module, DutchyCore plugin) {
+			return getFile(module, plugin).exists();
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package dev.array21.dutchycore.module.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+
+import dev.array21.dutchycore.config.Utf8YamlConfiguration;
+
+/**
+ * A part of a {@link ModuleStorage}, stored in its own file. Guarded by the ModuleStorage it belongs to
+ *
+ * @since 0.1.0
+ */
+class StorageSegment {
+	
+	/**
+	 * Keys are written as they are, a dot in a key does not create a nested section
+	 */
+	private static final char PATH_SEPARATOR = '\u0000';
+	
+	final File file;
+	
+	/**
+	 * Prepended to the keys in the file to get the keys in the storage, e.g. the namespace followed by a dot
+	 */
+	private final String prefix;
+	
+	/**
+	 * The entries in this segment, by their key in the storage
+	 */
+	final HashMap<String, Object> entries = new HashMap<>();
+	
+	/**
+	 * Whether the entries were changed since they were last written, and whether the StorageWriter is writing them right now
+	 */
+	boolean dirty = false, writing = false;
+	
+	/**
+	 * The modification time and size of the file when it was last read or written
+	 */
+	private long lastModified = -1, lastSize = -1;
+	
+	StorageSegment(File file, String prefix) {
+		this.file = file;
+		this.prefix = prefix;
+	}
+	
+	/**
+	 * Read the file. The entries of this segment are left unchanged
+	 * @return Returns the entries in the file, by their key in the storage. Empty if the file does not exist
+	 * @throws IOException If the file could not be read
+	 * @throws InvalidConfigurationException If the file is not valid YAML
+	 */
+	Map<String, Object> load() throws IOException, InvalidConfigurationException {
+		HashMap<String, Object> loaded = new HashMap<>();
+		if(this.file.exists()) {
+			Utf8YamlConfiguration config = createConfiguration();
+			config.load(this.file);
+			
+			for(String key : config.getKeys(false)) {
+				loaded.put(this.prefix + key, config.get(key));
+			}
+		}
+		
+		rememberFileState();
+		return loaded;
+	}
+	
+	/**
+	 * Serialize entries of this segment. Does not touch the segment itself, so it can be called without holding the lock
+	 * @param entries A copy of the entries
+	 * @return Returns the YAML to write to the file
+	 */
+	String serialize(Map<String, Object> entries) {
+		Utf8YamlConfiguration config = createConfiguration();
+		for(Map.Entry<String, Object> entry : entries.entrySet()) {
+			config.set(entry.getKey().substring(this.prefix.length()), entry.getValue());
+		}
+		
+		return config.saveToString();
+	}
+	
+	/**
+	 * Get whether the file was changed by someone else since it was last read or written.
+	 * A segment with changes which are not written yet is never considered changed, those changes are newer than the file
+	 * @return Returns true if the file should be read again
+	 */
+	boolean hasChangedOnDisk() {
+		if(this.dirty || this.writing) {
+			return false;
+		}
+		
+		return this.file.lastModified() != this.lastModified || this.file.length() != this.lastSize;
+	}
+	
+	void rememberFileState() {
+		this.lastModified = this.file.lastModified();
+		this.lastSize = this.file.length();
+	}
+	
+	private static Utf8YamlConfiguration createConfiguration() {
+		Utf8YamlConfiguration config = new Utf8YamlConfiguration();
+		config.options().pathSeparator(PATH_SEPARATOR);
+		return config;
+	}
+}
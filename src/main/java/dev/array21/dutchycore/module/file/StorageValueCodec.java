@@ -0,0 +1,155 @@
+package dev.array21.dutchycore.module.file;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+
+import dev.array21.dutchycore.config.Utf8YamlConfiguration;
+
+/**
+ * Encodes the values of a {@link ModuleStorage} in a compact binary form, for the {@link LogStorageBackend}<br>
+ * <br>
+ * Strings, numbers, booleans, lists and maps are encoded directly. Anything else, e.g. a ConfigurationSerializable like an ItemStack, is encoded as YAML,
+ * so every value a {@link YamlStorageBackend} can store can be stored in the log as well. Decoded values have the same types as when read from YAML.
+ *
+ * @since 0.1.0
+ */
+final class StorageValueCodec {
+	
+	private static final byte NULL = 0, STRING = 1, INTEGER = 2, LONG = 3, DOUBLE = 4, BOOLEAN = 5, LIST = 6, MAP = 7, YAML = 8;
+	
+	private StorageValueCodec() {}
+	
+	/**
+	 * Encode a value
+	 * @param value The value
+	 * @return Returns the encoded value
+	 */
+	static byte[] encode(Object value) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(DataOutputStream out = new DataOutputStream(bytes)) {
+			encode(value, out);
+		} catch(IOException e) {
+			//A ByteArrayOutputStream does not throw
+			throw new IllegalStateException(e);
+		}
+		
+		return bytes.toByteArray();
+	}
+	
+	private static void encode(Object value, DataOutputStream out) throws IOException {
+		if(value == null) {
+			out.writeByte(NULL);
+		} else if(value instanceof String) {
+			out.writeByte(STRING);
+			writeString((String) value, out);
+		} else if(value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			out.writeByte(INTEGER);
+			out.writeInt(((Number) value).intValue());
+		} else if(value instanceof Long) {
+			out.writeByte(LONG);
+			out.writeLong((Long) value);
+		} else if(value instanceof Double || value instanceof Float) {
+			out.writeByte(DOUBLE);
+			out.writeDouble(((Number) value).doubleValue());
+		} else if(value instanceof Boolean) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		} else if(value instanceof List) {
+			List<?> list = (List<?>) value;
+			out.writeByte(LIST);
+			out.writeInt(list.size());
+			for(Object element : list) {
+				encode(element, out);
+			}
+		} else if(value instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) value;
+			out.writeByte(MAP);
+			out.writeInt(map.size());
+			for(Map.Entry<?, ?> entry : map.entrySet()) {
+				writeString(String.valueOf(entry.getKey()), out);
+				encode(entry.getValue(), out);
+			}
+		} else {
+			Utf8YamlConfiguration config = new Utf8YamlConfiguration();
+			config.set("value", value);
+			out.writeByte(YAML);
+			writeString(config.saveToString(), out);
+		}
+	}
+	
+	private static void writeString(String value, DataOutputStream out) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	/**
+	 * Decode a value
+	 * @param in The encoded value, from its position. The position is moved past the value
+	 * @return Returns the value
+	 * @throws IllegalArgumentException If the value is not valid
+	 */
+	static Object decode(ByteBuffer in) {
+		byte type = in.get();
+		switch(type) {
+		case NULL:
+			return null;
+		case STRING:
+			return readString(in);
+		case INTEGER:
+			return in.getInt();
+		case LONG:
+			return in.getLong();
+		case DOUBLE:
+			return in.getDouble();
+		case BOOLEAN:
+			return in.get() != 0;
+		case LIST: {
+			int size = in.getInt();
+			List<Object> list = new ArrayList<>(size);
+			for(int i = 0; i < size; i++) {
+				list.add(decode(in));
+			}
+			
+			return list;
+		}
+		case MAP: {
+			int size = in.getInt();
+			Map<String, Object> map = new LinkedHashMap<>();
+			for(int i = 0; i < size; i++) {
+				String key = readString(in);
+				map.put(key, decode(in));
+			}
+			
+			return map;
+		}
+		case YAML: {
+			Utf8YamlConfiguration config = new Utf8YamlConfiguration();
+			try {
+				config.loadFromString(readString(in));
+			} catch(InvalidConfigurationException e) {
+				throw new IllegalArgumentException("Invalid YAML value", e);
+			}
+			
+			return config.get("value");
+		}
+		default:
+			throw new IllegalArgumentException(String.format("Unknown value type %d", type));
+		}
+	}
+	
+	private static String readString(ByteBuffer in) {
+		byte[] bytes = new byte[in.getInt()];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,183 @@
+package dev.array21.dutchycore.module.file;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import dev.array21.dutchycore.DutchyCore;
+import dev.array21.dutchycore.utils.Utils;
+
+/**
+ * Writes {@link ModuleStorage}s to disk on a single background thread, shared by all modules<br>
+ * <br>
+ * Saving a storage only marks it dirty. The first save schedules a write after the delay, storages saved before it runs,
+ * by the same or other modules, are written in that same pass. Saving a storage many times in a row therefore writes it once.<br>
+ * <br>
+ * Use {@link #flush()} to wait until everything saved so far has been written, e.g. before a module is unloaded.
+ * Other storage maintenance, like compacting a {@link LogStorageBackend}, runs on the same thread through {@link #execute(Runnable)}.
+ *
+ * @since 0.1.0
+ */
+public class StorageWriter implements Executor {
+	
+	private final long delayMillis;
+	private final ScheduledExecutorService executor;
+	
+	/**
+	 * Storages waiting to be written, in the order they were first saved. Guarded by itself
+	 */
+	private final LinkedHashSet<ModuleStorage> pending = new LinkedHashSet<>();
+	private boolean scheduled = false;
+	
+	private final LongAdder saves = new LongAdder();
+	private final LongAdder writes = new LongAdder();
+	
+	/**
+	 * Create a StorageWriter
+	 * @param delayMillis How long to wait after a save before writing, so saves in quick succession are coalesced
+	 */
+	public StorageWriter(long delayMillis) {
+		this.delayMillis = delayMillis;
+		this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "DutchyCore-StorageWriter");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * Schedule a storage to be written. Called by {@link ModuleStorage#save()}
+	 * @param storage The ModuleStorage which was saved
+	 * @return Returns false if this writer has been shut down, the storage has to be written by the caller
+	 */
+	boolean schedule(ModuleStorage storage) {
+		if(!enqueue(storage)) {
+			return false;
+		}
+		
+		this.saves.increment();
+		return true;
+	}
+	
+	/**
+	 * Add a storage to the pending storages, and schedule a write if none is scheduled yet
+	 * @param storage The ModuleStorage
+	 * @return Returns false if this writer has been shut down
+	 */
+	private boolean enqueue(ModuleStorage storage) {
+		synchronized(this.pending) {
+			if(!this.scheduled) {
+				try {
+					this.executor.schedule(this::writePending, this.delayMillis, TimeUnit.MILLISECONDS);
+				} catch(RejectedExecutionException e) {
+					return false;
+				}
+				
+				this.scheduled = true;
+			}
+			
+			this.pending.add(storage);
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Write all pending storages. Only runs on the writer thread
+	 */
+	private void writePending() {
+		List<ModuleStorage> batch;
+		synchronized(this.pending) {
+			batch = new ArrayList<>(this.pending);
+			this.pending.clear();
+			this.scheduled = false;
+		}
+		
+		for(ModuleStorage storage : batch) {
+			try {
+				if(storage.writeSnapshot()) {
+					this.writes.increment();
+				}
+			} catch(Exception e) {
+				//The backend keeps the changes which were not written, they are retried with the next write
+				DutchyCore.logWarn(String.format("Failed to write the storage of module '%s', retrying after %d ms: %s", storage.getModuleName(), this.delayMillis, Utils.getStackTrace(e)));
+				enqueue(storage);
+			}
+		}
+	}
+	
+	/**
+	 * Run a maintenance task on the writer thread, after the writes which are already scheduled
+	 * @param task The task
+	 * @throws RejectedExecutionException If this writer has been shut down
+	 */
+	@Override
+	public void execute(Runnable task) {
+		this.executor.execute(() -> {
+			try {
+				task.run();
+			} catch(Exception e) {
+				DutchyCore.logWarn(String.format("A storage maintenance task failed: %s", Utils.getStackTrace(e)));
+			}
+		});
+	}
+	
+	/**
+	 * Write all pending storages now, and wait until they have been written
+	 */
+	public void flush() {
+		if(this.executor.isShutdown()) {
+			return;
+		}
+		
+		//Runs after a write which is already in progress, so all saves before this call are on disk when it returns
+		Future<?> future = this.executor.submit(this::writePending);
+		try {
+			future.get();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch(ExecutionException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Write all pending storages and stop the writer thread. Storages saved afterwards are written on the thread saving them
+	 */
+	public void shutdown() {
+		flush();
+		this.executor.shutdown();
+	}
+	
+	/**
+	 * Get whether this writer has been shut down
+	 * @return Returns true if {@link #shutdown()} was called
+	 */
+	public boolean isShutdown() {
+		return this.executor.isShutdown();
+	}
+	
+	/**
+	 * Get the number of times a storage was saved through this writer
+	 * @return Returns the number of saves
+	 */
+	public long getSaves() {
+		return this.saves.sum();
+	}
+	
+	/**
+	 * Get the number of times a storage was actually written to disk. The difference with {@link #getSaves()} is what coalescing saved
+	 * @return Returns the number of writes
+	 */
+	public long getWrites() {
+		return this.writes.sum();
+	}
+}
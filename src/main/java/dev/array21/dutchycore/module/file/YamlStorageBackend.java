@@ -0,0 +1,425 @@
+package dev.array21.dutchycore.module.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+
+import dev.array21.dutchycore.Pair;
+import dev.array21.dutchycore.annotations.Nullable;
+import dev.array21.dutchycore.utils.FileUtils;
+
+/**
+ * Stores a {@link ModuleStorage} in YAML files, the default backend<br>
+ * <br>
+ * The storage is split into segments, each in its own file. A write only rewrites the segments which changed since they were last written:
+ * <ul>
+ * <li>Keys without a dot are stored in the storage file, modulestorage/&lt;module&gt;.yml</li>
+ * <li>A key with a dot belongs to the namespace before the first dot, e.g. <code>balances.&lt;uuid&gt;</code> belongs to <code>balances</code>.
+ * A namespace is stored in modulestorage/&lt;module&gt;/&lt;namespace&gt;/, spread over as many files as needed to keep each below {@link #MAX_SEGMENT_ENTRIES} entries</li>
+ * </ul>
+ * Modules storing many values should use namespaced keys, so changing one value doesn't rewrite all of them.
+ *
+ * @since 0.1.0
+ */
+public class YamlStorageBackend implements StorageBackend {
+	
+	/**
+	 * A namespace segment holding more entries than this is split in two
+	 */
+	public static final int MAX_SEGMENT_ENTRIES = 1024;
+	
+	private final File storageFile;
+	private final File segmentFolder;
+	
+	/**
+	 * Keys without a namespace, stored in the storage file
+	 */
+	private final StorageSegment mainSegment;
+	
+	/**
+	 * The segments of every namespace. A namespace has a power of two segments, a key belongs to the segment picked by its hash
+	 */
+	private final HashMap<String, StorageSegment[]> namespaces = new HashMap<>();
+	
+	/**
+	 * Create a YamlStorageBackend
+	 * @param storageFile The file holding the keys without a namespace
+	 * @param segmentFolder The folder holding a folder per namespace
+	 */
+	public YamlStorageBackend(File storageFile, File segmentFolder) {
+		this.storageFile = storageFile;
+		this.segmentFolder = segmentFolder;
+		this.mainSegment = new StorageSegment(storageFile, "");
+	}
+	
+	@Override
+	public void read() throws IOException {
+		if(!this.storageFile.exists()) {
+			this.storageFile.createNewFile();
+		}
+		
+		//Values which were set but not written yet are kept, they are newer than the files
+		Predicate<String> unwritten = getUnwritten();
+		readSegment(this.mainSegment, unwritten);
+		
+		File[] namespaceFolders = this.segmentFolder.listFiles(File::isDirectory);
+		if(namespaceFolders != null) {
+			for(File namespaceFolder : namespaceFolders) {
+				readNamespace(URLDecoder.decode(namespaceFolder.getName(), StandardCharsets.UTF_8), namespaceFolder, unwritten);
+			}
+		}
+		
+		//Split after reading everything, a file written by an older version may hold any number of entries
+		for(String namespace : new ArrayList<>(this.namespaces.keySet())) {
+			splitIfFull(namespace);
+		}
+	}
+	
+	private void readNamespace(String namespace, File namespaceFolder, Predicate<String> unwritten) {
+		File[] files = namespaceFolder.listFiles((folder, name) -> name.endsWith(".yml"));
+		if(files == null) {
+			return;
+		}
+		
+		//The files are numbered by segment, their count tells how many segments the namespace has
+		int highestIndex = -1;
+		for(File file : files) {
+			highestIndex = Math.max(highestIndex, getFileIndex(file));
+		}
+		
+		if(highestIndex < 0) {
+			return;
+		}
+		
+		int segmentCount = (highestIndex == 0) ? 1 : Integer.highestOneBit(highestIndex) << 1;
+		StorageSegment[] segments = getNamespace(namespace, segmentCount);
+		for(File file : files) {
+			int index = getFileIndex(file);
+			if(index >= 0) {
+				readSegment(segments[index], unwritten);
+			}
+		}
+	}
+	
+	private static int getFileIndex(File file) {
+		String name = file.getName();
+		try {
+			return Integer.parseInt(name.substring(0, name.length() - ".yml".length()));
+		} catch(NumberFormatException e) {
+			//Not a segment
+			return -1;
+		}
+	}
+	
+	/**
+	 * Read the file of a segment into memory. An entry that belongs to another segment, e.g. because the namespace was split, is moved there
+	 * @param segment The StorageSegment to read
+	 * @param unwritten Returns true for keys in segments with changes which are not written yet, see {@link #getUnwritten()}. These entries are skipped
+	 */
+	private void readSegment(StorageSegment segment, Predicate<String> unwritten) {
+		Map<String, Object> entries;
+		try {
+			entries = segment.load();
+		} catch(IOException e) {
+			e.printStackTrace();
+			return;
+		} catch (InvalidConfigurationException e) {
+			e.printStackTrace();
+			return;
+		}
+		
+		for(Map.Entry<String, Object> entry : entries.entrySet()) {
+			StorageSegment target = getSegment(entry.getKey());
+			if(unwritten.test(entry.getKey())) {
+				continue;
+			}
+			
+			target.entries.put(entry.getKey(), entry.getValue());
+			
+			if(target != segment) {
+				target.dirty = true;
+				segment.dirty = true;
+			}
+		}
+	}
+	
+	@Override
+	public boolean readIfChanged() {
+		//A changed file may hold entries of other segments, they must not overwrite changes which are not written yet
+		Predicate<String> unwritten = getUnwritten();
+		boolean read = false;
+		for(StorageSegment segment : getSegments()) {
+			if(segment.hasChangedOnDisk()) {
+				readSegment(segment, unwritten);
+				read = true;
+			}
+		}
+		
+		return read;
+	}
+	
+	@Override
+	public Object get(String key) {
+		StorageSegment segment = findSegment(key);
+		return (segment != null) ? segment.entries.get(key) : null;
+	}
+	
+	@Override
+	public void set(String key, Object value) {
+		StorageSegment segment = getSegment(key);
+		if(value == null) {
+			if(segment.entries.remove(key) != null) {
+				segment.dirty = true;
+			}
+			
+			return;
+		}
+		
+		segment.entries.put(key, value);
+		segment.dirty = true;
+		
+		if(segment != this.mainSegment && segment.entries.size() > MAX_SEGMENT_ENTRIES) {
+			splitIfFull(getNamespaceOf(key));
+		}
+	}
+	
+	@Override
+	public Collection<String> getKeys() {
+		List<String> keys = new ArrayList<>();
+		for(StorageSegment segment : getSegments()) {
+			keys.addAll(segment.entries.keySet());
+		}
+		
+		return keys;
+	}
+	
+	@Override
+	public PendingWrite prepareWrite() {
+		List<Pair<StorageSegment, HashMap<String, Object>>> snapshots = new ArrayList<>();
+		for(StorageSegment segment : getSegments()) {
+			if(segment.dirty) {
+				segment.dirty = false;
+				segment.writing = true;
+				snapshots.add(new Pair<>(segment, new HashMap<>(segment.entries)));
+			}
+		}
+		
+		return snapshots.isEmpty() ? null : new SegmentWrite(snapshots);
+	}
+	
+	@Override
+	public int getSegmentCount() {
+		int count = 1;
+		for(StorageSegment[] segments : this.namespaces.values()) {
+			count += segments.length;
+		}
+		
+		return count;
+	}
+	
+	@Override
+	public void close() {
+		//Files are only open while they are read or written
+	}
+	
+	/**
+	 * Get which keys belong to segments with changes which are not written yet. Taken before reading, as reading can mark segments dirty and resize namespaces
+	 * @return Returns a Predicate, which returns true for keys whose segment had unwritten changes when this was called
+	 */
+	private Predicate<String> getUnwritten() {
+		HashSet<StorageSegment> unwritten = new HashSet<>();
+		for(StorageSegment segment : getSegments()) {
+			if(segment.dirty || segment.writing) {
+				unwritten.add(segment);
+			}
+		}
+		
+		if(unwritten.isEmpty()) {
+			return key -> false;
+		}
+		
+		//A resized namespace gets a new array, so the copy keeps the segments as they are now
+		HashMap<String, StorageSegment[]> namespaces = new HashMap<>(this.namespaces);
+		return key -> {
+			String namespace = getNamespaceOf(key);
+			if(namespace == null) {
+				return unwritten.contains(this.mainSegment);
+			}
+			
+			StorageSegment[] segments = namespaces.get(namespace);
+			return segments != null && unwritten.contains(segments[getSegmentIndex(key, segments.length)]);
+		};
+	}
+	
+	private List<StorageSegment> getSegments() {
+		List<StorageSegment> segments = new ArrayList<>();
+		segments.add(this.mainSegment);
+		for(StorageSegment[] namespaceSegments : this.namespaces.values()) {
+			for(StorageSegment segment : namespaceSegments) {
+				segments.add(segment);
+			}
+		}
+		
+		return segments;
+	}
+	
+	/**
+	 * Get the namespace of a key
+	 * @param key The key
+	 * @return Returns the namespace, null if the key has none
+	 */
+	@Nullable
+	private static String getNamespaceOf(String key) {
+		int dot = key.indexOf('.');
+		return (dot > 0) ? key.substring(0, dot) : null;
+	}
+	
+	/**
+	 * Get the segment a key belongs to, without creating its namespace
+	 * @param key The key
+	 * @return Returns the StorageSegment, null if the namespace of the key has no segments yet
+	 */
+	@Nullable
+	private StorageSegment findSegment(String key) {
+		String namespace = getNamespaceOf(key);
+		if(namespace == null) {
+			return this.mainSegment;
+		}
+		
+		StorageSegment[] segments = this.namespaces.get(namespace);
+		return (segments != null) ? segments[getSegmentIndex(key, segments.length)] : null;
+	}
+	
+	private StorageSegment getSegment(String key) {
+		String namespace = getNamespaceOf(key);
+		if(namespace == null) {
+			return this.mainSegment;
+		}
+		
+		StorageSegment[] segments = getNamespace(namespace, 1);
+		return segments[getSegmentIndex(key, segments.length)];
+	}
+	
+	/**
+	 * Pick the segment of a key. Stable across restarts, String#hashCode is specified
+	 * @param key The key
+	 * @param segmentCount The number of segments in its namespace, a power of two
+	 * @return Returns the index of the segment
+	 */
+	private static int getSegmentIndex(String key, int segmentCount) {
+		int hash = key.hashCode();
+		return (hash ^ (hash >>> 16)) & (segmentCount - 1);
+	}
+	
+	/**
+	 * Get the segments of a namespace, creating or resizing them if the namespace has fewer segments than required
+	 * @param namespace The namespace
+	 * @param minimumSegments The minimum number of segments, a power of two
+	 * @return Returns the segments
+	 */
+	private StorageSegment[] getNamespace(String namespace, int minimumSegments) {
+		StorageSegment[] segments = this.namespaces.get(namespace);
+		if(segments != null && segments.length >= minimumSegments) {
+			return segments;
+		}
+		
+		File namespaceFolder = new File(this.segmentFolder, URLEncoder.encode(namespace, StandardCharsets.UTF_8));
+		StorageSegment[] resized = new StorageSegment[minimumSegments];
+		for(int i = 0; i < resized.length; i++) {
+			resized[i] = new StorageSegment(new File(namespaceFolder, i + ".yml"), namespace + ".");
+		}
+		
+		//Every entry might move, so every segment has to be written
+		if(segments != null) {
+			for(StorageSegment segment : segments) {
+				for(Map.Entry<String, Object> entry : segment.entries.entrySet()) {
+					resized[getSegmentIndex(entry.getKey(), resized.length)].entries.put(entry.getKey(), entry.getValue());
+				}
+			}
+			
+			for(StorageSegment segment : resized) {
+				segment.dirty = true;
+			}
+		}
+		
+		this.namespaces.put(namespace, resized);
+		return resized;
+	}
+	
+	/**
+	 * Double the segments of a namespace if one of them holds more than {@link #MAX_SEGMENT_ENTRIES} entries
+	 * @param namespace The namespace
+	 */
+	private void splitIfFull(String namespace) {
+		StorageSegment[] segments = this.namespaces.get(namespace);
+		for(StorageSegment segment : segments) {
+			if(segment.entries.size() > MAX_SEGMENT_ENTRIES) {
+				getNamespace(namespace, segments.length * 2);
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Copies of the changed segments, serialized and written without holding the lock
+	 */
+	private static class SegmentWrite implements PendingWrite {
+		
+		private final List<Pair<StorageSegment, HashMap<String, Object>>> snapshots;
+		private final boolean[] written;
+		
+		private SegmentWrite(List<Pair<StorageSegment, HashMap<String, Object>>> snapshots) {
+			this.snapshots = snapshots;
+			this.written = new boolean[snapshots.size()];
+		}
+		
+		@Override
+		public void write() throws IOException {
+			IOException failure = null;
+			for(int i = 0; i < this.snapshots.size(); i++) {
+				StorageSegment segment = this.snapshots.get(i).getA();
+				try {
+					FileUtils.writeAtomically(segment.file, segment.serialize(this.snapshots.get(i).getB()));
+					this.written[i] = true;
+				} catch(IOException e) {
+					failure = e;
+				}
+			}
+			
+			if(failure != null) {
+				throw failure;
+			}
+		}
+		
+		@Override
+		public void finish() {
+			for(int i = 0; i < this.snapshots.size(); i++) {
+				StorageSegment segment = this.snapshots.get(i).getA();
+				segment.writing = false;
+				
+				//Our own changes don't have to be read back
+				if(this.written[i]) {
+					segment.rememberFileState();
+				} else {
+					segment.dirty = true;
+				}
+			}
+		}
+		
+		@Override
+		public int getSegments() {
+			return this.snapshots.size();
+		}
+	}
+}
@@ -0,0 +1,296 @@
+package dev.array21.dutchycore.module.scanner;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import dev.array21.dutchycore.annotations.Nullable;
+
+/**
+ * Reads class-level annotations straight from class file bytes, without defining the class in a ClassLoader<br>
+ * <br>
+ * Element values are returned as follows:
+ * <ul>
+ * <li>Constants are returned as their boxed type (String, Integer, Long, Float, Double, Boolean, Character, Byte or Short)</li>
+ * <li>Enum constants are returned as the name of the constant</li>
+ * <li>Class literals are returned as the binary name of the class (e.g. <code>java.lang.String</code>)</li>
+ * <li>Arrays are returned as a List</li>
+ * <li>Nested annotations are returned as a HashMap of their element values</li>
+ * </ul>
+ * Only elements present in the class file are returned, default values declared by the annotation are not.
+ *
+ * @since 0.1.0
+ */
+public class ClassFileScanner {
+	
+	private static final int MAGIC = 0xCAFEBABE;
+	private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+	
+	/**
+	 * Get the element values of a class-level annotation
+	 * @param in InputStream of the class file. The stream is not closed
+	 * @param annotationClass The annotation to look for, must have RUNTIME retention
+	 * @return Returns the element values of the annotation, or null if the class is not annotated with {@link annotationClass}
+	 * @throws IOException When the stream could not be read, or when it is not a valid class file
+	 */
+	@Nullable
+	public static HashMap<String, Object> readClassAnnotation(InputStream in, Class<?> annotationClass) throws IOException {
+		String descriptor = "L" + annotationClass.getName().replace('.', '/') + ";";
+		DataInputStream data = new DataInputStream(in);
+		
+		if(data.readInt() != MAGIC) {
+			throw new IOException("Not a class file, invalid magic number");
+		}
+		
+		//Minor and major version
+		data.readUnsignedShort();
+		data.readUnsignedShort();
+		
+		ConstantPool constantPool = ConstantPool.read(data);
+		
+		//If the descriptor isn't in the constant pool at all, the class can't be annotated with it
+		if(!constantPool.containsUtf8(descriptor)) {
+			return null;
+		}
+		
+		//Access flags, this_class and super_class
+		data.readUnsignedShort();
+		data.readUnsignedShort();
+		data.readUnsignedShort();
+		
+		//Interfaces
+		int interfacesCount = data.readUnsignedShort();
+		skipFully(data, interfacesCount * 2L);
+		
+		//Fields and methods share the same layout
+		skipMembers(data);
+		skipMembers(data);
+		
+		//Class attributes
+		int attributesCount = data.readUnsignedShort();
+		for(int i = 0; i < attributesCount; i++) {
+			String attributeName = constantPool.getUtf8(data.readUnsignedShort());
+			long attributeLength = data.readInt() & 0xFFFFFFFFL;
+			
+			if(!RUNTIME_VISIBLE_ANNOTATIONS.equals(attributeName)) {
+				skipFully(data, attributeLength);
+				continue;
+			}
+			
+			int annotationsCount = data.readUnsignedShort();
+			for(int j = 0; j < annotationsCount; j++) {
+				String type = constantPool.getUtf8(data.readUnsignedShort());
+				HashMap<String, Object> values = readAnnotationValues(data, constantPool);
+				
+				if(descriptor.equals(type)) {
+					return values;
+				}
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Skip over the fields or methods of a class file
+	 * @param data The stream, positioned at the fields_count or methods_count item
+	 * @throws IOException
+	 */
+	private static void skipMembers(DataInputStream data) throws IOException {
+		int membersCount = data.readUnsignedShort();
+		for(int i = 0; i < membersCount; i++) {
+			//Access flags, name index and descriptor index
+			skipFully(data, 6);
+			
+			int attributesCount = data.readUnsignedShort();
+			for(int j = 0; j < attributesCount; j++) {
+				data.readUnsignedShort();
+				skipFully(data, data.readInt() & 0xFFFFFFFFL);
+			}
+		}
+	}
+	
+	/**
+	 * Read the element-value pairs of an annotation
+	 * @param data The stream, positioned at the num_element_value_pairs item
+	 * @param constantPool The constant pool of the class
+	 * @return Returns a HashMap of element name to value
+	 * @throws IOException
+	 */
+	private static HashMap<String, Object> readAnnotationValues(DataInputStream data, ConstantPool constantPool) throws IOException {
+		int pairsCount = data.readUnsignedShort();
+		HashMap<String, Object> values = new HashMap<>(pairsCount * 2);
+		for(int i = 0; i < pairsCount; i++) {
+			String name = constantPool.getUtf8(data.readUnsignedShort());
+			values.put(name, readElementValue(data, constantPool));
+		}
+		
+		return values;
+	}
+	
+	/**
+	 * Read a single element_value structure
+	 * @param data The stream, positioned at the tag of the element_value
+	 * @param constantPool The constant pool of the class
+	 * @return Returns the value
+	 * @throws IOException
+	 */
+	private static Object readElementValue(DataInputStream data, ConstantPool constantPool) throws IOException {
+		char tag = (char) data.readUnsignedByte();
+		switch(tag) {
+		case 's':
+			return constantPool.getUtf8(data.readUnsignedShort());
+		case 'Z':
+			return ((Integer) constantPool.getConstant(data.readUnsignedShort())) != 0;
+		case 'C':
+			return (char) ((Integer) constantPool.getConstant(data.readUnsignedShort())).intValue();
+		case 'B':
+			return ((Integer) constantPool.getConstant(data.readUnsignedShort())).byteValue();
+		case 'S':
+			return ((Integer) constantPool.getConstant(data.readUnsignedShort())).shortValue();
+		case 'I':
+		case 'J':
+		case 'F':
+		case 'D':
+			return constantPool.getConstant(data.readUnsignedShort());
+		case 'e':
+			//Type name, followed by the constant name
+			data.readUnsignedShort();
+			return constantPool.getUtf8(data.readUnsignedShort());
+		case 'c':
+			return descriptorToClassName(constantPool.getUtf8(data.readUnsignedShort()));
+		case '@':
+			data.readUnsignedShort();
+			return readAnnotationValues(data, constantPool);
+		case '[':
+			int length = data.readUnsignedShort();
+			List<Object> values = new ArrayList<>(length);
+			for(int i = 0; i < length; i++) {
+				values.add(readElementValue(data, constantPool));
+			}
+			
+			return values;
+		default:
+			throw new IOException(String.format("Invalid element_value tag '%s'", tag));
+		}
+	}
+	
+	/**
+	 * Convert a field descriptor to a binary class name
+	 * @param descriptor The descriptor, e.g. <code>Ljava/lang/String;</code>
+	 * @return Returns the class name, e.g. <code>java.lang.String</code>
+	 */
+	private static String descriptorToClassName(String descriptor) {
+		if(descriptor.startsWith("L") && descriptor.endsWith(";")) {
+			return descriptor.substring(1, descriptor.length() - 1).replace('/', '.');
+		}
+		
+		return descriptor.replace('/', '.');
+	}
+	
+	private static void skipFully(DataInputStream data, long n) throws IOException {
+		while(n > 0) {
+			long skipped = data.skip(n);
+			if(skipped <= 0) {
+				//skip() may return 0 before the end of the stream, read a byte to find out
+				if(data.read() == -1) {
+					throw new EOFException("Unexpected end of class file");
+				}
+				
+				skipped = 1;
+			}
+			
+			n -= skipped;
+		}
+	}
+	
+	/**
+	 * The constant pool of a class file. Only UTF8 and numeric constants are retained
+	 */
+	private static class ConstantPool {
+		
+		private final Object[] entries;
+		
+		private ConstantPool(Object[] entries) {
+			this.entries = entries;
+		}
+		
+		private static ConstantPool read(DataInputStream data) throws IOException {
+			int count = data.readUnsignedShort();
+			Object[] entries = new Object[count];
+			
+			//The constant pool is indexed from 1
+			for(int i = 1; i < count; i++) {
+				int tag = data.readUnsignedByte();
+				switch(tag) {
+				case 1: //Utf8
+					entries[i] = data.readUTF();
+					break;
+				case 3: //Integer
+					entries[i] = data.readInt();
+					break;
+				case 4: //Float
+					entries[i] = data.readFloat();
+					break;
+				case 5: //Long, takes up two entries
+					entries[i++] = data.readLong();
+					break;
+				case 6: //Double, takes up two entries
+					entries[i++] = data.readDouble();
+					break;
+				case 7: //Class
+				case 8: //String
+				case 16: //MethodType
+				case 19: //Module
+				case 20: //Package
+					skipFully(data, 2);
+					break;
+				case 15: //MethodHandle
+					skipFully(data, 3);
+					break;
+				case 9: //Fieldref
+				case 10: //Methodref
+				case 11: //InterfaceMethodref
+				case 12: //NameAndType
+				case 17: //Dynamic
+				case 18: //InvokeDynamic
+					skipFully(data, 4);
+					break;
+				default:
+					throw new IOException(String.format("Invalid constant pool tag %d at index %d", tag, i));
+				}
+			}
+			
+			return new ConstantPool(entries);
+		}
+		
+		private boolean containsUtf8(String value) {
+			for(Object entry : this.entries) {
+				if(value.equals(entry)) return true;
+			}
+			
+			return false;
+		}
+		
+		private String getUtf8(int index) throws IOException {
+			Object entry = getConstant(index);
+			if(!(entry instanceof String)) {
+				throw new IOException(String.format("Constant pool index %d is not a UTF8 entry", index));
+			}
+			
+			return (String) entry;
+		}
+		
+		private Object getConstant(int index) throws IOException {
+			if(index <= 0 || index >= this.entries.length || this.entries[index] == null) {
+				throw new IOException(String.format("Invalid constant pool index %d", index));
+			}
+			
+			return this.entries[index];
+		}
+	}
+}
@@ -0,0 +1,289 @@
+package dev.array21.dutchycore.module.scanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import dev.array21.dutchycore.DutchyCore;
+import dev.array21.dutchycore.annotations.Nullable;
+import dev.array21.dutchycore.config.Utf8YamlConfiguration;
+import dev.array21.dutchycore.utils.Utils;
+
+/**
+ * On-disk index of scanned module jars<br>
+ * <br>
+ * Maps a jar's path, size, modification time and SHA-256 hash to its main class and the values of its RegisterModule annotation,
+ * so that unchanged jars don't have to be scanned again on the next startup.<br>
+ * <br>
+ * This class is thread safe, lookups may happen from the module scanning threads.
+ *
+ * @since 0.1.0
+ */
+public class ModuleIndex {
+	
+	/**
+	 * Bump this when the layout of an entry changes, older indexes will then be discarded
+	 */
+	private static final int INDEX_VERSION = 1;
+	
+	private final File indexFile;
+	private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+	
+	public ModuleIndex(File indexFile) {
+		this.indexFile = indexFile;
+	}
+	
+	/**
+	 * Read the index from disk. A missing, outdated or corrupt index results in an empty index
+	 */
+	public void read() {
+		this.entries.clear();
+		
+		if(!this.indexFile.exists()) {
+			return;
+		}
+		
+		FileConfiguration indexConfig = new Utf8YamlConfiguration();
+		try {
+			indexConfig.load(this.indexFile);
+		} catch(IOException | InvalidConfigurationException e) {
+			DutchyCore.logWarn(String.format("Failed to read the module index '%s', all modules will be scanned: %s", this.indexFile.getAbsolutePath(), Utils.getStackTrace(e)));
+			return;
+		}
+		
+		if(indexConfig.getInt("version", -1) != INDEX_VERSION) {
+			return;
+		}
+		
+		Object modules = indexConfig.get("modules");
+		if(!(modules instanceof List)) {
+			return;
+		}
+		
+		for(Object module : (List<?>) modules) {
+			Entry entry = Entry.fromMap(module);
+			
+			//A corrupt entry is dropped, which results in a full scan of that jar
+			if(entry != null) {
+				this.entries.put(entry.path, entry);
+			}
+		}
+	}
+	
+	/**
+	 * Write the index to disk
+	 */
+	public void save() {
+		List<Map<String, Object>> modules = new ArrayList<>(this.entries.size());
+		for(Entry entry : this.entries.values()) {
+			modules.add(entry.toMap());
+		}
+		
+		FileConfiguration indexConfig = new Utf8YamlConfiguration();
+		indexConfig.set("version", INDEX_VERSION);
+		indexConfig.set("modules", modules);
+		
+		try {
+			indexConfig.save(this.indexFile);
+		} catch(IOException e) {
+			DutchyCore.logWarn(String.format("Failed to save the module index '%s': %s", this.indexFile.getAbsolutePath(), Utils.getStackTrace(e)));
+		}
+	}
+	
+	/**
+	 * Look up a jar in the index<br>
+	 * <br>
+	 * When the size and modification time are unchanged, the entry is returned without reading the jar.
+	 * When only the modification time changed, the jar is hashed, and the entry is only returned if the hash is unchanged.
+	 * @param jar The module jar
+	 * @return Returns the index Entry, or null if the jar isn't indexed or has changed
+	 */
+	@Nullable
+	public Entry lookup(File jar) {
+		Entry entry = this.entries.get(jar.getAbsolutePath());
+		if(entry == null) {
+			return null;
+		}
+		
+		long size = jar.length();
+		long lastModified = jar.lastModified();
+		if(entry.size == size && entry.lastModified == lastModified) {
+			return entry;
+		}
+		
+		//A jar of another size has changed, there is no need to hash it
+		if(entry.size != size) {
+			this.entries.remove(entry.path);
+			return null;
+		}
+		
+		//Only the mtime changed, the contents might still be the same (e.g. the jar was copied over)
+		String hash = hash(jar);
+		if(hash == null || !hash.equals(entry.hash)) {
+			this.entries.remove(entry.path);
+			return null;
+		}
+		
+		Entry updated = new Entry(entry.path, size, lastModified, hash, entry.mainClass, entry.annotationValues);
+		this.entries.put(updated.path, updated);
+		return updated;
+	}
+	
+	/**
+	 * Add or replace a jar in the index
+	 * @param jar The module jar
+	 * @param mainClass The name of the main class of the module
+	 * @param annotationValues The values of the RegisterModule annotation on the main class
+	 */
+	public void put(File jar, String mainClass, HashMap<String, Object> annotationValues) {
+		String hash = hash(jar);
+		if(hash == null) {
+			return;
+		}
+		
+		Entry entry = new Entry(jar.getAbsolutePath(), jar.length(), jar.lastModified(), hash, mainClass, annotationValues);
+		this.entries.put(entry.path, entry);
+	}
+	
+	/**
+	 * Remove a jar from the index
+	 * @param jar The module jar
+	 */
+	public void remove(File jar) {
+		this.entries.remove(jar.getAbsolutePath());
+	}
+	
+	/**
+	 * Remove all entries for jars which are not in the provided paths, e.g. because they were deleted
+	 * @param jarPaths The absolute paths of all module jars that currently exist
+	 */
+	public void retainOnly(Collection<String> jarPaths) {
+		HashSet<String> retain = new HashSet<>(jarPaths);
+		this.entries.keySet().retainAll(retain);
+	}
+	
+	/**
+	 * Calculate the SHA-256 hash of a file
+	 * @param file The file to hash
+	 * @return Returns the hash as a hexadecimal String, or null if the file could not be read
+	 */
+	@Nullable
+	private static String hash(File file) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch(NoSuchAlgorithmException e) {
+			//Every JVM is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+		
+		byte[] buffer = new byte[8192];
+		try(InputStream in = Files.newInputStream(file.toPath())) {
+			int read;
+			while((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		} catch(IOException e) {
+			return null;
+		}
+		
+		StringBuilder hex = new StringBuilder(64);
+		for(byte b : digest.digest()) {
+			hex.append(String.format("%02x", b));
+		}
+		
+		return hex.toString();
+	}
+	
+	/**
+	 * A single indexed module jar
+	 */
+	public static class Entry {
+		
+		private final String path, hash, mainClass;
+		private final long size, lastModified;
+		private final HashMap<String, Object> annotationValues;
+		
+		private Entry(String path, long size, long lastModified, String hash, String mainClass, HashMap<String, Object> annotationValues) {
+			this.path = path;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.hash = hash;
+			this.mainClass = mainClass;
+			this.annotationValues = annotationValues;
+		}
+		
+		/**
+		 * Get the name of the main class
+		 * @return Returns the name of the main class
+		 */
+		public String getMainClass() {
+			return this.mainClass;
+		}
+		
+		/**
+		 * Get the values of the RegisterModule annotation, in the format returned by {@link ClassFileScanner}
+		 * @return Returns a copy of the annotation values
+		 */
+		public HashMap<String, Object> getAnnotationValues() {
+			return new HashMap<>(this.annotationValues);
+		}
+		
+		private Map<String, Object> toMap() {
+			LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+			map.put("path", this.path);
+			map.put("size", this.size);
+			map.put("lastModified", this.lastModified);
+			map.put("hash", this.hash);
+			map.put("mainClass", this.mainClass);
+			map.put("annotation", this.annotationValues);
+			return map;
+		}
+		
+		/**
+		 * Create an Entry from a deserialized YAML map
+		 * @param object The deserialized object
+		 * @return Returns the Entry, or null if the object is not a valid entry
+		 */
+		@Nullable
+		private static Entry fromMap(Object object) {
+			if(!(object instanceof Map)) {
+				return null;
+			}
+			
+			Map<?, ?> map = (Map<?, ?>) object;
+			Object path = map.get("path");
+			Object size = map.get("size");
+			Object lastModified = map.get("lastModified");
+			Object hash = map.get("hash");
+			Object mainClass = map.get("mainClass");
+			Object annotation = map.get("annotation");
+			
+			if(!(path instanceof String) || !(size instanceof Number) || !(lastModified instanceof Number)
+					|| !(hash instanceof String) || !(mainClass instanceof String) || !(annotation instanceof Map)) {
+				return null;
+			}
+			
+			HashMap<String, Object> annotationValues = new HashMap<>();
+			for(Map.Entry<?, ?> value : ((Map<?, ?>) annotation).entrySet()) {
+				annotationValues.put(String.valueOf(value.getKey()), value.getValue());
+			}
+			
+			return new Entry((String) path, ((Number) size).longValue(), ((Number) lastModified).longValue(), (String) hash, (String) mainClass, annotationValues);
+		}
+	}
+}
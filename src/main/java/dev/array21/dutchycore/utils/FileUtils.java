@@ -4,10 +4,15 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 import dev.array21.dutchycore.DutchyCore;
 
@@ -46,4 +51,40 @@ public class FileUtils {
 			e.printStackTrace();
 		}
 	}
+	
+	/**
+	 * Write a String to a file in UTF-8, replacing the file atomically<br>
+	 * <br>
+	 * The data is written to a temporary file next to the target first and forced to disk, which is then renamed over the target.
+	 * A crash while writing leaves the old file intact, instead of a partially written one
+	 * @param target The file to write
+	 * @param data The data to write
+	 * @throws IOException If the file could not be written
+	 */
+	public static void writeAtomically(File target, String data) throws IOException {
+		Path targetPath = target.toPath().toAbsolutePath();
+		Files.createDirectories(targetPath.getParent());
+		
+		Path tempPath = Files.createTempFile(targetPath.getParent(), target.getName(), ".tmp");
+		try {
+			//Forced before the rename, otherwise a crash could leave the renamed file without its data
+			try(FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+				ByteBuffer buffer = ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8));
+				while(buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				
+				channel.force(true);
+			}
+			
+			try {
+				Files.move(tempPath, targetPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch(AtomicMoveNotSupportedException e) {
+				//Some filesystems can't rename atomically, replacing the file is the best we can do
+				Files.move(tempPath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tempPath);
+		}
+	}
 }
@@ -3,8 +3,12 @@ package dev.array21.dutchycore.utils;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.math.BigInteger;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
+import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
+import org.bukkit.plugin.Plugin;
 
 import dev.array21.dutchycore.Triple;
 
@@ -22,6 +26,45 @@ public class Utils {
         return sw.getBuffer().toString();
 	}
 	
+	/**
+	 * Run a task on the Bukkit main thread. If the current thread is the main thread, the task is run immediately
+	 * @param plugin The plugin scheduling the task
+	 * @param task The task to run
+	 * @return Returns a CompletableFuture which completes when the task has run, or completes exceptionally if it threw
+	 */
+	public static CompletableFuture<Void> runOnMainThread(Plugin plugin, Runnable task) {
+		return supplyOnMainThread(plugin, () -> {
+			task.run();
+			return null;
+		});
+	}
+	
+	/**
+	 * Compute a value on the Bukkit main thread. If the current thread is the main thread, the value is computed immediately
+	 * @param <T> The type of the value
+	 * @param plugin The plugin scheduling the task
+	 * @param supplier Computes the value
+	 * @return Returns a CompletableFuture with the value, or completes exceptionally if {@link supplier} threw
+	 */
+	public static <T> CompletableFuture<T> supplyOnMainThread(Plugin plugin, Supplier<T> supplier) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		Runnable task = () -> {
+			try {
+				future.complete(supplier.get());
+			} catch(Throwable e) {
+				future.completeExceptionally(e);
+			}
+		};
+		
+		if(Bukkit.isPrimaryThread()) {
+			task.run();
+		} else {
+			Bukkit.getScheduler().runTask(plugin, task);
+		}
+		
+		return future;
+	}
+	
     /**
      * Verify if a String is a positive number, less than Integer.MAX_VALUE
      * @param input The input to verify